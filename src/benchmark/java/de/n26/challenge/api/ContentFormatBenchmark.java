@@ -0,0 +1,80 @@
+package de.n26.challenge.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare encoding statistics and decoding transactions in JSON, Smile and CBOR with Jackson.
+ * Bytes on the wire of each format are checked by {@code JacksonBinaryHttpMessageConverterTest}.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContentFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectWriter statisticsWriter;
+    private ObjectReader transactionReader;
+    private Statistics statistics;
+    private byte[] transactionBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper(factory(format));
+        statisticsWriter = objectMapper.writerFor(Statistics.class);
+        transactionReader = objectMapper.readerFor(Transaction.class);
+
+        statistics = Statistics.build().sum(123456.78).avg(2057.61).max(9999.99).min(0.01).count(60);
+
+        Transaction transaction = new Transaction();
+        transaction.setTimestamp(1500000000123L);
+        transaction.setAmount(12.34);
+        transaction.setId("4f3c1b2a-9d8e-4c7b-a6f5-e4d3c2b1a098");
+        transactionBytes = objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public byte[] encodeStatistics() throws Exception {
+        return statisticsWriter.writeValueAsBytes(statistics);
+    }
+
+    @Benchmark
+    public Transaction decodeTransaction() throws Exception {
+        return transactionReader.readValue(transactionBytes);
+    }
+
+    private static JsonFactory factory(String format) {
+        switch(format) {
+            case "smile":
+                return new SmileFactory();
+            case "cbor":
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link StatisticData.CollectMode collect modes} of the columnar layout
+ * for periods of a minute, an hour and a day of one second slots.
+ * Either about a half of the slots is occupied to make branches unpredictable
+ * or a percent of them is like under sparse traffic.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectBenchmark {
+
+    @Param({"SCALAR", "BRANCH_FREE"})
+    private StatisticData.CollectMode collectMode;
+
+    @Param({"60", "3600", "86400"})
+    private int size;
+
+    @Param({"50", "1"})
+    private int occupiedPercent;
+
+    private StatisticData statisticData;
+
+    @Setup
+    public void setup() {
+        statisticData = new StatisticData(size, StatisticData.Layout.COLUMNAR, collectMode, 0, 0);
+        Random random = new Random(42);
+
+        for(int i = 0; i < size; i++) {
+            if(random.nextInt(100) < occupiedPercent) {
+                statisticData.add(i, 1 + random.nextInt(1000000), 1500000000L);
+            }
+        }
+    }
+
+    @Benchmark
+    public StatisticsSnapshot collect() {
+        return statisticData.collect(StatisticsSnapshot.COLLECTOR, size / 2);
+    }
+}
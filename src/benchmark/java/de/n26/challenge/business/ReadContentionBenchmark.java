@@ -0,0 +1,91 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer throughput of the {@link StatisticsBuffer} while several readers calculate
+ * the whole window or a sub-window at the highest rate possible. Compare the writer
+ * results of the groups with the uncontended ones to see the cost of the reads to writers.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ReadContentionBenchmark {
+
+    private static final long NOW_SEC = 1500000000L;
+    private static final int LAST_SECONDS = 10;
+
+    private StatisticsBuffer<StatisticsSnapshot> statisticsBuffer;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        statisticsBuffer = new StatisticsBuffer<>(60, StatisticsSnapshot.COLLECTOR);
+        statisticsBuffer.tick(NOW_SEC);
+    }
+
+    @State(Scope.Thread)
+    public static class Reader implements StatisticsSink {
+        private long counted;
+
+        @Override
+        public void accept(long sum, long count, long min, long max) {
+            counted += count;
+        }
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    @GroupThreads(1)
+    public void uncontendedAdd() {
+        statisticsBuffer.add(1000L, NOW_SEC, NOW_SEC);
+    }
+
+    @Benchmark
+    @Group("window")
+    @GroupThreads(1)
+    public void windowAdd() {
+        statisticsBuffer.add(1000L, NOW_SEC, NOW_SEC);
+    }
+
+    @Benchmark
+    @Group("window")
+    @GroupThreads(3)
+    public long windowCalculate(Reader reader) {
+        statisticsBuffer.calculate(NOW_SEC, reader);
+        return reader.counted;
+    }
+
+    @Benchmark
+    @Group("subWindow")
+    @GroupThreads(1)
+    public void subWindowAdd() {
+        statisticsBuffer.add(1000L, NOW_SEC, NOW_SEC);
+    }
+
+    @Benchmark
+    @Group("subWindow")
+    @GroupThreads(3)
+    public long subWindowCalculate(Reader reader) {
+        statisticsBuffer.calculate(NOW_SEC, LAST_SECONDS, reader);
+        return reader.counted;
+    }
+}
@@ -0,0 +1,95 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link StatisticData.Layout layouts} of the statistics slots:
+ * single threaded add and collect throughput and add throughput of several writers
+ * hitting adjacent seconds through the {@link StatisticsBuffer} while a reader calculates.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatisticDataBenchmark {
+
+    private static final long NOW_SEC = 1500000000L;
+
+    @Param({"COLUMNAR", "INTERLEAVED"})
+    private StatisticData.Layout layout;
+
+    @Param({"60", "3600"})
+    private int size;
+
+    private StatisticData statisticData;
+    private StatisticsBuffer<StatisticsSnapshot> statisticsBuffer;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        statisticData = new StatisticData(size, layout, StatisticData.CollectMode.SCALAR, 0, 0);
+        statisticsBuffer = new StatisticsBuffer<>(size, layout, StatisticData.CollectMode.SCALAR, 0, 0,
+                StatisticsSnapshot.COLLECTOR);
+
+        for(int i = 0; i < size; i++) {
+            statisticData.add(i, 1000L + i, NOW_SEC);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private int cursor;
+        private long second;
+
+        @Setup
+        public void setup(ThreadParams threadParams) {
+            // Adjacent seconds per writer thread
+            second = NOW_SEC - threadParams.getThreadIndex();
+        }
+    }
+
+    @Benchmark
+    public StatisticData add(Writer writer) {
+        writer.cursor = writer.cursor + 1 == size ? 0 : writer.cursor + 1;
+        statisticData.add(writer.cursor, 1000L, NOW_SEC);
+        return statisticData;
+    }
+
+    @Benchmark
+    public StatisticsSnapshot collect() {
+        return statisticData.collect(StatisticsSnapshot.COLLECTOR);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public void contendedAdd(Writer writer) {
+        statisticsBuffer.add(1000L, writer.second, NOW_SEC);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public StatisticsSnapshot contendedCalculate() {
+        return statisticsBuffer.calculate(NOW_SEC);
+    }
+}
@@ -0,0 +1,58 @@
+package de.n26.challenge.business;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.api.StatisticsJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare reading statistics as JSON through {@link DefaultStatisticsCollector} and Jackson
+ * with streaming it by {@link StatisticsJsonWriter}. Run with {@code -prof gc} to see allocation per read.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsJsonBenchmark {
+
+    private static final long NOW_SEC = 1500000000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StatisticsJsonWriter writer = new StatisticsJsonWriter();
+    private StatisticsBuffer<Statistics> statisticsBuffer;
+
+    @Setup
+    public void setup() {
+        statisticsBuffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        for(int i = 0; i < 60; i++) {
+            statisticsBuffer.add(12345L + i, NOW_SEC - i, NOW_SEC);
+        }
+    }
+
+    @Benchmark
+    public byte[] collector() throws Exception {
+        return objectMapper.writeValueAsBytes(statisticsBuffer.calculate(NOW_SEC));
+    }
+
+    @Benchmark
+    public StatisticsJsonWriter sink() {
+        statisticsBuffer.calculate(NOW_SEC, writer);
+        return writer;
+    }
+}
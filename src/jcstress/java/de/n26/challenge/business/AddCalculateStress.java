@@ -0,0 +1,50 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJJ_Result;
+
+import static de.n26.challenge.business.StressEngine.NOW_SEC;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Racing adds of new accounts to the same second with an optimistic read of the window aggregates,
+ * one of the adds lowers the minimum and the other one raises the maximum.
+ * Reader must see either none, one or both of the transactions as a whole: count, sum, min, max
+ * and distinct accounts of different states (e.g. a torn min/max update) are forbidden.
+ * Window aggregates are read the same way by every engine, so it runs against {@link StressEngine#TRACKING}
+ * updating the largest heaps and the distinct registers too.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@JCStressTest
+@State
+@Description("Window aggregates are read consistently while transactions are added")
+@Outcome(id = "11, 24000, 1000, 5000, 3", expect = ACCEPTABLE, desc = "No transaction is visible yet")
+@Outcome(id = "12, 24500, 500, 5000, 5", expect = ACCEPTABLE, desc = "The first transaction is visible")
+@Outcome(id = "12, 32000, 1000, 8000, 5", expect = ACCEPTABLE, desc = "The second transaction is visible")
+@Outcome(id = "13, 32500, 500, 8000, 6", expect = ACCEPTABLE, desc = "Both transactions are visible")
+@Outcome(expect = FORBIDDEN, desc = "Aggregates of different states")
+public class AddCalculateStress {
+
+    private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+    @Actor
+    public void writer1() {
+        buffer.add(500L, StatisticsBuffer.accountHash("account-4"), NOW_SEC, NOW_SEC);
+    }
+
+    @Actor
+    public void writer2() {
+        buffer.add(8000L, StatisticsBuffer.accountHash("account-6"), NOW_SEC, NOW_SEC);
+    }
+
+    @Actor
+    public void reader(JJJJJ_Result result) {
+        buffer.calculate(NOW_SEC, StressEngine.into(result));
+    }
+}
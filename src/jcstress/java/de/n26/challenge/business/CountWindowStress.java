@@ -0,0 +1,53 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Racing adds to a full {@link CountWindow} with an optimistic read of the whole window.
+ * Each add evicts the oldest amount and updates the min/max deques, reader must see
+ * the window of one of the states the adds might produce.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Description("Count window aggregates are read consistently while transactions are added and evicted")
+@Outcome(id = "2, 1500, 500, 1000", expect = ACCEPTABLE, desc = "No transaction is added yet")
+@Outcome(id = "2, 3000, 1000, 2000", expect = ACCEPTABLE, desc = "The first transaction is added")
+@Outcome(id = "2, 4000, 1000, 3000", expect = ACCEPTABLE, desc = "The second transaction is added")
+@Outcome(id = "2, 5000, 2000, 3000", expect = ACCEPTABLE, desc = "Both transactions are added")
+@Outcome(expect = FORBIDDEN, desc = "Aggregates of different states")
+public class CountWindowStress {
+
+    @JCStressTest
+    @State
+    public static class Full {
+        private final CountWindow<StatisticsSnapshot> window = new CountWindow<>(2, StatisticsSnapshot.COLLECTOR);
+
+        public Full() {
+            window.add(500L);
+            window.add(1000L);
+        }
+
+        @Actor
+        public void writer1() {
+            window.add(2000L);
+        }
+
+        @Actor
+        public void writer2() {
+            window.add(3000L);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            window.calculate(2, StressEngine.into(result));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJ_Result;
+
+import static de.n26.challenge.business.StressEngine.NOW_SEC;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Add and tick racing across a second boundary with a reader whose clock is behind.
+ * The oldest second of the window is evicted by whichever of the add and the tick rolls the buffer first,
+ * the reader doesn't roll it. Reset of the evicted slot must become visible together with the roll:
+ * the evicted transactions are never seen together with the new one.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Description("Eviction at a second boundary is visible atomically to readers")
+@Outcome(id = "11, 24000, 1000, 5000", expect = ACCEPTABLE, desc = "Buffer is not rolled yet")
+@Outcome(id = "9, 18000, 2000, 2000", expect = ACCEPTABLE, desc = "Rolled by the tick, transaction is not added yet")
+@Outcome(id = "10, 21000, 2000, 3000", expect = ACCEPTABLE, desc = "Buffer is rolled and transaction is added")
+@Outcome(expect = FORBIDDEN, desc = "Evicted transactions are visible after the roll or partial state")
+public class ExpiryStress {
+
+    @JCStressTest
+    @State
+    public static class ColumnarScalar {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.COLUMNAR_SCALAR.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(3000L, NOW_SEC, NOW_SEC + 1);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class ColumnarBranchFree {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.COLUMNAR_BRANCH_FREE.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(3000L, NOW_SEC, NOW_SEC + 1);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class InterleavedScalar {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.INTERLEAVED_SCALAR.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(3000L, NOW_SEC, NOW_SEC + 1);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class Tracking {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(3000L, NOW_SEC, NOW_SEC + 1);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJ_Result;
+
+import static de.n26.challenge.business.StressEngine.NOW_SEC;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Add of the oldest second of the window by a writer whose clock is behind racing with the tick
+ * evicting that second. Whatever the order, the transaction must not survive the roll: either it is
+ * evicted by the tick or it is rejected as outdated for the buffer already rolled further.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Description("Transaction added by a lagging writer doesn't resurrect an evicted second")
+@Outcome(id = "9, 18000, 2000, 2000", expect = ACCEPTABLE, desc = "Transaction is evicted or rejected")
+@Outcome(expect = FORBIDDEN, desc = "Transaction of an evicted second is visible")
+public class LateAddStress {
+
+    @JCStressTest
+    @State
+    public static class ColumnarScalar {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.COLUMNAR_SCALAR.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(500L, NOW_SEC - 59, NOW_SEC);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Arbiter
+        public void arbiter(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC + 1, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class ColumnarBranchFree {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.COLUMNAR_BRANCH_FREE.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(500L, NOW_SEC - 59, NOW_SEC);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Arbiter
+        public void arbiter(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC + 1, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class InterleavedScalar {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.INTERLEAVED_SCALAR.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(500L, NOW_SEC - 59, NOW_SEC);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Arbiter
+        public void arbiter(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC + 1, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class Tracking {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(500L, NOW_SEC - 59, NOW_SEC);
+        }
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Arbiter
+        public void arbiter(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC + 1, StressEngine.into(result));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJ_Result;
+
+import static de.n26.challenge.business.StressEngine.NOW_SEC;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Tick rolling the buffer by a second racing with an optimistic read of the window aggregates by a reader
+ * whose clock is behind. The roll evicts the oldest second and publishes the aggregates collected by a full
+ * scan of the slots, which differs between the engines (the dense buffers are scanned branch-free by
+ * the branch-free engine). Reader must see the aggregates of the window either before or after the roll.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Description("Aggregates published by a roll are visible atomically to readers")
+@Outcome(id = "11, 24000, 1000, 5000", expect = ACCEPTABLE, desc = "Buffer is not rolled yet")
+@Outcome(id = "9, 18000, 2000, 2000", expect = ACCEPTABLE, desc = "Buffer is rolled")
+@Outcome(expect = FORBIDDEN, desc = "Aggregates of different states")
+public class RollStress {
+
+    @JCStressTest
+    @State
+    public static class ColumnarScalar {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.COLUMNAR_SCALAR.create();
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class ColumnarBranchFree {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.COLUMNAR_BRANCH_FREE.create();
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class InterleavedScalar {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.INTERLEAVED_SCALAR.create();
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    public static class Tracking {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.infra.results.JJJJJ_Result;
+import org.openjdk.jcstress.infra.results.JJJJ_Result;
+
+/**
+ * Statistics buffer engines the stress tests run against: every slot layout with every collect mode
+ * it supports, and the one tracking the largest amounts and distinct accounts on top.
+ *
+ * Engines differ in how the slots are scanned when the buffer is rolled, reads of the window aggregates
+ * and of the sub-window indexes are the same for all of them. So tests rolling the buffer have a test class
+ * per engine, the rest run against {@link #TRACKING} only. A new engine added here has to get a test class
+ * in each of the rolling tests.
+ *
+ * Buffers are created dense: at least 1/{@value StatisticData#DENSE_RATIO} of the slots are occupied before
+ * and after a roll by one second, so the branch-free engine scans the slots branch-free rather than
+ * falling back to visiting the occupied ones.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+enum StressEngine {
+    COLUMNAR_SCALAR(StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR, 0, 0),
+    COLUMNAR_BRANCH_FREE(StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.BRANCH_FREE, 0, 0),
+    INTERLEAVED_SCALAR(StatisticData.Layout.INTERLEAVED, StatisticData.CollectMode.SCALAR, 0, 0),
+    TRACKING(StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.BRANCH_FREE, 4, 4);
+
+    static final int PERIOD = 60;
+    // Current second the buffers are rolled to when created
+    static final long NOW_SEC = 1500000000L;
+    // Seconds filled when created starting from the oldest second of the window
+    static final int FILLED_SECONDS = 10;
+
+    // Pre-filled window: the oldest second has 1000 and 5000 of two accounts, the next ones 2000 of a third one.
+    // Roll by one second evicts the oldest second changing each of the aggregates
+    static final long FILLED_MIN = 1000L;
+    static final long FILLED_MAX = 5000L;
+    static final long FILLED_AMOUNT = 2000L;
+
+    private final StatisticData.Layout layout;
+    private final StatisticData.CollectMode collectMode;
+    private final int largestCapacity;
+    private final int distinctPrecision;
+
+    StressEngine(StatisticData.Layout layout,
+                 StatisticData.CollectMode collectMode,
+                 int largestCapacity,
+                 int distinctPrecision) {
+        this.layout = layout;
+        this.collectMode = collectMode;
+        this.largestCapacity = largestCapacity;
+        this.distinctPrecision = distinctPrecision;
+    }
+
+    StatisticsBuffer<StatisticsSnapshot> create() {
+        StatisticsBuffer<StatisticsSnapshot> buffer = new StatisticsBuffer<>(PERIOD, layout, collectMode,
+                largestCapacity, distinctPrecision, StatisticsSnapshot.COLLECTOR);
+        buffer.tick(NOW_SEC);
+
+        long oldestSec = NOW_SEC - PERIOD + 1;
+        buffer.add(FILLED_MIN, StatisticsBuffer.accountHash("account-1"), oldestSec, NOW_SEC);
+        buffer.add(FILLED_MAX, StatisticsBuffer.accountHash("account-2"), oldestSec, NOW_SEC);
+        for(long sec = oldestSec + 1; sec < oldestSec + FILLED_SECONDS; sec++) {
+            buffer.add(FILLED_AMOUNT, StatisticsBuffer.accountHash("account-3"), sec, NOW_SEC);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * @param result result to record statistics to
+     * @return sink recording count, sum, min and max to the result
+     */
+    static StatisticsSink into(JJJJ_Result result) {
+        return (sum, count, min, max) -> {
+            result.r1 = count;
+            result.r2 = sum;
+            result.r3 = min;
+            result.r4 = max;
+        };
+    }
+
+    /**
+     * @param result result to record statistics to
+     * @return sink recording count, sum, min, max and distinct accounts to the result
+     */
+    static StatisticsSink into(JJJJJ_Result result) {
+        return new StatisticsSink() {
+            @Override
+            public void accept(long sum, long count, long min, long max) {
+                accept(sum, count, min, max, -1L);
+            }
+
+            @Override
+            public void accept(long sum, long count, long min, long max, long distinct) {
+                result.r1 = count;
+                result.r2 = sum;
+                result.r3 = min;
+                result.r4 = max;
+                result.r5 = distinct;
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJJ_Result;
+
+import static de.n26.challenge.business.StressEngine.NOW_SEC;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Racing adds of new accounts to different seconds of a sub-window with an optimistic read of the sub-window
+ * from the prefix sums, min/max trees and per second distinct registers. Reader must see either none, one
+ * or both of the transactions as a whole although they update different leaves of the trees.
+ * Indexes are the same for every engine, so it runs against {@link StressEngine#TRACKING} only.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@JCStressTest
+@State
+@Description("Sub-window aggregates are read consistently while transactions are added")
+@Outcome(id = "0, 0, 0, 0, 0", expect = ACCEPTABLE, desc = "No transaction is visible yet")
+@Outcome(id = "1, 1000, 1000, 1000, 1", expect = ACCEPTABLE, desc = "The first transaction is visible")
+@Outcome(id = "1, 3000, 3000, 3000, 1", expect = ACCEPTABLE, desc = "The second transaction is visible")
+@Outcome(id = "2, 4000, 1000, 3000, 2", expect = ACCEPTABLE, desc = "Both transactions are visible")
+@Outcome(expect = FORBIDDEN, desc = "Aggregates of different states")
+public class SubWindowStress {
+
+    private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+    @Actor
+    public void writer1() {
+        buffer.add(1000L, StatisticsBuffer.accountHash("account-4"), NOW_SEC - 1, NOW_SEC);
+    }
+
+    @Actor
+    public void writer2() {
+        buffer.add(3000L, StatisticsBuffer.accountHash("account-6"), NOW_SEC - 3, NOW_SEC);
+    }
+
+    @Actor
+    public void reader(JJJJJ_Result result) {
+        buffer.calculate(NOW_SEC, 5, StressEngine.into(result));
+    }
+}
@@ -0,0 +1,89 @@
+package de.n26.challenge.business;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJJJJ_Result;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import static de.n26.challenge.business.StressEngine.NOW_SEC;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Largest amounts and distinct accounts of {@link StressEngine#TRACKING} read while the buffer is rolled
+ * or a transaction is added. The roll evicts the heap and the registers of the oldest second and rebuilds
+ * the window registers, readers must see the heaps and the distinct accounts either before or after it.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class TrackingStress {
+
+    @JCStressTest
+    @State
+    @Description("Distinct accounts published by a roll are visible atomically to readers")
+    @Outcome(id = "11, 24000, 1000, 5000, 3", expect = ACCEPTABLE, desc = "Buffer is not rolled yet")
+    @Outcome(id = "9, 18000, 2000, 2000, 1", expect = ACCEPTABLE, desc = "Buffer is rolled")
+    @Outcome(expect = FORBIDDEN, desc = "Aggregates of different states")
+    public static class DistinctRoll {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJJJJ_Result result) {
+            buffer.calculate(NOW_SEC, StressEngine.into(result));
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    @Description("Largest amounts evicted by a roll are visible atomically to readers")
+    @Outcome(id = "5000, 2000", expect = ACCEPTABLE, desc = "Buffer is not rolled yet")
+    @Outcome(id = "2000, 2000", expect = ACCEPTABLE, desc = "Buffer is rolled")
+    @Outcome(expect = FORBIDDEN, desc = "Largest amounts of different states")
+    public static class LargestRoll {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+        @Actor
+        public void ticker() {
+            buffer.tick(NOW_SEC + 1);
+        }
+
+        @Actor
+        public void reader(JJ_Result result) {
+            LargestAmounts largest = buffer.largest(NOW_SEC, 2);
+            result.r1 = largest.getAmount(0);
+            result.r2 = largest.getAmount(1);
+        }
+    }
+
+
+    @JCStressTest
+    @State
+    @Description("Largest amounts are read consistently while a transaction is added")
+    @Outcome(id = "5000, 2000", expect = ACCEPTABLE, desc = "Transaction is not visible yet")
+    @Outcome(id = "8000, 5000", expect = ACCEPTABLE, desc = "Transaction is visible")
+    @Outcome(expect = FORBIDDEN, desc = "Largest amounts of different states")
+    public static class LargestAdd {
+        private final StatisticsBuffer<StatisticsSnapshot> buffer = StressEngine.TRACKING.create();
+
+        @Actor
+        public void writer() {
+            buffer.add(8000L, NOW_SEC, NOW_SEC);
+        }
+
+        @Actor
+        public void reader(JJ_Result result) {
+            LargestAmounts largest = buffer.largest(NOW_SEC, 2);
+            result.r1 = largest.getAmount(0);
+            result.r2 = largest.getAmount(1);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package de.n26.challenge;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main class for the Spring Boot application.
@@ -12,6 +13,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
  */
 @SpringBootApplication
+@EnableScheduling
 public class ChallengeApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,46 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.util.AdaptiveConcurrencyLimit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers {@link AdmissionFilter} for the ingest endpoint only,
+ * so statistics reads are never shed.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Configuration
+@ConditionalOnProperty(name = "de.n26.challenge.admission.enabled", havingValue = "true")
+public class AdmissionConfiguration {
+
+    @Bean
+    public AdmissionFilter admissionFilter(
+            @Value("${de.n26.challenge.admission.client-rate}") long clientRate,
+            @Value("${de.n26.challenge.admission.client-burst}") long clientBurst,
+            @Value("${de.n26.challenge.admission.reject-cost}") long rejectCost,
+            @Value("${de.n26.challenge.admission.max-clients}") int maxClients,
+            @Value("${de.n26.challenge.admission.client-header}") String clientHeader,
+            @Value("${de.n26.challenge.admission.concurrency.initial}") int initialLimit,
+            @Value("${de.n26.challenge.admission.concurrency.min}") int minLimit,
+            @Value("${de.n26.challenge.admission.concurrency.max}") int maxLimit,
+            @Value("${de.n26.challenge.admission.concurrency.target-latency-millis}") long targetLatencyMillis) {
+        return new AdmissionFilter(
+                new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, targetLatencyMillis),
+                clientRate,
+                clientBurst,
+                rejectCost,
+                maxClients,
+                clientHeader);
+    }
+
+    @Bean
+    public FilterRegistrationBean admissionFilterRegistration(AdmissionFilter admissionFilter) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(admissionFilter);
+        registration.addUrlPatterns("/transactions");
+        return registration;
+    }
+}
@@ -0,0 +1,179 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.util.AdaptiveConcurrencyLimit;
+import de.n26.challenge.util.RateLimitedLogger;
+import de.n26.challenge.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission layer to shed excessive ingest traffic before JSON binding, validation
+ * and statistics buffer are involved.
+ *
+ * Each client has its own token bucket. Clients are identified by remote address or, behind a trusted proxy,
+ * by the configured header the proxy sets: a header supplied by the client itself would let it
+ * get a fresh bucket with each request. Rejected transactions (outdated, in the future or invalid)
+ * are charged additional tokens so clients flooding with bad data are throttled by
+ * the cheap bucket check on the next requests. Requests over the client rate get HTTP status 429.
+ *
+ * Number of buckets is bounded: when the limit is reached buckets refilled up to the capacity
+ * (no different from new ones) are evicted, clients beyond the limit share a single overflow bucket
+ * until then, so a flood of new clients can't reset buckets and penalties of the known ones.
+ *
+ * Total number of requests in flight is limited by {@link AdaptiveConcurrencyLimit},
+ * requests over the limit get HTTP status 503.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class AdmissionFilter extends OncePerRequestFilter implements PublicMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final long REJECT_LOG_RATE = 10L;
+    private static final long EVICTION_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflowBucket;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final RateLimitedLogger rejectLogger = new RateLimitedLogger(logger, REJECT_LOG_RATE);
+    private final long clientRate;
+    private final long clientBurst;
+    private final long rejectCost;
+    private final int maxClients;
+    private final String clientHeader;
+
+    private final AtomicLong nextEviction = new AtomicLong(System.nanoTime());
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong concurrencyLimited = new AtomicLong();
+
+    public AdmissionFilter(AdaptiveConcurrencyLimit concurrencyLimit,
+                           long clientRate,
+                           long clientBurst,
+                           long rejectCost,
+                           int maxClients) {
+        this(concurrencyLimit, clientRate, clientBurst, rejectCost, maxClients, null);
+    }
+
+    public AdmissionFilter(AdaptiveConcurrencyLimit concurrencyLimit,
+                           long clientRate,
+                           long clientBurst,
+                           long rejectCost,
+                           int maxClients,
+                           String clientHeader) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.clientRate = clientRate;
+        this.clientBurst = clientBurst;
+        this.rejectCost = rejectCost;
+        this.maxClients = maxClients;
+        this.clientHeader = clientHeader == null || clientHeader.isEmpty() ? null : clientHeader;
+        this.overflowBucket = new TokenBucket(clientBurst, clientRate);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String clientId = clientId(request);
+        TokenBucket bucket = bucket(clientId);
+
+        if(!bucket.tryAcquire()) {
+            rateLimited.incrementAndGet();
+            rejectLogger.error("Client is over the rate limit: {}", clientId);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS);
+            return;
+        }
+
+        if(!concurrencyLimit.tryAcquire()) {
+            concurrencyLimited.incrementAndGet();
+            rejectLogger.error("Concurrency limit is reached, request is rejected: {}", clientId);
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long now = System.nanoTime();
+            concurrencyLimit.release(now - start, now);
+
+            if(isRejectedTransaction(response.getStatus())) {
+                bucket.penalize(rejectCost);
+            }
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("admission.clients", buckets.size()),
+                new Metric<>("admission.clients.overflowed", overflowed.get()),
+                new Metric<>("admission.concurrency.limit", concurrencyLimit.getLimit()),
+                new Metric<>("admission.concurrency.inflight", concurrencyLimit.getInFlight()),
+                new Metric<>("admission.rejected.rate", rateLimited.get()),
+                new Metric<>("admission.rejected.concurrency", concurrencyLimited.get()));
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String clientId = clientHeader != null ? request.getHeader(clientHeader) : null;
+
+        return clientId != null ? clientId : request.getRemoteAddr();
+    }
+
+    private TokenBucket bucket(String clientId) {
+        TokenBucket bucket = buckets.get(clientId);
+
+        if(bucket != null) {
+            return bucket;
+        }
+
+        if(buckets.size() >= maxClients) {
+            evictFull();
+
+            // Limit is not strict under concurrent registrations
+            if(buckets.size() >= maxClients) {
+                overflowed.incrementAndGet();
+                return overflowBucket;
+            }
+        }
+
+        return buckets.computeIfAbsent(clientId, id -> new TokenBucket(clientBurst, clientRate));
+    }
+
+    // Full buckets carry no state, scan is done by a single thread at most once per interval
+    private void evictFull() {
+        long now = System.nanoTime();
+        long next = nextEviction.get();
+
+        if(now - next >= 0L && nextEviction.compareAndSet(next, now + EVICTION_INTERVAL_NANOS)) {
+            buckets.values().removeIf(TokenBucket::isFull);
+        }
+    }
+
+    private boolean isRejectedTransaction(int status) {
+        return status == HttpStatus.BAD_REQUEST.value() || status == HttpStatus.NO_CONTENT.value();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+    }
+}
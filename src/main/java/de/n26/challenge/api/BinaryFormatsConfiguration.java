@@ -0,0 +1,33 @@
+package de.n26.challenge.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Registers message converters of Smile and CBOR (see {@link BinaryMediaTypes}), so clients can trade
+ * JSON text encoding for a binary one by Content-Type and Accept headers. Object mappers are configured
+ * the same way as the JSON one.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Configuration
+public class BinaryFormatsConfiguration {
+
+    @Bean
+    public JacksonBinaryHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper objectMapper = new ObjectMapper(new SmileFactory());
+        builder.configure(objectMapper);
+        return new JacksonBinaryHttpMessageConverter(objectMapper, BinaryMediaTypes.APPLICATION_SMILE);
+    }
+
+    @Bean
+    public JacksonBinaryHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper objectMapper = new ObjectMapper(new CBORFactory());
+        builder.configure(objectMapper);
+        return new JacksonBinaryHttpMessageConverter(objectMapper, BinaryMediaTypes.APPLICATION_CBOR);
+    }
+}
@@ -0,0 +1,58 @@
+package de.n26.challenge.api;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Binary Jackson data formats supported along with JSON and negotiation of the response format.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public final class BinaryMediaTypes {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+    public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+    // In order of preference if client accepts several equally
+    private static final MediaType[] PRODUCIBLE = {MediaType.APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR};
+
+    private BinaryMediaTypes() {
+    }
+
+    /**
+     * Chooses response format by Accept header. Header is parsed only if it mentions a binary format,
+     * so JSON requests cost nothing extra.
+     *
+     * @param accept Accept header value, might be null
+     * @return binary media type the client prefers or null if JSON is preferred (or nothing matches)
+     */
+    public static MediaType negotiate(String accept) {
+        if(accept == null || (!accept.contains(APPLICATION_SMILE.getSubtype())
+                && !accept.contains(APPLICATION_CBOR.getSubtype()))) {
+            return null;
+        }
+
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return null;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+
+        for(MediaType acceptedType : accepted) {
+            for(MediaType producible : PRODUCIBLE) {
+                if(acceptedType.includes(producible)) {
+                    return producible == MediaType.APPLICATION_JSON ? null : producible;
+                }
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.PeerAggregator;
+import de.n26.challenge.business.StatisticsBuffer;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+
+/**
+ * Cluster controller to expose API for multi-node aggregation.
+ *
+ * A {@link #getPartials() getPartials} method returns per second partial aggregates
+ * of the node in compact binary format (see {@link de.n26.challenge.business.StatisticPartials}).
+ *
+ * A {@link #getGlobalStatistics() getGlobalStatistics} method returns the statistic for
+ * a period merged over the node and its peers. Available in aggregator mode only,
+ * otherwise HTTP status 404 is returned.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RestController
+public class ClusterController {
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final CurrentTimeFactory currentTimeFactory;
+    private final PeerAggregator peerAggregator;
+
+    @Autowired
+    public ClusterController(StatisticsBuffer<Statistics> statisticsBuffer,
+                             CurrentTimeFactory currentTimeFactory,
+                             Optional<PeerAggregator> peerAggregator) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.currentTimeFactory = currentTimeFactory;
+        this.peerAggregator = peerAggregator.orElse(null);
+    }
+
+    @RequestMapping(path = PeerAggregator.PARTIALS_PATH, method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    byte[] getPartials() {
+        return statisticsBuffer
+                .partials(currentTimeFactory.now())
+                .encode();
+    }
+
+    @RequestMapping(path = "/statistics/global", method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<Statistics> getGlobalStatistics() {
+        if(peerAggregator == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(peerAggregator.aggregate(currentTimeFactory.now()));
+    }
+}
@@ -0,0 +1,60 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.util.VirtualThreads;
+import org.apache.coyote.AbstractProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in execution mode to handle requests on virtual threads instead of the fixed Tomcat worker pool.
+ * Enabled with {@code de.n26.challenge.executor.virtual-threads=true} and takes effect only when
+ * application runs on Java 21 or later, otherwise the platform thread pool is kept.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Configuration
+@ConditionalOnProperty(name = "de.n26.challenge.executor.virtual-threads", havingValue = "true")
+public class ExecutorConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorConfiguration.class);
+
+    private ExecutorService executor;
+
+    @Bean
+    public EmbeddedServletContainerCustomizer virtualThreadsCustomizer() {
+        return container -> {
+            if(!VirtualThreads.isSupported()) {
+                logger.warn("Virtual threads are not supported by Java {}, platform thread pool is used",
+                        System.getProperty("java.version"));
+                return;
+            }
+
+            if(container instanceof TomcatEmbeddedServletContainerFactory) {
+                executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+                ((TomcatEmbeddedServletContainerFactory) container).addConnectorCustomizers(connector -> {
+                    if(connector.getProtocolHandler() instanceof AbstractProtocol) {
+                        ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(executor);
+                    }
+                });
+
+                logger.info("Requests are handled on virtual threads");
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(executor != null) {
+            executor.shutdown();
+        }
+    }
+}
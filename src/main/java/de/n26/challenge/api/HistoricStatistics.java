@@ -0,0 +1,64 @@
+package de.n26.challenge.api;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * DTO to store archived statistics data of a single second.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class HistoricStatistics implements Serializable {
+
+    private static final long serialVersionUID = 3528190471652348813L;
+
+    private long timestamp;
+    private Statistics statistics;
+
+    public HistoricStatistics() {
+    }
+
+    public HistoricStatistics(long timestamp, Statistics statistics) {
+        this.timestamp = timestamp;
+        this.statistics = statistics;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HistoricStatistics that = (HistoricStatistics) o;
+        return Objects.equals(timestamp, that.timestamp) &&
+                Objects.equals(statistics, that.statistics);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, statistics);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("HistoricStatistics{");
+        sb.append("timestamp=").append(timestamp);
+        sb.append(", statistics=").append(statistics);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.SecondArchive;
+import de.n26.challenge.business.StatisticPartials;
+import de.n26.challenge.business.StatisticsCollector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * History controller to expose archived per second statistics.
+ *
+ * A {@link #getHistory(long, long) getHistory} method returns statistics of every archived
+ * second having transactions within the time range (both bounds in milliseconds, inclusive).
+ * If the range is inverted or longer than allowed HTTP status 400 is returned.
+ * If the archive is disabled HTTP status 404 is returned.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RestController
+public class HistoryController {
+
+    private final SecondArchive secondArchive;
+    private final StatisticsCollector<Statistics> collector;
+    private final long maxQuerySeconds;
+
+    @Autowired
+    public HistoryController(Optional<SecondArchive> secondArchive,
+                             StatisticsCollector<Statistics> collector,
+                             @Value("${de.n26.challenge.archive.max-query-seconds}") long maxQuerySeconds) {
+        this.secondArchive = secondArchive.orElse(null);
+        this.collector = collector;
+        this.maxQuerySeconds = maxQuerySeconds;
+    }
+
+    @RequestMapping(path = "/statistics/history", method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<List<HistoricStatistics>> getHistory(@RequestParam("from") long from,
+                                                        @RequestParam("to") long to) {
+        if(secondArchive == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        long fromSec = from / 1000;
+        long toSec = to / 1000;
+
+        if(from < 0 || fromSec > toSec || toSec - fromSec >= maxQuerySeconds) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StatisticPartials partials = secondArchive.query(fromSec, toSec);
+
+        List<HistoricStatistics> history = new ArrayList<>(partials.size());
+        for(int i = 0; i < partials.size(); i++) {
+            history.add(new HistoricStatistics(
+                    partials.getSecond(i) * 1000,
+                    collector.collectStatistics(
+                            partials.getSum(i),
+                            partials.getCount(i),
+                            partials.getMin(i),
+                            partials.getMax(i))));
+        }
+
+        return ResponseEntity.ok(history);
+    }
+}
@@ -0,0 +1,64 @@
+package de.n26.challenge.api;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * DTO to store an individual transaction amount with the second it was made at.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class LargeTransaction implements Serializable {
+
+    private static final long serialVersionUID = 2251697014532874620L;
+
+    private double amount;
+    private long timestamp;
+
+    public LargeTransaction() {
+    }
+
+    public LargeTransaction(double amount, long timestamp) {
+        this.amount = amount;
+        this.timestamp = timestamp;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LargeTransaction that = (LargeTransaction) o;
+        return Objects.equals(amount, that.amount) &&
+                Objects.equals(timestamp, that.timestamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(amount, timestamp);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("LargeTransaction{");
+        sb.append("amount=").append(amount);
+        sb.append(", timestamp=").append(timestamp);
+        sb.append('}');
+        return sb.toString();
+    }
+}
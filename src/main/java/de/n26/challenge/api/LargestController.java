@@ -0,0 +1,67 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.LargestAmounts;
+import de.n26.challenge.business.StatisticsBuffer;
+import de.n26.challenge.util.AmountConverter;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest controller to expose the largest individual transactions of the period for risk analysis.
+ *
+ * A {@link #getLargest(int) getLargest} method returns up to {@code n} largest transactions
+ * in descending order of amounts with the second (in milliseconds) they were made at.
+ * Number of transactions is limited by the capacity of the per second heaps of the buffer.
+ * If {@code n} is not positive HTTP status 400 is returned.
+ * If the heaps are disabled HTTP status 404 is returned.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RestController
+public class LargestController {
+
+    private static final String DEFAULT_NUMBER = "10";
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final CurrentTimeFactory currentTimeFactory;
+
+    @Autowired
+    public LargestController(StatisticsBuffer<Statistics> statisticsBuffer, CurrentTimeFactory currentTimeFactory) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.currentTimeFactory = currentTimeFactory;
+    }
+
+    @RequestMapping(path = "/statistics/largest", method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<List<LargeTransaction>> getLargest(
+            @RequestParam(name = "n", defaultValue = DEFAULT_NUMBER) int n) {
+
+        if(statisticsBuffer.getLargestCapacity() == 0) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if(n <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        LargestAmounts largest = statisticsBuffer.largest(currentTimeFactory.now(), n);
+
+        List<LargeTransaction> transactions = new ArrayList<>(largest.size());
+        for(int i = 0; i < largest.size(); i++) {
+            transactions.add(new LargeTransaction(
+                    AmountConverter.toBigDecimalValue(largest.getAmount(i)).doubleValue(),
+                    largest.getSecond(i) * 1000));
+        }
+
+        return ResponseEntity.ok(transactions);
+    }
+}
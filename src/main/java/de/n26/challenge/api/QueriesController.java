@@ -0,0 +1,125 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.StandingQueries;
+import de.n26.challenge.business.StatisticsCollector;
+import de.n26.challenge.util.AmountConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Queries controller to push state transitions of a standing threshold query instead of polling statistics.
+ *
+ * A {@link #register(String, String, double, Integer) register} method registers a query
+ * (e.g. metric=count, comparator=gt, threshold=1000, window=10) evaluated at each second boundary
+ * and opens a server-sent events stream. An event named triggered or cleared with the statistics
+ * of the query window is sent when the condition starts or stops to hold. Window is the number of
+ * the most recent seconds, the whole period by default. The query is removed when the stream is closed.
+ * If the query is not valid HTTP status 400 is returned.
+ * If too many queries are registered HTTP status 503 is returned.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RestController
+public class QueriesController {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueriesController.class);
+
+    static final String TRIGGERED_EVENT = "triggered";
+    static final String CLEARED_EVENT = "cleared";
+
+    private final StandingQueries standingQueries;
+    private final StatisticsCollector<Statistics> collector;
+    private final long timeoutMillis;
+
+    @Autowired
+    public QueriesController(StandingQueries standingQueries,
+                             StatisticsCollector<Statistics> collector,
+                             @Value("${de.n26.challenge.queries.timeout-millis}") long timeoutMillis) {
+        this.standingQueries = standingQueries;
+        this.collector = collector;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @RequestMapping(path = "/statistics/queries", method = RequestMethod.GET,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<SseEmitter> register(@RequestParam("metric") String metric,
+                                        @RequestParam("comparator") String comparator,
+                                        @RequestParam("threshold") double threshold,
+                                        @RequestParam(name = "window", required = false) Integer window) {
+
+        StandingQueries.Measure measure = parse(StandingQueries.Measure.class, metric);
+        StandingQueries.Comparator comparison = parse(StandingQueries.Comparator.class, comparator);
+        int windowSeconds = window == null ? standingQueries.getPeriod() : window;
+
+        if(measure == null || comparison == null || Double.isNaN(threshold) || Double.isInfinite(threshold)
+                || windowSeconds <= 0 || windowSeconds > standingQueries.getPeriod()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        long longThreshold;
+        if(measure == StandingQueries.Measure.COUNT) {
+            // Fractional count threshold would change the meaning of the inclusive comparators
+            if(threshold != Math.rint(threshold)) {
+                return ResponseEntity.badRequest().build();
+            }
+            longThreshold = (long) threshold;
+        } else {
+            try {
+                longThreshold = AmountConverter.toLongValue(threshold);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+
+        long id = standingQueries.register(measure, comparison, longThreshold, windowSeconds,
+                (queryId, triggered, second, sum, count, min, max) -> send(emitter, queryId, triggered,
+                        new QueryTransition(queryId, triggered, second * 1000,
+                                count == 0L
+                                        ? collector.emptyStatistics()
+                                        : collector.collectStatistics(sum, count, min, max))));
+
+        if(id < 0L) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        emitter.onCompletion(() -> standingQueries.unregister(id));
+        emitter.onTimeout(() -> standingQueries.unregister(id));
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void send(SseEmitter emitter, long id, boolean triggered, QueryTransition transition) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(triggered ? TRIGGERED_EVENT : CLEARED_EVENT)
+                    .data(transition, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException ex) {
+            // Client has gone away, emitter is completed with error by itself
+            logger.debug("Query {} stream is closed: {}", id, ex.toString());
+            standingQueries.unregister(id);
+        }
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
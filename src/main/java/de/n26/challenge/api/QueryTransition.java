@@ -0,0 +1,88 @@
+package de.n26.challenge.api;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * DTO to store state transition of a standing query with statistics of its window.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class QueryTransition implements Serializable {
+
+    private static final long serialVersionUID = -6120835468913372581L;
+
+    private long id;
+    private boolean triggered;
+    private long timestamp;
+    private Statistics statistics;
+
+    public QueryTransition() {
+    }
+
+    public QueryTransition(long id, boolean triggered, long timestamp, Statistics statistics) {
+        this.id = id;
+        this.triggered = triggered;
+        this.timestamp = timestamp;
+        this.statistics = statistics;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public boolean isTriggered() {
+        return triggered;
+    }
+
+    public void setTriggered(boolean triggered) {
+        this.triggered = triggered;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueryTransition that = (QueryTransition) o;
+        return Objects.equals(id, that.id) &&
+                Objects.equals(triggered, that.triggered) &&
+                Objects.equals(timestamp, that.timestamp) &&
+                Objects.equals(statistics, that.statistics);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, triggered, timestamp, statistics);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("QueryTransition{");
+        sb.append("id=").append(id);
+        sb.append(", triggered=").append(triggered);
+        sb.append(", timestamp=").append(timestamp);
+        sb.append(", statistics=").append(statistics);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package de.n26.challenge.api;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * DTO to store transaction rate.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class Rate implements Serializable {
+
+    private static final long serialVersionUID = 6407283905813762934L;
+
+    private double transactionsPerSecond;
+    private double amountPerSecond;
+
+    public Rate() {
+    }
+
+    public Rate(double transactionsPerSecond, double amountPerSecond) {
+        this.transactionsPerSecond = transactionsPerSecond;
+        this.amountPerSecond = amountPerSecond;
+    }
+
+    public double getTransactionsPerSecond() {
+        return transactionsPerSecond;
+    }
+
+    public void setTransactionsPerSecond(double transactionsPerSecond) {
+        this.transactionsPerSecond = transactionsPerSecond;
+    }
+
+    public double getAmountPerSecond() {
+        return amountPerSecond;
+    }
+
+    public void setAmountPerSecond(double amountPerSecond) {
+        this.amountPerSecond = amountPerSecond;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Rate that = (Rate) o;
+        return Objects.equals(transactionsPerSecond, that.transactionsPerSecond) &&
+                Objects.equals(amountPerSecond, that.amountPerSecond);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(transactionsPerSecond, amountPerSecond);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("Rate{");
+        sb.append("transactionsPerSecond=").append(transactionsPerSecond);
+        sb.append(", amountPerSecond=").append(amountPerSecond);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package de.n26.challenge.api;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * DTO to store transaction rate of the last closed second and its moving averages by horizon (e.g. '5m').
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class Rates implements Serializable {
+
+    private static final long serialVersionUID = -2317540951367004127L;
+
+    private long timestamp;
+    private Rate current;
+    private Map<String, Rate> averages = new LinkedHashMap<>();
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Rate getCurrent() {
+        return current;
+    }
+
+    public void setCurrent(Rate current) {
+        this.current = current;
+    }
+
+    public Map<String, Rate> getAverages() {
+        return averages;
+    }
+
+    public void setAverages(Map<String, Rate> averages) {
+        this.averages = averages;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Rates that = (Rates) o;
+        return Objects.equals(timestamp, that.timestamp) &&
+                Objects.equals(current, that.current) &&
+                Objects.equals(averages, that.averages);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, current, averages);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("Rates{");
+        sb.append("timestamp=").append(timestamp);
+        sb.append(", current=").append(current);
+        sb.append(", averages=").append(averages);
+        sb.append('}');
+        return sb.toString();
+    }
+}
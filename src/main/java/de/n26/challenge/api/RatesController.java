@@ -0,0 +1,49 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.TransactionRates;
+import de.n26.challenge.util.AmountConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Rates controller to expose smoothed transaction rates for alerting.
+ *
+ * A {@link #getRates() getRates} method returns number of transactions and amount per second
+ * of the last closed second and their exponentially weighted moving averages over 1, 5 and 15 minutes.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RestController
+public class RatesController {
+
+    private static final String MINUTES_SUFFIX = "m";
+
+    private final TransactionRates transactionRates;
+
+    @Autowired
+    public RatesController(TransactionRates transactionRates) {
+        this.transactionRates = transactionRates;
+    }
+
+    @RequestMapping(path = "/statistics/rates", method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    Rates getRates() {
+        TransactionRates.Rates current = transactionRates.getRates();
+
+        Rates rates = new Rates();
+        rates.setTimestamp(current.getSecond() * 1000);
+        rates.setCurrent(new Rate(current.getCount(), AmountConverter.toDoubleValue(current.getAmount())));
+
+        int[] horizons = TransactionRates.getHorizonsMinutes();
+        for(int i = 0; i < horizons.length; i++) {
+            rates.getAverages().put(horizons[i] + MINUTES_SUFFIX, new Rate(
+                    current.getCountAverage(i),
+                    AmountConverter.toDoubleValue(current.getAmountAverage(i))));
+        }
+
+        return rates;
+    }
+}
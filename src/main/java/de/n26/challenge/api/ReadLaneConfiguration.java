@@ -0,0 +1,55 @@
+package de.n26.challenge.api;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Isolated read lane: additional connector with its own worker pool to serve
+ * statistics reads, so ingest bursts on the main connector can't delay them.
+ * Enabled by setting {@code de.n26.challenge.read-lane.port}.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Configuration
+@ConditionalOnProperty(name = "de.n26.challenge.read-lane.port")
+public class ReadLaneConfiguration {
+
+    @Value("${de.n26.challenge.read-lane.port}")
+    private int port;
+
+    @Value("${de.n26.challenge.read-lane.threads}")
+    private int threads;
+
+    @Bean
+    public EmbeddedServletContainerCustomizer readLaneCustomizer() {
+        return container -> {
+            if(container instanceof TomcatEmbeddedServletContainerFactory) {
+                Connector connector = new Connector(TomcatEmbeddedServletContainerFactory.DEFAULT_PROTOCOL);
+                connector.setPort(port);
+
+                // Each connector owns its worker pool unless shared executor is configured
+                if(connector.getProtocolHandler() instanceof AbstractProtocol) {
+                    AbstractProtocol<?> protocol = (AbstractProtocol<?>) connector.getProtocolHandler();
+                    protocol.setMaxThreads(threads);
+                    protocol.setMinSpareThreads(threads);
+                }
+
+                ((TomcatEmbeddedServletContainerFactory) container).addAdditionalTomcatConnectors(connector);
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean readLaneFilterRegistration() {
+        FilterRegistrationBean registration = new FilterRegistrationBean(new ReadLaneFilter(port));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
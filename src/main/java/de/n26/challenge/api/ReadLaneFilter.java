@@ -0,0 +1,52 @@
+package de.n26.challenge.api;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the read lane connector for dashboard statistics reads only: the current statistics,
+ * the largest transactions and the rates, all answered from memory without blocking.
+ * Any other request arriving at the read lane port gets HTTP status 404 (paths are matched exactly),
+ * so neither ingest nor archive scans, peer fan-out or long-lived event streams can occupy
+ * the read lane worker threads.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class ReadLaneFilter extends OncePerRequestFilter {
+
+    private static final Set<String> READ_PATHS = new HashSet<>(Arrays.asList(
+            "/statistics", "/statistics/largest", "/statistics/rates"));
+
+    private final int readLanePort;
+
+    public ReadLaneFilter(int readLanePort) {
+        this.readLanePort = readLanePort;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if(request.getLocalPort() == readLanePort && !isRead(request)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod())
+                && READ_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+}
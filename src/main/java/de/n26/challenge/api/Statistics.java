@@ -1,5 +1,7 @@
 package de.n26.challenge.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.io.Serializable;
 import java.util.Objects;
 
@@ -20,6 +22,10 @@ public class Statistics implements Serializable {
     private double min;
     private long count;
 
+    // Estimated number of distinct accounts, only if counted
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long distinct;
+
     public double getSum() {
         return sum;
     }
@@ -60,6 +66,14 @@ public class Statistics implements Serializable {
         this.count = count;
     }
 
+    public Long getDistinct() {
+        return distinct;
+    }
+
+    public void setDistinct(Long distinct) {
+        this.distinct = distinct;
+    }
+
     // Fluent build
     public static Statistics build() {
         return new Statistics();
@@ -90,6 +104,11 @@ public class Statistics implements Serializable {
         return this;
     }
 
+    public Statistics distinct(long distinct) {
+        this.distinct = distinct;
+        return this;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -99,12 +118,13 @@ public class Statistics implements Serializable {
                 Objects.equals(avg, that.avg) &&
                 Objects.equals(max, that.max) &&
                 Objects.equals(min, that.min) &&
-                Objects.equals(count, that.count);
+                Objects.equals(count, that.count) &&
+                Objects.equals(distinct, that.distinct);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sum, avg, max, min, count);
+        return Objects.hash(sum, avg, max, min, count, distinct);
     }
 
     @Override
@@ -115,6 +135,9 @@ public class Statistics implements Serializable {
         sb.append(", max=").append(max);
         sb.append(", min=").append(min);
         sb.append(", count=").append(count);
+        if(distinct != null) {
+            sb.append(", distinct=").append(distinct);
+        }
         sb.append('}');
         return sb.toString();
     }
@@ -1,23 +1,34 @@
 package de.n26.challenge.api;
 
+import de.n26.challenge.business.CountWindow;
+import de.n26.challenge.business.DuplicateFilter;
+import de.n26.challenge.business.IngestQueue;
 import de.n26.challenge.business.StatisticsBuffer;
 import de.n26.challenge.util.AmountConverter;
 import de.n26.challenge.util.CurrentTimeFactory;
 import de.n26.challenge.util.DefaultUriBuilder;
+import de.n26.challenge.util.RateLimitedLogger;
 import de.n26.challenge.util.UriBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
+import java.util.Optional;
 
 /**
  * Statistics controller to expose API.
@@ -30,14 +41,29 @@ import java.net.URI;
  * 400 with empty body is returned.
  * If statistics updates successfully based on transaction data
  * HTTP status 201 with empty body is returned.
+ * If transaction has an id and duplicate filter is enabled (see {@link DuplicateFilter})
+ * transaction already applied is skipped and HTTP status 200 with empty body is returned.
+ * In asynchronous ingest mode (see {@link IngestQueue}) valid transaction is enqueued
+ * and HTTP status 202 with empty body is returned, if the queue is full HTTP status 503
+ * with Retry-After header is returned. If enabled, rejected transactions are recorded
+ * as flight recorder events (see {@link TransactionRejectEvent}).
  *
  * Time boundaries:
  * if current time is 12:00:00.SSS then statistics for all
  * transactions from 11:59:01.000 to 12:00:00.999 will be
  * returned.
  *
- * A {@link #getStatistics() getStatistics} method
- * returns the statistic for a period.
+ * A {@link #getStatistics(String, String, String, HttpServletResponse) getStatistics} method
+ * returns the statistic for a period. Optional {@code last} parameter (e.g. {@code 15s})
+ * limits it to the most recent seconds of the period, if it is not a positive number of seconds
+ * HTTP status 400 is returned. Optional {@code lastN} parameter (e.g. {@code 10000}) returns
+ * the statistic of the last transactions regardless of time instead (see {@link CountWindow}),
+ * if it is not a positive number or is combined with {@code last} HTTP status 400 is returned,
+ * if the count window is disabled - 404. The statistic is streamed by a pooled
+ * {@link StatisticsJsonWriter} without creating objects per request.
+ *
+ * Both methods accept binary Smile and CBOR bodies along with JSON (see {@link BinaryMediaTypes}),
+ * statistics are returned in a binary format only if the client prefers it by Accept header.
  *
  * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
  */
@@ -46,42 +72,166 @@ public class StatisticsController {
 
     private static final Logger logger = LoggerFactory.getLogger(StatisticsController.class);
 
+    // Log rejected transactions sparingly as clients might flood with them
+    private static final RateLimitedLogger rejectLogger = new RateLimitedLogger(logger, 10L);
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String SECONDS_SUFFIX = "s";
+    private static final int MAX_DIGITS = 9;
+
+    // Writers are reused so reads don't create objects, a writer is held only while a response is written
+    private static final StatisticsJsonWriterPool jsonWriters =
+            new StatisticsJsonWriterPool(2 * Runtime.getRuntime().availableProcessors());
+
     private final int period;
     private final StatisticsBuffer<Statistics> statisticsBuffer;
     private final CurrentTimeFactory currentTimeFactory;
     private final UriBuilder uriBuilder;
+    private final IngestQueue ingestQueue;
+    private final DuplicateFilter duplicateFilter;
+    private final CountWindow<Statistics> countWindow;
+    private boolean eventsEnabled;
 
     @Autowired
     public StatisticsController(StatisticsBuffer<Statistics> statisticsBuffer,
                                 CurrentTimeFactory currentTimeFactory,
+                                Optional<IngestQueue> ingestQueue,
+                                Optional<DuplicateFilter> duplicateFilter,
+                                CountWindow<Statistics> countWindow,
                                 @Value("${de.n26.challenge.period}") int period) {
-        this(statisticsBuffer, currentTimeFactory, period, new DefaultUriBuilder());
+        this(statisticsBuffer, currentTimeFactory, period, new DefaultUriBuilder(),
+                ingestQueue.orElse(null), duplicateFilter.orElse(null), countWindow);
     }
 
     public StatisticsController(StatisticsBuffer<Statistics> statisticsBuffer,
                                 CurrentTimeFactory currentTimeFactory,
                                 int period,
-                                UriBuilder uriBuilder
+                                UriBuilder uriBuilder,
+                                IngestQueue ingestQueue,
+                                DuplicateFilter duplicateFilter,
+                                CountWindow<Statistics> countWindow
                                 ) {
         this.statisticsBuffer = statisticsBuffer;
         this.currentTimeFactory = currentTimeFactory;
         this.period = period;
         this.uriBuilder = uriBuilder;
+        this.ingestQueue = ingestQueue;
+        this.duplicateFilter = duplicateFilter;
+        this.countWindow = countWindow;
+    }
+
+    /**
+     * Enables flight recorder events, they are recorded only if enabled in the recording settings too.
+     *
+     * @param eventsEnabled whether to emit flight recorder events
+     */
+    @Autowired
+    public void setEventsEnabled(@Value("${de.n26.challenge.jfr.enabled}") boolean eventsEnabled) {
+        this.eventsEnabled = eventsEnabled;
     }
 
     @RequestMapping(path = "/statistics", method = RequestMethod.GET,
-            produces = MediaType.APPLICATION_JSON_VALUE)
-    Statistics getStatistics() {
+            produces = {MediaType.APPLICATION_JSON_VALUE,
+                    BinaryMediaTypes.APPLICATION_SMILE_VALUE,
+                    BinaryMediaTypes.APPLICATION_CBOR_VALUE})
+    ResponseEntity<Statistics> getStatistics(@RequestParam(name = "last", required = false) String last,
+                                             @RequestParam(name = "lastN", required = false) String lastN,
+                                             @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                             HttpServletResponse response) throws IOException {
 
-        Statistics statistics = statisticsBuffer.calculate(currentTimeFactory.now());
+        if(lastN != null) {
+            return getCountStatistics(last, lastN, accept, response);
+        }
 
-        logger.debug("Statistics calculated: {}", statistics);
+        // Whole period if not limited
+        int lastSeconds = 0;
 
-        return statistics;
+        if(last != null) {
+            lastSeconds = parseNumber(last, SECONDS_SUFFIX);
+
+            if(lastSeconds <= 0) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return null;
+            }
+
+            lastSeconds = Math.min(lastSeconds, period);
+        }
+
+        MediaType binaryType = BinaryMediaTypes.negotiate(accept);
+        if(binaryType != null) {
+            // Written by the message converter of the format
+            return ResponseEntity.ok()
+                    .contentType(binaryType)
+                    .body(lastSeconds == 0
+                            ? statisticsBuffer.calculate(currentTimeFactory.now())
+                            : statisticsBuffer.calculate(currentTimeFactory.now(), lastSeconds));
+        }
+
+        StatisticsJsonWriter writer = jsonWriters.borrow();
+        try {
+            if(lastSeconds == 0) {
+                statisticsBuffer.calculate(currentTimeFactory.now(), writer);
+            } else {
+                statisticsBuffer.calculate(currentTimeFactory.now(), lastSeconds, writer);
+            }
+
+            return write(writer, response);
+        } finally {
+            jsonWriters.release(writer);
+        }
+    }
+
+    // Statistics of the last transactions from the count window
+    private ResponseEntity<Statistics> getCountStatistics(String last, String lastN, String accept,
+                                                          HttpServletResponse response) throws IOException {
+
+        if(countWindow == null || countWindow.getCapacity() == 0) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+
+        int lastTransactions = parseNumber(lastN, "");
+
+        if(last != null || lastTransactions <= 0) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return null;
+        }
+
+        MediaType binaryType = BinaryMediaTypes.negotiate(accept);
+        if(binaryType != null) {
+            return ResponseEntity.ok()
+                    .contentType(binaryType)
+                    .body(countWindow.calculate(lastTransactions));
+        }
+
+        StatisticsJsonWriter writer = jsonWriters.borrow();
+        try {
+            countWindow.calculate(lastTransactions, writer);
+
+            return write(writer, response);
+        } finally {
+            jsonWriters.release(writer);
+        }
+    }
+
+    private static ResponseEntity<Statistics> write(StatisticsJsonWriter writer,
+                                                    HttpServletResponse response) throws IOException {
+        if(logger.isDebugEnabled()) {
+            logger.debug("Statistics calculated: {}", writer);
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(writer.getLength());
+        writer.writeTo(response.getOutputStream());
+
+        // Response is already written
+        return null;
     }
 
     @RequestMapping(path = "/transactions", method = RequestMethod.POST,
-            consumes = MediaType.APPLICATION_JSON_VALUE)
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                    BinaryMediaTypes.APPLICATION_SMILE_VALUE,
+                    BinaryMediaTypes.APPLICATION_CBOR_VALUE})
     ResponseEntity<?> updateStatistics(@RequestBody @Valid Transaction transaction) {
 
         logger.debug("Transaction received: {}", transaction);
@@ -93,13 +243,16 @@ public class StatisticsController {
         // Assuming application system clock is ok return 'Bad Request' HTTP status
         // Also return 'Bad Request' HTTP status in case if transaction parameters validation fails
         if(transactionTimeSec > timestamp || !isValidTransaction(transaction)) {
-            logger.error("Transaction data is not valid: {}", transaction);
+            rejectLogger.error("Transaction data is not valid: {}", transaction);
+            rejected(HttpStatus.BAD_REQUEST, "Transaction data is not valid");
 
             return ResponseEntity.badRequest().build();
         }
 
         // Outdated transaction
         if(timestamp - transactionTimeSec >= period) {
+            rejected(HttpStatus.NO_CONTENT, "Transaction is outdated");
+
             return ResponseEntity.noContent().build();
         }
 
@@ -111,21 +264,77 @@ public class StatisticsController {
         try {
             convertedAmount = AmountConverter.toLongValue(transaction.getAmount());
         } catch (IllegalArgumentException ex) {
-            logger.error("Error while updating statistics", ex);
+            rejectLogger.error("Error while updating statistics: {}", ex.getMessage());
+            rejected(HttpStatus.BAD_REQUEST, "Amount is too big");
 
             return ResponseEntity.badRequest().build();
         }
 
+        long accountHash = StatisticsBuffer.accountHash(transaction.getAccount());
+
+        if(ingestQueue != null) {
+            // Apply backpressure instead of letting request threads pile up
+            // Duplicates are skipped when applied so the rejected transaction might be retried
+            if(!ingestQueue.offer(convertedAmount, transactionTimeSec, transaction.getId(), accountHash)) {
+                rejected(HttpStatus.SERVICE_UNAVAILABLE, "Ingest queue is full");
+
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .build();
+            }
+
+            return ResponseEntity.accepted().build();
+        }
+
+        // Retried transaction
+        if(transaction.getId() != null && duplicateFilter != null
+                && !duplicateFilter.register(transaction.getId(), transactionTimeSec)) {
+            return ResponseEntity.ok().build();
+        }
+
         statisticsBuffer.add(
                 convertedAmount,
+                accountHash,
                 transactionTimeSec,
                 timestamp
         );
 
+        if(countWindow != null) {
+            countWindow.add(convertedAmount);
+        }
+
         URI location = uriBuilder.getUri();
         return ResponseEntity.created(location).build();
     }
 
+    private void rejected(HttpStatus status, String reason) {
+        if(eventsEnabled) {
+            TransactionRejectEvent.record(status.value(), reason);
+        }
+    }
+
+    // Number formatted as digits with optional suffix (e.g. '15s' or '15'), -1 if not valid
+    private static int parseNumber(String value, String suffix) {
+        int length = value.endsWith(suffix) ? value.length() - suffix.length() : value.length();
+
+        if(length == 0 || length > MAX_DIGITS) {
+            return -1;
+        }
+
+        int number = 0;
+        for(int i = 0; i < length; i++) {
+            char digit = value.charAt(i);
+
+            if(digit < '0' || digit > '9') {
+                return -1;
+            }
+
+            number = number * 10 + (digit - '0');
+        }
+
+        return number;
+    }
+
     private boolean isValidTransaction(Transaction transaction) {
         // Timestamp is validated by Spring, double types we have to check manually
         return transaction.getAmount() > 0;
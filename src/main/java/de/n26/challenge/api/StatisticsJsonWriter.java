@@ -0,0 +1,142 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.StatisticsSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes aggregated statistic data as {@link Statistics} JSON into a reusable byte buffer
+ * without creating any object, so a pooled writer serves any number of requests (see {@link StatisticsJsonWriterPool}).
+ *
+ * Amounts are formatted straight from their long representation (see {@link de.n26.challenge.util.AmountConverter})
+ * and average is rounded the same way as by {@link de.n26.challenge.business.DefaultStatisticsCollector},
+ * so the output is numerically equal to the {@link Statistics} serialized by Jackson.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class StatisticsJsonWriter implements StatisticsSink {
+
+    // Five longs with field names fit comfortably
+    private static final int CAPACITY = 256;
+
+    private static final byte[] SUM = ascii("{\"sum\":");
+    private static final byte[] AVG = ascii(",\"avg\":");
+    private static final byte[] MAX = ascii(",\"max\":");
+    private static final byte[] MIN = ascii(",\"min\":");
+    private static final byte[] COUNT = ascii(",\"count\":");
+    private static final byte[] DISTINCT = ascii(",\"distinct\":");
+
+    private static final int CENTS = 100;
+
+    private final byte[] buffer = new byte[CAPACITY];
+    private int length;
+
+    @Override
+    public void accept(long sum, long count, long min, long max) {
+        accept(sum, count, min, max, -1L);
+    }
+
+    /**
+     * Accepts aggregated statistic data, distinct accounts are written only if counted (not negative).
+     */
+    @Override
+    public void accept(long sum, long count, long min, long max, long distinct) {
+        length = 0;
+
+        write(SUM);
+        writeAmount(sum);
+        write(AVG);
+        writeAmount(count == 0L ? 0L : average(sum, count));
+        write(MAX);
+        writeAmount(max);
+        write(MIN);
+        writeAmount(min);
+        write(COUNT);
+        writeLong(count);
+        if(distinct >= 0L) {
+            write(DISTINCT);
+            writeLong(distinct);
+        }
+        buffer[length++] = '}';
+    }
+
+    /**
+     * Writes the last accepted statistic data.
+     *
+     * @param outputStream stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(buffer, 0, length);
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    // Sum is divided keeping the scale of the sum with trailing zeros stripped, rounded half even
+    private static long average(long sum, long count) {
+        long unit = sum % CENTS == 0L ? CENTS : sum % 10L == 0L ? 10L : 1L;
+        long units = sum / unit;
+        long quotient = units / count;
+        long twiceRemainder = 2 * (units % count);
+
+        if(twiceRemainder > count || (twiceRemainder == count && (quotient & 1L) == 1L)) {
+            quotient++;
+        }
+
+        return quotient * unit;
+    }
+
+    // Amount represented as long value, e.g. 12345 is written as 123.45 and 1000 as 10.0
+    private void writeAmount(long amount) {
+        if(amount < 0L) {
+            buffer[length++] = '-';
+            amount = -amount;
+        }
+
+        writeLong(amount / CENTS);
+        buffer[length++] = '.';
+
+        long fraction = amount % CENTS;
+        buffer[length++] = (byte) ('0' + fraction / 10);
+        if(fraction % 10 != 0L) {
+            buffer[length++] = (byte) ('0' + fraction % 10);
+        }
+    }
+
+    private void writeLong(long value) {
+        if(value < 0L) {
+            buffer[length++] = '-';
+        }
+
+        int start = length;
+        do {
+            buffer[length++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while(value != 0L);
+
+        // Digits are written in reverse order
+        for(int i = start, j = length - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    private void write(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
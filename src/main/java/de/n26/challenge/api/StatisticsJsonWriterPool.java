@@ -0,0 +1,74 @@
+package de.n26.challenge.api;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of {@link StatisticsJsonWriter writers} shared by the request threads.
+ * Writers are not bound to a thread, so they are reused with a thread per request executor
+ * (see {@link ExecutorConfiguration}) as well as with a pool of request threads.
+ *
+ * Borrowing and returning take a writer from and put it into a free slot without locking or creating
+ * objects. If all the writers are borrowed a new one is created, and it is dropped on return if there is
+ * no free slot, so the pool never blocks.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class StatisticsJsonWriterPool {
+
+    private final AtomicReferenceArray<StatisticsJsonWriter> writers;
+
+    public StatisticsJsonWriterPool(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        writers = new AtomicReferenceArray<>(capacity);
+        for(int i = 0; i < capacity; i++) {
+            writers.set(i, new StatisticsJsonWriter());
+        }
+    }
+
+    /**
+     * Takes a writer, it has to be {@link #release(StatisticsJsonWriter) released} once written.
+     *
+     * @return writer not used by other threads until it is released
+     */
+    public StatisticsJsonWriter borrow() {
+        for(int i = 0; i < writers.length(); i++) {
+            if(writers.get(i) != null) {
+                StatisticsJsonWriter writer = writers.getAndSet(i, null);
+                if(writer != null) {
+                    return writer;
+                }
+            }
+        }
+
+        return new StatisticsJsonWriter();
+    }
+
+    /**
+     * Returns a borrowed writer to the pool.
+     *
+     * @param writer writer to return, it must not be used after that
+     */
+    public void release(StatisticsJsonWriter writer) {
+        for(int i = 0; i < writers.length(); i++) {
+            if(writers.get(i) == null && writers.compareAndSet(i, null, writer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of writers not borrowed
+     */
+    public int getAvailable() {
+        int available = 0;
+        for(int i = 0; i < writers.length(); i++) {
+            if(writers.get(i) != null) {
+                available++;
+            }
+        }
+        return available;
+    }
+}
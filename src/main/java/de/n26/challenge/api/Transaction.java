@@ -1,6 +1,7 @@
 package de.n26.challenge.api;
 
 import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
 import java.io.Serializable;
 import java.util.Objects;
 
@@ -17,6 +18,14 @@ public class Transaction implements Serializable {
     @Min(0)
     private long timestamp;
 
+    // Optional, used to skip retried transactions
+    @Size(max = 128)
+    private String id;
+
+    // Optional, used to count distinct accounts
+    @Size(max = 128)
+    private String account;
+
     public double getAmount() {
         return amount;
     }
@@ -33,18 +42,36 @@ public class Transaction implements Serializable {
         this.timestamp = timestamp;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Transaction that = (Transaction) o;
         return timestamp == that.timestamp &&
-                Objects.equals(amount, that.amount);
+                Objects.equals(amount, that.amount) &&
+                Objects.equals(id, that.id) &&
+                Objects.equals(account, that.account);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(amount, timestamp);
+        return Objects.hash(amount, timestamp, id, account);
     }
 
     @Override
@@ -52,6 +79,8 @@ public class Transaction implements Serializable {
         final StringBuilder sb = new StringBuilder("Transaction{");
         sb.append("amount=").append(amount);
         sb.append(", timestamp=").append(timestamp);
+        sb.append(", id=").append(id);
+        sb.append(", account=").append(account);
         sb.append('}');
         return sb.toString();
     }
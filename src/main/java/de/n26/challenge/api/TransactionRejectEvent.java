@@ -0,0 +1,37 @@
+package de.n26.challenge.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a transaction rejected by the {@link StatisticsController}.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Name("de.n26.challenge.TransactionReject")
+@Label("Transaction Reject")
+@Category({"Statistics", "Ingest"})
+@Description("Transaction rejected with an error HTTP status")
+@StackTrace(false)
+class TransactionRejectEvent extends Event {
+
+    @Label("Status")
+    int status;
+
+    @Label("Reason")
+    String reason;
+
+    static void record(int status, String reason) {
+        TransactionRejectEvent event = new TransactionRejectEvent();
+
+        if(event.shouldCommit()) {
+            event.status = status;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+}
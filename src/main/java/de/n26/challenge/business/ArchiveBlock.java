@@ -0,0 +1,147 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.util.VarInts;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Compressed block of finalized seconds stored in {@link SecondArchive}.
+ *
+ * Header: magic number, number of records and body length as ints,
+ * lowest and highest second of the block as longs.
+ * Body: first record is stored as is, then seconds are stored as delta-of-delta and
+ * sum, count, min and max as delta to the previous record, all in zigzag variable length encoding.
+ * So a regular stream of one record per second takes one byte for the timestamp
+ * and a few bytes for the values.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+final class ArchiveBlock {
+    static final int MAGIC = 0x4E323641;
+    static final int HEADER_BYTES = 3 * Integer.BYTES + 2 * Long.BYTES;
+
+    private static final int VALUES_PER_RECORD = 5;
+
+    private final int count;
+    private final int bodyLength;
+    private final long minSecond;
+    private final long maxSecond;
+
+    private ArchiveBlock(int count, int bodyLength, long minSecond, long maxSecond) {
+        this.count = count;
+        this.bodyLength = bodyLength;
+        this.minSecond = minSecond;
+        this.maxSecond = maxSecond;
+    }
+
+    /**
+     * Encode records into block.
+     *
+     * @param records records to encode
+     * @return buffer with encoded block ready to be read
+     */
+    static ByteBuffer encode(StatisticPartials records) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + records.size() * VALUES_PER_RECORD * VarInts.MAX_BYTES);
+        // Called on Buffer as the ByteBuffer overrides of JDK 9+ don't exist on Java 8
+        ((Buffer) buffer).position(HEADER_BYTES);
+
+        long minSecond = Long.MAX_VALUE;
+        long maxSecond = Long.MIN_VALUE;
+        long second = 0L, delta = 0L, sum = 0L, count = 0L, min = 0L, max = 0L;
+
+        for(int i = 0; i < records.size(); i++) {
+            long newDelta = records.getSecond(i) - second;
+
+            VarInts.writeSigned(buffer, newDelta - delta);
+            VarInts.writeSigned(buffer, records.getSum(i) - sum);
+            VarInts.writeSigned(buffer, records.getCount(i) - count);
+            VarInts.writeSigned(buffer, records.getMin(i) - min);
+            VarInts.writeSigned(buffer, records.getMax(i) - max);
+
+            // First record delta is the absolute second, it must not be carried over
+            delta = i == 0 ? 0L : newDelta;
+            second = records.getSecond(i);
+            sum = records.getSum(i);
+            count = records.getCount(i);
+            min = records.getMin(i);
+            max = records.getMax(i);
+
+            minSecond = Math.min(minSecond, second);
+            maxSecond = Math.max(maxSecond, second);
+        }
+
+        int bodyLength = buffer.position() - HEADER_BYTES;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(Integer.BYTES, records.size());
+        buffer.putInt(2 * Integer.BYTES, bodyLength);
+        buffer.putLong(3 * Integer.BYTES, minSecond);
+        buffer.putLong(3 * Integer.BYTES + Long.BYTES, maxSecond);
+
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    /**
+     * Read block header.
+     *
+     * @param header buffer positioned at the block header
+     * @return block header or null if it is not a valid block
+     */
+    static ArchiveBlock readHeader(ByteBuffer header) {
+        if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            return null;
+        }
+
+        int count = header.getInt();
+        int bodyLength = header.getInt();
+
+        if(count < 0 || bodyLength < 0) {
+            return null;
+        }
+
+        return new ArchiveBlock(count, bodyLength, header.getLong(), header.getLong());
+    }
+
+    /**
+     * Decode block body and add records within given range to the result.
+     *
+     * @param body buffer positioned at the block body
+     * @param fromSec lowest second to add (inclusive)
+     * @param toSec highest second to add (inclusive)
+     * @param result records to add decoded records to
+     */
+    void decode(ByteBuffer body, long fromSec, long toSec, StatisticPartials result) {
+        long second = 0L, delta = 0L, sum = 0L, count = 0L, min = 0L, max = 0L;
+
+        for(int i = 0; i < this.count; i++) {
+            long newDelta = delta + VarInts.readSigned(body);
+            second += newDelta;
+            sum += VarInts.readSigned(body);
+            count += VarInts.readSigned(body);
+            min += VarInts.readSigned(body);
+            max += VarInts.readSigned(body);
+            delta = i == 0 ? 0L : newDelta;
+
+            if(second >= fromSec && second <= toSec) {
+                result.add(second, sum, count, min, max);
+            }
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getLength() {
+        return HEADER_BYTES + bodyLength;
+    }
+
+    long getMinSecond() {
+        return minSecond;
+    }
+
+    long getMaxSecond() {
+        return maxSecond;
+    }
+}
@@ -0,0 +1,484 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.util.AmountConverter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Offline backfill of per second window statistics from a file of historical transactions,
+ * e.g. to investigate incidents.
+ *
+ * Input is either CSV lines of timestamp in milliseconds and amount (e.g. {@code 1500000000123,12.34})
+ * or binary records of two big-endian longs: timestamp in milliseconds and amount represented as a long value.
+ * File is split into chunks aligned to rows which are mapped with {@link MappedByteBuffer} and parsed in place
+ * (nothing is allocated per row) by fork/join workers. Each worker fills a {@link StatisticData} for the time
+ * range of its chunk, partials are merged by seconds (chunk boundaries might split a second), then statistics
+ * of the window ending at each second are calculated by the {@link StatisticData} indexes.
+ *
+ * File is expected to be ordered by time: rows more than a period out of order within their chunk
+ * are skipped and counted as well as the rows which can't be parsed or have not positive amount.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class Backfill {
+
+    /**
+     * Format of the transactions file.
+     */
+    public enum Format {
+        /**
+         * Lines of timestamp in milliseconds and decimal amount separated by comma.
+         */
+        CSV,
+        /**
+         * Records of timestamp in milliseconds and amount represented as a long value (big-endian longs).
+         */
+        BINARY
+    }
+
+    static final int BINARY_RECORD_BYTES = 16;
+    static final int MAX_SECONDS = 7 * 24 * 3600;
+
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+    private static final int MAX_TIMESTAMP_DIGITS = 18;
+    private static final int MAX_AMOUNT_DIGITS = 16;
+    private static final int ALIGN_BUFFER_BYTES = 4096;
+
+    private final int period;
+    private final int parallelism;
+    private final int chunkBytes;
+
+    /**
+     * @param period window length (seconds)
+     * @param parallelism number of workers
+     * @param chunkBytes approximate size of a chunk parsed by a worker at once
+     */
+    public Backfill(int period, int parallelism, int chunkBytes) {
+
+        assert parallelism > 0;
+        assert chunkBytes >= BINARY_RECORD_BYTES && chunkBytes <= MAX_CHUNK_BYTES;
+
+        this.period = period;
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Calculates window statistics of each second from the first to the last transaction second and
+     * writes them as CSV lines of second, sum, avg, max, min and count.
+     *
+     * @param input transactions file
+     * @param format transactions file format
+     * @param output file to write statistics to
+     * @return summary of the rows processed
+     * @throws IOException if file can't be read or written
+     * @throws IllegalArgumentException if transactions span more than {@value #MAX_SECONDS} seconds
+     */
+    public Summary run(Path input, Format format, Path output) throws IOException {
+        long startNanos = System.nanoTime();
+        List<Partial> partials;
+
+        try(FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel, format);
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                partials = pool.invoke(new ChunkTask(channel, format, chunks, 0, chunks.size()));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        Summary summary = new Summary();
+        long minSec = Long.MAX_VALUE;
+        long maxSec = Long.MIN_VALUE;
+
+        for(Partial partial : partials) {
+            summary.rows += partial.rows;
+            summary.skipped += partial.skipped;
+
+            if(partial.minSec <= partial.maxSec) {
+                minSec = Math.min(minSec, partial.minSec);
+                maxSec = Math.max(maxSec, partial.maxSec);
+            }
+        }
+
+        try(BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if(minSec <= maxSec) {
+                if(maxSec - minSec >= MAX_SECONDS) {
+                    throw new IllegalArgumentException("Transactions span more than " + MAX_SECONDS + " seconds");
+                }
+
+                StatisticData seconds = merge(partials, minSec, (int) (maxSec - minSec + 1));
+                write(seconds, minSec, maxSec, writer);
+                summary.seconds = maxSec - minSec + 1;
+            }
+        }
+
+        summary.nanos = System.nanoTime() - startNanos;
+        return summary;
+    }
+
+    private List<long[]> split(FileChannel channel, Format format) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        long start = 0L;
+
+        while(start < size) {
+            long end = start + chunkBytes >= size
+                    ? size
+                    : format == Format.BINARY
+                        ? start + chunkBytes / BINARY_RECORD_BYTES * BINARY_RECORD_BYTES
+                        : nextLine(channel, start + chunkBytes, size);
+
+            chunks.add(new long[] {start, end});
+            start = end;
+        }
+
+        return chunks;
+    }
+
+    // Position after the first line break at or after the given position
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ALIGN_BUFFER_BYTES);
+
+        while(position < size) {
+            // Cleared as Buffer to run on Java 8 when compiled by a newer JDK
+            ((Buffer) buffer).clear();
+            int read = channel.read(buffer, position);
+
+            for(int i = 0; i < read; i++) {
+                if(buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+
+            position += read;
+        }
+
+        return size;
+    }
+
+    private StatisticData merge(List<Partial> partials, long minSec, int length) {
+        StatisticData seconds = new StatisticData(length);
+
+        for(Partial partial : partials) {
+            // Seconds of adjacent chunks overlap at boundaries
+            for(long second = partial.minSec; second <= partial.maxSec; second++) {
+                int i = (int) (second - partial.baseSec);
+
+                seconds.merge((int) (second - minSec),
+                        partial.data.getAmount(i),
+                        partial.data.getCount(i),
+                        partial.data.getMin(i),
+                        partial.data.getMax(i),
+                        second);
+            }
+        }
+
+        return seconds;
+    }
+
+    private void write(StatisticData seconds, long minSec, long maxSec, BufferedWriter writer) throws IOException {
+        for(long second = minSec; second <= maxSec; second++) {
+            long fromSec = Math.max(minSec, second - period + 1);
+            int fromCursor = (int) (fromSec - minSec);
+            int length = (int) (second - fromSec + 1);
+            long count = seconds.getCount(fromCursor, length);
+
+            writer.write(Long.toString(second));
+
+            if(count == 0L) {
+                writer.write(",0,0,0,0,0");
+            } else {
+                BigDecimal sum = AmountConverter.toBigDecimalValue(seconds.getAmount(fromCursor, length));
+
+                writer.write(',');
+                writer.write(sum.toPlainString());
+                writer.write(',');
+                writer.write(sum.divide(BigDecimal.valueOf(count), BigDecimal.ROUND_HALF_EVEN).toPlainString());
+                writer.write(',');
+                writer.write(AmountConverter.toBigDecimalValue(seconds.getMax(fromCursor, length)).toPlainString());
+                writer.write(',');
+                writer.write(AmountConverter.toBigDecimalValue(seconds.getMin(fromCursor, length)).toPlainString());
+                writer.write(',');
+                writer.write(Long.toString(count));
+            }
+
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Summary of the backfill.
+     */
+    public static final class Summary {
+        private long rows;
+        private long skipped;
+        private long seconds;
+        private long nanos;
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getSeconds() {
+            return seconds;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("Summary{");
+            sb.append("rows=").append(rows);
+            sb.append(", skipped=").append(skipped);
+            sb.append(", seconds=").append(seconds);
+            sb.append(", millis=").append(nanos / 1000000L);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+
+    // Per second aggregates of a chunk starting at base second
+    private static final class Partial {
+        private StatisticData data;
+        private long baseSec;
+        private long minSec = Long.MAX_VALUE;
+        private long maxSec = Long.MIN_VALUE;
+        private long rows;
+        private long skipped;
+    }
+
+    private final class ChunkTask extends RecursiveTask<List<Partial>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final Format format;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(FileChannel channel, Format format, List<long[]> chunks, int from, int to) {
+            this.channel = channel;
+            this.format = format;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Partial> compute() {
+            if(to - from <= 1) {
+                List<Partial> partials = new ArrayList<>(1);
+
+                if(to > from) {
+                    try {
+                        long[] chunk = chunks.get(from);
+                        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                chunk[0], chunk[1] - chunk[0]);
+                        partials.add(new RowParser(buffer, format).parse());
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException("Error while reading transactions", ex);
+                    }
+                }
+
+                return partials;
+            }
+
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, format, chunks, from, middle);
+            left.fork();
+
+            List<Partial> partials = new ChunkTask(channel, format, chunks, middle, to).compute();
+            partials.addAll(0, left.join());
+            return partials;
+        }
+    }
+
+    // Parser of a mapped chunk, result of the last parsed row is kept in fields
+    private final class RowParser {
+        private final ByteBuffer buffer;
+        private final Format format;
+        private final int limit;
+
+        private boolean valid;
+        private long second;
+        private long amount;
+
+        private RowParser(ByteBuffer buffer, Format format) {
+            this.buffer = buffer;
+            this.format = format;
+            // Incomplete trailing record of a binary file is ignored
+            this.limit = format == Format.BINARY
+                    ? buffer.limit() / BINARY_RECORD_BYTES * BINARY_RECORD_BYTES
+                    : buffer.limit();
+        }
+
+        private Partial parse() {
+            Partial partial = new Partial();
+
+            long firstSec = -1L;
+            int position = 0;
+            while(position < limit && firstSec < 0L) {
+                position = next(position);
+                firstSec = valid ? second : -1L;
+            }
+
+            long lastSec = -1L;
+            position = previous(limit);
+            while(position >= 0 && lastSec < 0L) {
+                next(position);
+                lastSec = valid ? second : -1L;
+                position = previous(position);
+            }
+
+            if(firstSec >= 0L) {
+                // Rows of the chunk are expected to be ordered, allow them to be out of order within the period
+                partial.baseSec = Math.max(1L, Math.min(firstSec, lastSec) - period);
+                long span = Math.max(firstSec, lastSec) + period - partial.baseSec + 1;
+
+                if(span > MAX_SECONDS) {
+                    throw new IllegalArgumentException("Transactions of a chunk span more than "
+                            + MAX_SECONDS + " seconds");
+                }
+
+                partial.data = new StatisticData((int) span);
+            }
+
+            position = 0;
+            while(position < limit) {
+                position = next(position);
+                partial.rows++;
+
+                long cursor = second - partial.baseSec;
+                if(!valid || partial.data == null || cursor < 0L || cursor >= partial.data.size()) {
+                    partial.skipped++;
+                    continue;
+                }
+
+                partial.data.add((int) cursor, amount, second);
+                partial.minSec = Math.min(partial.minSec, second);
+                partial.maxSec = Math.max(partial.maxSec, second);
+            }
+
+            return partial;
+        }
+
+        // Parses row at position and returns position of the next one
+        private int next(int position) {
+            if(format == Format.BINARY) {
+                long timestamp = buffer.getLong(position);
+                amount = buffer.getLong(position + 8);
+                second = timestamp / 1000L;
+                valid = timestamp > 0L && amount > 0L;
+                return position + BINARY_RECORD_BYTES;
+            }
+
+            valid = false;
+
+            long timestamp = 0L;
+            int p = position;
+            int digits = 0;
+            byte b;
+            while(p < limit && (b = buffer.get(p)) >= '0' && b <= '9' && digits++ < MAX_TIMESTAMP_DIGITS) {
+                timestamp = timestamp * 10 + (b - '0');
+                p++;
+            }
+
+            if(digits > 0 && p < limit && buffer.get(p) == ',') {
+                p = parseAmount(p + 1);
+
+                if(p >= 0 && (p == limit || buffer.get(p) == '\r' || buffer.get(p) == '\n')) {
+                    second = timestamp / 1000L;
+                    valid = second > 0L && amount > 0L;
+                }
+            }
+
+            // Skip the rest of the line
+            p = Math.max(p, position);
+            while(p < limit && buffer.get(p) != '\n') {
+                p++;
+            }
+            return p + 1;
+        }
+
+        // Parses decimal amount rounding it half up to the long representation, -1 if amount is not valid
+        private int parseAmount(int position) {
+            long integer = 0L;
+            int p = position;
+            int digits = 0;
+            byte b;
+            while(p < limit && (b = buffer.get(p)) >= '0' && b <= '9') {
+                if(++digits > MAX_AMOUNT_DIGITS) {
+                    return -1;
+                }
+                integer = integer * 10 + (b - '0');
+                p++;
+            }
+
+            long fraction = 0L;
+            int fractionDigits = 0;
+            if(p < limit && buffer.get(p) == '.') {
+                p++;
+                while(p < limit && (b = buffer.get(p)) >= '0' && b <= '9') {
+                    if(fractionDigits < 2) {
+                        fraction = fraction * 10 + (b - '0');
+                    } else if(fractionDigits == 2 && b >= '5') {
+                        fraction++;
+                    }
+                    fractionDigits++;
+                    p++;
+                }
+            }
+
+            if(digits == 0 && fractionDigits == 0) {
+                return -1;
+            }
+
+            amount = integer * 100 + (fractionDigits == 1 ? fraction * 10 : fraction);
+            return p;
+        }
+
+        // Position of the row preceding the one at position, -1 if there is none
+        private int previous(int position) {
+            if(format == Format.BINARY) {
+                return position - BINARY_RECORD_BYTES;
+            }
+
+            // Skip the line break of the previous row
+            int p = position - 1;
+            if(p < 0) {
+                return -1;
+            }
+            do {
+                p--;
+            } while(p >= 0 && buffer.get(p) != '\n');
+
+            return p + 1;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package de.n26.challenge.business;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Runs {@link Backfill} of the configured transactions file on application start.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.backfill.input")
+public class BackfillRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackfillRunner.class);
+
+    private final Backfill backfill;
+    private final Path input;
+    private final Backfill.Format format;
+    private final Path output;
+
+    @Autowired
+    public BackfillRunner(@Value("${de.n26.challenge.period}") int period,
+                          @Value("${de.n26.challenge.backfill.input}") String input,
+                          @Value("${de.n26.challenge.backfill.format}") String format,
+                          @Value("${de.n26.challenge.backfill.output}") String output,
+                          @Value("${de.n26.challenge.backfill.parallelism}") int parallelism,
+                          @Value("${de.n26.challenge.backfill.chunk-bytes}") int chunkBytes) {
+        this.backfill = new Backfill(period,
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                chunkBytes);
+        this.input = Paths.get(input);
+        this.format = Backfill.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        this.output = Paths.get(output);
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        logger.info("Backfill of {} is started", input.toAbsolutePath());
+
+        Backfill.Summary summary = backfill.run(input, format, output);
+
+        logger.info("Backfill is written to {}: {}", output.toAbsolutePath(), summary);
+    }
+}
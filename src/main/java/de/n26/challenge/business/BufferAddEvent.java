@@ -0,0 +1,55 @@
+package de.n26.challenge.business;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of transactions added to the {@link StatisticsBuffer},
+ * duration includes waiting for the lock.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Name("de.n26.challenge.BufferAdd")
+@Label("Statistics Buffer Add")
+@Category({"Statistics", "Buffer"})
+@Description("Transactions added to the statistics buffer")
+@StackTrace(false)
+@Threshold("1 ms")
+class BufferAddEvent extends Event {
+
+    @Label("Transactions")
+    int transactions;
+
+    @Label("Lock Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long lockWait;
+
+    // Transient fields are not recorded
+    private transient long startNanos;
+
+    static BufferAddEvent start() {
+        BufferAddEvent event = new BufferAddEvent();
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    void lockAcquired() {
+        lockWait = System.nanoTime() - startNanos;
+    }
+
+    void finish(int transactions) {
+        end();
+
+        if(shouldCommit()) {
+            this.transactions = transactions;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.n26.challenge.business;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of statistics calculated by the {@link StatisticsBuffer}.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Name("de.n26.challenge.BufferCalculate")
+@Label("Statistics Buffer Calculate")
+@Category({"Statistics", "Buffer"})
+@Description("Statistics calculated for the window or a sub-window")
+@StackTrace(false)
+@Threshold("1 ms")
+class BufferCalculateEvent extends Event {
+
+    @Label("Last Seconds")
+    int lastSeconds;
+
+    @Label("Read Attempts")
+    @Description("Number of optimistic reads, the last one is under read lock if locked")
+    int attempts;
+
+    @Label("Locked")
+    boolean locked;
+}
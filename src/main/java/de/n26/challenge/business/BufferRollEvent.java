@@ -0,0 +1,30 @@
+package de.n26.challenge.business;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of the {@link StatisticsBuffer} ring rolled to a new second,
+ * duration includes clearing stale slots, notifying listeners and recalculating the window.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Name("de.n26.challenge.BufferRoll")
+@Label("Statistics Buffer Roll")
+@Category({"Statistics", "Buffer"})
+@Description("Statistics buffer ring rolled to a new second")
+@StackTrace(false)
+@Threshold("1 ms")
+class BufferRollEvent extends Event {
+
+    @Label("Second")
+    long second;
+
+    @Label("Stale Slots")
+    int staleSlots;
+}
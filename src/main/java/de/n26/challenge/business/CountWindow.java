@@ -0,0 +1,228 @@
+package de.n26.challenge.business;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe count-based sliding window: statistics of the last N transactions regardless of their time,
+ * N is limited by the capacity of the window.
+ *
+ * Amounts are kept in a primitive ring in the order transactions are added. Sums are answered from a ring
+ * of running totals (sum of the last N is a difference of two of them, wrapping of the totals
+ * cancels out), min and max from monotonic deques of the positions of the amounts which might still become
+ * the lowest or highest ones. Add is O(1) amortized and creates no objects: an amount is pushed to a deque once
+ * and dropped from it once. Aggregates of the whole window are read from the heads of the deques in constant time,
+ * of the shorter windows by binary search of the deques in O(log N).
+ *
+ * Writers take the write lock of a {@link StampedLock}, reads are optimistic like in {@link StatisticsBuffer}.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+public class CountWindow<T> {
+
+    static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private final int capacity;
+    private final StatisticsCollector<T> collector;
+    private final StampedLock lock = new StampedLock();
+
+    // Amount of the n-th transaction (0-based) is at n % capacity
+    private final long[] amounts;
+    // Total after the n-th transaction is at n % (capacity + 1), totals of the last capacity transactions are kept
+    private final long[] totals;
+    // Positions (transaction numbers) with decreasing amounts for max and increasing ones for min
+    private final long[] maxQueue;
+    private final long[] minQueue;
+    private long maxHead;
+    private long maxTail;
+    private long minHead;
+    private long minTail;
+    // Number of transactions added
+    private long added;
+
+    @Autowired
+    public CountWindow(@Value("${de.n26.challenge.count-window.capacity}") int capacity,
+                       StatisticsCollector<T> collector) {
+
+        assert capacity >= 0;
+
+        this.capacity = capacity;
+        this.collector = collector;
+        this.amounts = new long[capacity];
+        this.totals = new long[capacity + 1];
+        this.maxQueue = new long[capacity];
+        this.minQueue = new long[capacity];
+    }
+
+    /**
+     * Adds transaction to the window, the oldest one falls out if the window is full.
+     * Has no effect if the window is disabled (capacity is 0).
+     *
+     * @param transactionAmountLong amount represented as a long value
+     */
+    public void add(long transactionAmountLong) {
+        if(capacity == 0) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            addLocked(transactionAmountLong);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds batch of transactions to the window taking the lock once.
+     *
+     * @param transactionAmountsLong amounts represented as a long values
+     * @param length number of transactions in the batch
+     */
+    public void add(long[] transactionAmountsLong, int length) {
+
+        assert length <= transactionAmountsLong.length;
+
+        if(capacity == 0 || length == 0) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            for(int i = 0; i < length; i++) {
+                addLocked(transactionAmountsLong[i]);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Return statistic data of the last transactions.
+     *
+     * @param lastN number of the most recent transactions, limited by the capacity
+     * @return statistic data of the last transactions
+     */
+    public T calculate(int lastN) {
+        StatisticData.CollectingSink<T> sink = new StatisticData.CollectingSink<>(collector);
+        calculate(lastN, sink);
+        return sink.getResult();
+    }
+
+    /**
+     * Pass statistic data of the last transactions to sink, nothing is allocated.
+     *
+     * @param lastN number of the most recent transactions, limited by the capacity
+     * @param sink sink to accept aggregated data
+     */
+    public void calculate(int lastN, StatisticsSink sink) {
+
+        assert lastN > 0;
+
+        long stamp = lock.tryOptimisticRead();
+        boolean locked = false;
+        long sum = 0L, count, min = 0L, max = 0L;
+
+        try {
+            for(int attempt = 1; ; attempt++) {
+                long last = added;
+                count = Math.min(Math.min(lastN, capacity), last);
+
+                if(count > 0L) {
+                    // Positions of the window are from (inclusive) to last (exclusive)
+                    long from = last - count;
+                    sum = totals[(int) (last % (capacity + 1))] - totals[(int) (from % (capacity + 1))];
+                    max = amounts[(int) (first(maxQueue, maxHead, maxTail, from) % capacity)];
+                    min = amounts[(int) (first(minQueue, minHead, minTail, from) % capacity)];
+                }
+
+                if(lock.validate(stamp)) {
+                    break;
+                }
+
+                if(attempt < OPTIMISTIC_READ_ATTEMPTS) {
+                    stamp = lock.tryOptimisticRead();
+                } else {
+                    stamp = lock.readLock();
+                    locked = true;
+                }
+            }
+        } finally {
+            if(locked) {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        if(count == 0L) {
+            sink.accept(0L, 0L, 0L, 0L);
+        } else {
+            sink.accept(sum, count, min, max);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void addLocked(long transactionAmountLong) {
+        long position = added;
+        long oldest = position - capacity;
+
+        // Position falling out of the window is dropped before its amount is overwritten
+        if(maxHead < maxTail && maxQueue[(int) (maxHead % capacity)] <= oldest) {
+            maxHead++;
+        }
+        if(minHead < minTail && minQueue[(int) (minHead % capacity)] <= oldest) {
+            minHead++;
+        }
+
+        amounts[(int) (position % capacity)] = transactionAmountLong;
+
+        // Amounts which can't be the highest (lowest) of any window anymore are dropped from the tail
+        while(maxHead < maxTail && amounts[(int) (maxQueue[(int) ((maxTail - 1) % capacity)] % capacity)]
+                <= transactionAmountLong) {
+            maxTail--;
+        }
+        maxQueue[(int) (maxTail++ % capacity)] = position;
+
+        while(minHead < minTail && amounts[(int) (minQueue[(int) ((minTail - 1) % capacity)] % capacity)]
+                >= transactionAmountLong) {
+            minTail--;
+        }
+        minQueue[(int) (minTail++ % capacity)] = position;
+
+        totals[(int) ((position + 1) % (capacity + 1))] = totals[(int) (position % (capacity + 1))]
+                + transactionAmountLong;
+        added = position + 1;
+    }
+
+    // The first position of the deque which is not before from, the deque is never empty for a non-empty window
+    private long first(long[] queue, long head, long tail, long from) {
+        long position = queue[(int) (head % capacity)];
+
+        // Inconsistent optimistic read is detected by the caller
+        if(position >= from || tail - head < 2) {
+            return position;
+        }
+
+        // Invariant: position at low is before from, position at high is not
+        long low = head;
+        long high = tail - 1;
+
+        while(high - low > 1) {
+            long middle = (low + high) >>> 1;
+
+            if(queue[(int) (middle % capacity)] >= from) {
+                high = middle;
+            } else {
+                low = middle;
+            }
+        }
+
+        return queue[(int) (high % capacity)];
+    }
+}
@@ -44,6 +44,22 @@ public class DefaultStatisticsCollector implements StatisticsCollector<Statistic
                 .min(AmountConverter.toBigDecimalValue(min).doubleValue());
     }
 
+    /**
+     * Converts aggregated statistic data with estimated number of distinct accounts
+     * to the {@link Statistics} type.
+     *
+     * @param sum sum of transaction value from statistics buffer
+     * @param count total number of transactions from statistics buffer
+     * @param min single lowest transaction value from statistics buffer
+     * @param max single highest transaction value from statistics buffer
+     * @param distinct estimated number of distinct accounts from statistics buffer
+     * @return Statistics container
+     */
+    @Override
+    public Statistics collectStatistics(long sum, long count, long min, long max, long distinct) {
+        return collectStatistics(sum, count, min, max).distinct(distinct);
+    }
+
     /**
      * Creates empty Statistics container.
      *
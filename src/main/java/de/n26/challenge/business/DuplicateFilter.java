@@ -0,0 +1,150 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.util.Hashes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filter of transactions already applied to statistics by transaction id, so transactions retried
+ * by clients are counted once.
+ *
+ * Keeps a Bloom filter per second of the period in a ring like {@link StatisticsBuffer} does:
+ * a transaction is looked up only in the filter of its own second (retried transaction has the same timestamp)
+ * and the filter is cleared once the ring comes round to it again, so it expires together with the second
+ * and memory is bounded. Filters are sized for the configured number of transactions per second
+ * and false positive rate, a check takes constant time.
+ * False positive means a transaction is wrongly taken as a duplicate and skipped.
+ *
+ * Configured false positive rate, filter size and numbers of checked and duplicate transactions
+ * are exposed as public metrics.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.dedup.enabled", havingValue = "true")
+public class DuplicateFilter implements PublicMetrics {
+
+    private final int period;
+    private final double falsePositiveRate;
+    private final int bits;
+    private final int hashes;
+    private final Slot[] slots;
+
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    @Autowired
+    public DuplicateFilter(@Value("${de.n26.challenge.period}") int period,
+                           @Value("${de.n26.challenge.dedup.expected-per-second}") int expectedPerSecond,
+                           @Value("${de.n26.challenge.dedup.false-positive-rate}") double falsePositiveRate) {
+
+        if(expectedPerSecond <= 0) {
+            throw new IllegalArgumentException("Expected transactions per second must be positive: "
+                    + expectedPerSecond);
+        }
+        if(!(falsePositiveRate > 0.0d && falsePositiveRate < 1.0d)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1 (exclusive): "
+                    + falsePositiveRate);
+        }
+
+        this.period = period;
+        this.falsePositiveRate = falsePositiveRate;
+
+        // Optimal Bloom filter size and number of hash functions
+        double ln2 = Math.log(2.0d);
+        this.bits = (int) Math.max(Long.SIZE, Math.ceil(-expectedPerSecond * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        this.hashes = (int) Math.max(1L, Math.round((double) bits / expectedPerSecond * ln2));
+
+        this.slots = new Slot[period];
+        for(int i = 0; i < period; i++) {
+            slots[i] = new Slot((bits + Long.SIZE - 1) / Long.SIZE);
+        }
+    }
+
+    /**
+     * Registers transaction id for the second if it is not registered yet.
+     *
+     * @param transactionId transaction id
+     * @param transactionTimeSec transaction time represented in seconds (truncated)
+     * @return true if transaction is registered, false if it is (most likely) a duplicate
+     */
+    public boolean register(String transactionId, long transactionTimeSec) {
+        checked.incrementAndGet();
+
+        long hash = Hashes.hash(transactionId);
+        // Double hashing: i-th bit is derived from two independent hashes
+        long step = Hashes.mix(hash) | 1L;
+
+        Slot slot = slots[(int) Math.floorMod(transactionTimeSec, (long) period)];
+        slot.lock.lock();
+        try {
+            if(transactionTimeSec != slot.second) {
+                // Older second than the filter is for is out of the period already
+                if(transactionTimeSec < slot.second) {
+                    return true;
+                }
+
+                Arrays.fill(slot.words, 0L);
+                slot.second = transactionTimeSec;
+            }
+
+            boolean registered = false;
+            for(int i = 0; i < hashes; i++) {
+                int bit = (int) (((hash + i * step) & Long.MAX_VALUE) % bits);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+
+                if((slot.words[word] & mask) == 0L) {
+                    slot.words[word] |= mask;
+                    registered = true;
+                }
+            }
+
+            if(!registered) {
+                duplicates.incrementAndGet();
+            }
+
+            return registered;
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("dedup.false-positive-rate", falsePositiveRate),
+                new Metric<>("dedup.bits-per-second", bits),
+                new Metric<>("dedup.hashes", hashes),
+                new Metric<>("dedup.checked", checked.get()),
+                new Metric<>("dedup.duplicates", getDuplicates()));
+    }
+
+    private static final class Slot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] words;
+        // Second the filter is for, guarded by lock
+        private long second;
+
+        private Slot(int words) {
+            this.words = new long[words];
+        }
+    }
+}
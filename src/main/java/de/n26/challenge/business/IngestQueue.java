@@ -0,0 +1,361 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bounded queue for asynchronous (fire-and-forget) transaction ingest.
+ * Request threads only enqueue already validated and converted transactions,
+ * a single drainer thread applies them to the {@link StatisticsBuffer} in batches
+ * taking the buffer lock once per batch. If the queue is full transaction is rejected
+ * immediately so the caller can apply backpressure instead of blocking.
+ *
+ * Queue is a bounded lock-free ring of primitive columns: producers and consumers claim positions
+ * by CAS and hand slots over by their sequence numbers, so enqueue creates no objects.
+ * Drainer parks while the ring is empty and is unparked by the next producer.
+ *
+ * Transactions having an id are checked by the {@link DuplicateFilter} (if enabled) when applied,
+ * so a transaction rejected because of the full queue might be retried safely.
+ * Applied transactions are added to the {@link CountWindow} too in the order they are applied.
+ *
+ * On shutdown the queue stops accepting transactions and everything already enqueued is applied:
+ * producers hold the read lock while enqueueing and the queue is stopped under the write lock,
+ * so nothing is enqueued after the final drain.
+ * Queue depth, capacity, accepted, applied and dropped counters are exposed as public metrics.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.ingest.async", havingValue = "true")
+public class IngestQueue implements PublicMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestQueue.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final CurrentTimeFactory currentTimeFactory;
+    private final int capacity;
+    private final int batchSize;
+    private final DuplicateFilter duplicateFilter;
+    private final CountWindow<Statistics> countWindow;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+
+    // Slot is free for the producer of position p if its sequence is p, filled for the consumer if it is p + 1
+    private final AtomicLongArray sequences;
+    private final long[] amounts;
+    private final long[] times;
+    private final long[] accountHashes;
+    private final String[] ids;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final StampedLock lock = new StampedLock();
+    private volatile boolean running;
+    private volatile boolean idle;
+    private Thread drainer;
+
+    @Autowired
+    public IngestQueue(StatisticsBuffer<Statistics> statisticsBuffer,
+                       CurrentTimeFactory currentTimeFactory,
+                       Optional<DuplicateFilter> duplicateFilter,
+                       CountWindow<Statistics> countWindow,
+                       @Value("${de.n26.challenge.ingest.queue-capacity}") int capacity,
+                       @Value("${de.n26.challenge.ingest.batch-size}") int batchSize) {
+        this(statisticsBuffer, currentTimeFactory, capacity, batchSize, duplicateFilter.orElse(null), countWindow);
+    }
+
+    public IngestQueue(StatisticsBuffer<Statistics> statisticsBuffer,
+                       CurrentTimeFactory currentTimeFactory,
+                       int capacity,
+                       int batchSize) {
+        this(statisticsBuffer, currentTimeFactory, capacity, batchSize, null);
+    }
+
+    public IngestQueue(StatisticsBuffer<Statistics> statisticsBuffer,
+                       CurrentTimeFactory currentTimeFactory,
+                       int capacity,
+                       int batchSize,
+                       DuplicateFilter duplicateFilter) {
+        this(statisticsBuffer, currentTimeFactory, capacity, batchSize, duplicateFilter, null);
+    }
+
+    public IngestQueue(StatisticsBuffer<Statistics> statisticsBuffer,
+                       CurrentTimeFactory currentTimeFactory,
+                       int capacity,
+                       int batchSize,
+                       DuplicateFilter duplicateFilter,
+                       CountWindow<Statistics> countWindow) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.currentTimeFactory = currentTimeFactory;
+        this.capacity = capacity;
+        this.sequences = new AtomicLongArray(capacity);
+        this.amounts = new long[capacity];
+        this.times = new long[capacity];
+        this.accountHashes = new long[capacity];
+        this.ids = new String[capacity];
+        this.batchSize = batchSize;
+        this.duplicateFilter = duplicateFilter;
+        this.countWindow = countWindow;
+
+        for(int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Starts drainer thread.
+     */
+    @PostConstruct
+    public void start() {
+        drainer = new Thread(this::drain, "ingest-drainer");
+        drainer.setDaemon(true);
+        running = true;
+        drainer.start();
+    }
+
+    /**
+     * Stops accepting transactions and applies everything already enqueued.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Producers which have seen the queue running complete enqueueing before it is stopped
+        long stamp = lock.writeLock();
+        try {
+            running = false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        LockSupport.unpark(drainer);
+        drainer.join(SHUTDOWN_TIMEOUT_MILLIS);
+
+        // Drainer might be stuck - apply the rest in the calling thread
+        applyPending(new long[batchSize], new long[batchSize], new long[batchSize], new String[batchSize]);
+
+        logger.info("Ingest queue is drained, transactions applied: {}", applied.get());
+    }
+
+    /**
+     * Enqueues transaction to be applied to the statistics buffer.
+     *
+     * @param transactionAmountLong amount represented as a long value
+     * @param transactionTimeSec transaction time represented in seconds (truncated)
+     * @return true if transaction is enqueued, false if queue is full or stopped
+     */
+    public boolean offer(long transactionAmountLong, long transactionTimeSec) {
+        return offer(transactionAmountLong, transactionTimeSec, null);
+    }
+
+    /**
+     * Enqueues transaction to be applied to the statistics buffer unless it is a duplicate.
+     *
+     * @param transactionAmountLong amount represented as a long value
+     * @param transactionTimeSec transaction time represented in seconds (truncated)
+     * @param transactionId transaction id to skip duplicates by, might be null
+     * @return true if transaction is enqueued, false if queue is full or stopped
+     */
+    public boolean offer(long transactionAmountLong, long transactionTimeSec, String transactionId) {
+        return offer(transactionAmountLong, transactionTimeSec, transactionId, StatisticsBuffer.NO_ACCOUNT);
+    }
+
+    /**
+     * Enqueues transaction of an account to be applied to the statistics buffer unless it is a duplicate.
+     *
+     * @param transactionAmountLong amount represented as a long value
+     * @param transactionTimeSec transaction time represented in seconds (truncated)
+     * @param transactionId transaction id to skip duplicates by, might be null
+     * @param accountHash account hash (see {@link StatisticsBuffer#accountHash(String)})
+     * @return true if transaction is enqueued, false if queue is full or stopped
+     */
+    public boolean offer(long transactionAmountLong, long transactionTimeSec, String transactionId,
+                         long accountHash) {
+        boolean enqueued;
+
+        long stamp = lock.readLock();
+        try {
+            enqueued = running && enqueue(transactionAmountLong, transactionTimeSec, transactionId, accountHash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        if(!enqueued) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        accepted.incrementAndGet();
+        if(idle) {
+            LockSupport.unpark(drainer);
+        }
+        return true;
+    }
+
+    public int getDepth() {
+        long depth = tail.get() - head.get();
+        return (int) Math.max(0L, Math.min(capacity, depth));
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getApplied() {
+        return applied.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("ingest.queue.depth", getDepth()),
+                new Metric<>("ingest.queue.capacity", capacity),
+                new Metric<>("ingest.queue.accepted", accepted.get()),
+                new Metric<>("ingest.queue.applied", getApplied()),
+                new Metric<>("ingest.queue.dropped", getDropped()));
+    }
+
+    private void drain() {
+        long[] batchAmounts = new long[batchSize];
+        long[] batchTimes = new long[batchSize];
+        long[] batchAccountHashes = new long[batchSize];
+        String[] batchIds = new String[batchSize];
+
+        while(running && !Thread.currentThread().isInterrupted()) {
+            try {
+                if(!applyPending(batchAmounts, batchAccountHashes, batchTimes, batchIds)) {
+                    // Producer enqueueing after the flag is set unparks the drainer
+                    idle = true;
+                    if(isEmpty() && running) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                }
+            } catch (RuntimeException ex) {
+                logger.error("Error while applying transactions", ex);
+            }
+        }
+    }
+
+    // Returns false if nothing is applied
+    private boolean applyPending(long[] batchAmounts, long[] batchAccountHashes, long[] batchTimes,
+                                 String[] batchIds) {
+        boolean polled = false;
+        int length;
+
+        while((length = dequeue(batchAmounts, batchAccountHashes, batchTimes, batchIds)) > 0) {
+            polled = true;
+
+            int unique = 0;
+            for(int i = 0; i < length; i++) {
+                if(batchIds[i] == null || duplicateFilter == null
+                        || duplicateFilter.register(batchIds[i], batchTimes[i])) {
+                    batchAmounts[unique] = batchAmounts[i];
+                    batchAccountHashes[unique] = batchAccountHashes[i];
+                    batchTimes[unique] = batchTimes[i];
+                    unique++;
+                }
+                batchIds[i] = null;
+            }
+
+            if(unique > 0) {
+                statisticsBuffer.add(batchAmounts, batchAccountHashes, batchTimes, unique, currentTimeFactory.now());
+                applied.addAndGet(unique);
+
+                if(countWindow != null) {
+                    countWindow.add(batchAmounts, unique);
+                }
+            }
+        }
+
+        return polled;
+    }
+
+    private boolean enqueue(long amount, long timeSec, String id, long accountHash) {
+        long position = tail.get();
+        int index;
+
+        for(;;) {
+            index = (int) (position % capacity);
+            long difference = sequences.get(index) - position;
+
+            if(difference == 0L) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if(difference < 0L) {
+                // Slot of the previous lap is not consumed yet
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        amounts[index] = amount;
+        times[index] = timeSec;
+        accountHashes[index] = accountHash;
+        ids[index] = id;
+        // Volatile write pairs with the idle flag: either producer sees the drainer idle or drainer sees the slot
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    // Consumers are the drainer and the stopping thread if the drainer is stuck
+    private int dequeue(long[] batchAmounts, long[] batchAccountHashes, long[] batchTimes, String[] batchIds) {
+        int length = 0;
+
+        while(length < batchSize) {
+            long position = head.get();
+            int index = (int) (position % capacity);
+            long difference = sequences.get(index) - (position + 1);
+
+            if(difference < 0L) {
+                // Empty or the producer of the position hasn't filled the slot yet
+                break;
+            }
+
+            if(difference > 0L || !head.compareAndSet(position, position + 1)) {
+                continue;
+            }
+
+            batchAmounts[length] = amounts[index];
+            batchTimes[length] = times[index];
+            batchAccountHashes[length] = accountHashes[index];
+            batchIds[length] = ids[index];
+            length++;
+
+            ids[index] = null;
+            sequences.lazySet(index, position + capacity);
+        }
+
+        return length;
+    }
+
+    private boolean isEmpty() {
+        long position = head.get();
+        return sequences.get((int) (position % capacity)) != position + 1;
+    }
+}
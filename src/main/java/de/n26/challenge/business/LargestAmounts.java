@@ -0,0 +1,40 @@
+package de.n26.challenge.business;
+
+/**
+ * The largest individual transaction amounts of the period in descending order
+ * with the seconds the transactions were made at.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class LargestAmounts implements StatisticData.LargestSink {
+    private final long[] amounts;
+    private final long[] seconds;
+    private int size;
+
+    public LargestAmounts(int capacity) {
+        amounts = new long[capacity];
+        seconds = new long[capacity];
+    }
+
+    @Override
+    public void accept(long amount, long timestamp) {
+
+        assert size < amounts.length;
+
+        amounts[size] = amount;
+        seconds[size] = timestamp;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getAmount(int index) {
+        return amounts[index];
+    }
+
+    public long getSecond(int index) {
+        return seconds[index];
+    }
+}
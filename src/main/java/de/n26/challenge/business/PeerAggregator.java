@@ -0,0 +1,122 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Aggregator mode to calculate statistics over the whole cluster.
+ * Partials of the local {@link StatisticsBuffer} and partials fetched from the configured
+ * peers in parallel are merged by second into a global window. Cost is fixed by the number
+ * of peers and the period as each node exports at most one partial per second.
+ * Peers which fail to respond within the timeout are skipped.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.cluster.peers")
+public class PeerAggregator {
+
+    public static final String PARTIALS_PATH = "/statistics/partials";
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerAggregator.class);
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final StatisticsCollector<Statistics> collector;
+    private final int period;
+    private final List<String> peers;
+    private final long timeoutMillis;
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor;
+
+    @Autowired
+    public PeerAggregator(StatisticsBuffer<Statistics> statisticsBuffer,
+                          StatisticsCollector<Statistics> collector,
+                          @Value("${de.n26.challenge.period}") int period,
+                          @Value("${de.n26.challenge.cluster.peers}") String[] peers,
+                          @Value("${de.n26.challenge.cluster.timeout-millis}") int timeoutMillis) {
+        this(statisticsBuffer, collector, period, Arrays.asList(peers), timeoutMillis, restTemplate(timeoutMillis));
+    }
+
+    public PeerAggregator(StatisticsBuffer<Statistics> statisticsBuffer,
+                          StatisticsCollector<Statistics> collector,
+                          int period,
+                          List<String> peers,
+                          long timeoutMillis,
+                          RestTemplate restTemplate) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.collector = collector;
+        this.period = period;
+        this.peers = peers;
+        this.timeoutMillis = timeoutMillis;
+        this.restTemplate = restTemplate;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, peers.size()));
+    }
+
+    /**
+     * Calculate statistics for the period over local and peers data.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     * @return statistics for the period over the cluster
+     */
+    public Statistics aggregate(long nowSec) {
+        List<Future<byte[]>> responses = new ArrayList<>(peers.size());
+        for(String peer : peers) {
+            responses.add(executor.submit(() -> restTemplate.getForObject(peer + PARTIALS_PATH, byte[].class)));
+        }
+
+        StatisticData global = new StatisticData(period);
+        statisticsBuffer.partials(nowSec).mergeInto(global, nowSec);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for(int i = 0; i < responses.size(); i++) {
+            Future<byte[]> response = responses.get(i);
+            try {
+                byte[] bytes = response.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+                if(bytes != null) {
+                    StatisticPartials.decode(bytes).mergeInto(global, nowSec);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException | IllegalArgumentException ex) {
+                response.cancel(true);
+                logger.warn("Partials of peer {} are skipped: {}", peers.get(i), ex.toString());
+            }
+        }
+
+        return global
+                .collect(StatisticsSnapshot.COLLECTOR)
+                .collect(collector);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static RestTemplate restTemplate(int timeoutMillis) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMillis);
+        requestFactory.setReadTimeout(timeoutMillis);
+        return new RestTemplate(requestFactory);
+    }
+}
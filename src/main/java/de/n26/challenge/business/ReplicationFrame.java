@@ -0,0 +1,71 @@
+package de.n26.challenge.business;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Frame of the replication stream: wall clock time the frame is sent at followed by
+ * length and binary representation of {@link StatisticPartials} with the changed slots.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public final class ReplicationFrame {
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private final long sentMillis;
+    private final StatisticPartials partials;
+
+    public ReplicationFrame(long sentMillis, StatisticPartials partials) {
+        this.sentMillis = sentMillis;
+        this.partials = partials;
+    }
+
+    /**
+     * Write frame to the stream.
+     *
+     * @param out stream to write frame to
+     * @throws IOException if frame can't be written
+     */
+    public void write(DataOutputStream out) throws IOException {
+        byte[] bytes = partials.encode();
+
+        out.writeLong(sentMillis);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * Read frame from the stream, blocks until the whole frame is available.
+     *
+     * @param in stream to read frame from
+     * @return frame read
+     * @throws IOException if frame can't be read or is corrupted
+     */
+    public static ReplicationFrame read(DataInputStream in) throws IOException {
+        long sentMillis = in.readLong();
+        int length = in.readInt();
+
+        if(length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Replication frame is corrupted, length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        try {
+            return new ReplicationFrame(sentMillis, StatisticPartials.decode(bytes));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Replication frame is corrupted", ex);
+        }
+    }
+
+    public long getSentMillis() {
+        return sentMillis;
+    }
+
+    public StatisticPartials getPartials() {
+        return partials;
+    }
+}
@@ -0,0 +1,227 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Primary side of the hot-standby replication.
+ * Standby instances connect over a persistent socket. Once per replication interval (a tick by default)
+ * slots of the {@link StatisticsBuffer} changed since the previous interval are sent to all standbys
+ * as a single frame, so the traffic doesn't depend on ingest rate. Slots are sent with their
+ * absolute values, so applying a frame is idempotent. Newly connected standby gets all the slots first.
+ * A frame is sent even if nothing is changed to let standbys track replication lag.
+ *
+ * Publishing never blocks on the network: each standby has its own writer thread and a bounded
+ * queue of frames. A standby which doesn't keep up (e.g. stopped reading, so its TCP window is full)
+ * overflows the queue and is disconnected, it gets the full state again when it reconnects.
+ * Other standbys and the scheduler thread the frames are published by are not affected.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.replication.role", havingValue = "primary")
+public class ReplicationPublisher implements PublicMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationPublisher.class);
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final CurrentTimeFactory currentTimeFactory;
+    private final int port;
+    private final int queueFrames;
+
+    private final ConcurrentLinkedQueue<Standby> connected = new ConcurrentLinkedQueue<>();
+    private final List<Standby> standbys = new ArrayList<>();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    private volatile int standbyCount;
+    private ServerSocket serverSocket;
+
+    @Autowired
+    public ReplicationPublisher(StatisticsBuffer<Statistics> statisticsBuffer,
+                                CurrentTimeFactory currentTimeFactory,
+                                @Value("${de.n26.challenge.replication.port}") int port,
+                                @Value("${de.n26.challenge.replication.queue-frames}") int queueFrames) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.currentTimeFactory = currentTimeFactory;
+        this.port = port;
+        this.queueFrames = queueFrames;
+    }
+
+    /**
+     * Starts listening for standby connections.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+
+        Thread acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        logger.info("Replication primary is listening on port {}", getPort());
+    }
+
+    /**
+     * Stops listening and disconnects all standbys.
+     */
+    @PreDestroy
+    public synchronized void stop() throws IOException {
+        serverSocket.close();
+
+        standbys.addAll(connected);
+        connected.clear();
+        standbys.forEach(Standby::close);
+        standbys.clear();
+        standbyCount = 0;
+    }
+
+    /**
+     * Enqueues slots changed since the previous invocation to be sent to all standbys.
+     * Newly connected standbys get all the slots instead. Standbys which queues are full are disconnected.
+     */
+    @Scheduled(fixedRateString = "${de.n26.challenge.replication.interval-millis}")
+    public synchronized void publish() {
+        long nowSec = currentTimeFactory.now();
+        ReplicationFrame changes = new ReplicationFrame(System.currentTimeMillis(), statisticsBuffer.changes(nowSec));
+
+        standbys.removeIf(standby -> !standby.send(changes));
+
+        // Full state is taken after the changes, so it is never older than frames sent later
+        Standby newStandby;
+        while((newStandby = connected.poll()) != null) {
+            ReplicationFrame full = new ReplicationFrame(System.currentTimeMillis(), statisticsBuffer.partials(nowSec));
+
+            if(newStandby.send(full)) {
+                newStandby.start();
+                standbys.add(newStandby);
+            }
+        }
+
+        standbyCount = standbys.size();
+        framesSent.incrementAndGet();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return number of standbys disconnected because they didn't keep up
+     */
+    public long getOverflowed() {
+        return overflowed.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("replication.standbys", standbyCount),
+                new Metric<>("replication.frames.sent", framesSent.get()),
+                new Metric<>("replication.standbys.overflowed", overflowed.get()));
+    }
+
+    private void accept() {
+        while(!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connected.add(new Standby(socket, queueFrames));
+
+                logger.info("Standby connected: {}", socket.getRemoteSocketAddress());
+            } catch (IOException ex) {
+                if(!serverSocket.isClosed()) {
+                    logger.error("Error while accepting standby connection", ex);
+                }
+            }
+        }
+    }
+
+    private final class Standby {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final BlockingQueue<ReplicationFrame> frames;
+        private final Thread writer;
+        private volatile boolean closed;
+
+        private Standby(Socket socket, int queueFrames) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.frames = new ArrayBlockingQueue<>(queueFrames);
+            this.writer = new Thread(this::write, "replication-writer-" + socket.getPort());
+            this.writer.setDaemon(true);
+        }
+
+        private void start() {
+            writer.start();
+        }
+
+        private boolean send(ReplicationFrame frame) {
+            if(closed) {
+                return false;
+            }
+
+            if(!frames.offer(frame)) {
+                overflowed.incrementAndGet();
+                logger.warn("Standby doesn't keep up and is disconnected: {}", socket.getRemoteSocketAddress());
+                close();
+                return false;
+            }
+
+            return true;
+        }
+
+        private void write() {
+            try {
+                while(!closed) {
+                    frames.take().write(out);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ex) {
+                if(!closed) {
+                    logger.warn("Standby disconnected: {}", socket.getRemoteSocketAddress());
+                }
+            } finally {
+                close();
+            }
+        }
+
+        // Closing the socket aborts the write the writer might be blocked on
+        private void close() {
+            closed = true;
+            writer.interrupt();
+
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                logger.debug("Error while closing standby connection", ex);
+            }
+        }
+    }
+}
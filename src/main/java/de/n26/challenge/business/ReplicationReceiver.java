@@ -0,0 +1,160 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Standby side of the hot-standby replication.
+ * Keeps persistent connection to the primary instance (reconnecting if it is lost) and replaces
+ * slots of the local {@link StatisticsBuffer} with the replicated ones, so the standby
+ * is ready to serve reads at any time. Local ticker keeps evicting outdated slots as usual.
+ *
+ * Replication lag (time between the frame is sent by primary and applied by standby)
+ * and time since the last applied frame are exposed as public metrics.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.replication.role", havingValue = "standby")
+public class ReplicationReceiver implements PublicMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationReceiver.class);
+
+    private static final long RECONNECT_DELAY_MILLIS = 1000L;
+    private static final long TICK_MILLIS = 1000L;
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final CurrentTimeFactory currentTimeFactory;
+    private final String host;
+    private final int port;
+
+    private final AtomicLong framesApplied = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Socket socket;
+    private volatile long lagMillis;
+    private volatile long lastAppliedMillis;
+
+    @Autowired
+    public ReplicationReceiver(StatisticsBuffer<Statistics> statisticsBuffer,
+                               CurrentTimeFactory currentTimeFactory,
+                               @Value("${de.n26.challenge.replication.primary-host}") String host,
+                               @Value("${de.n26.challenge.replication.port}") int port) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.currentTimeFactory = currentTimeFactory;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Starts receiving replication stream.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+
+        Thread receiver = new Thread(this::receive, "replication-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Stops receiving replication stream.
+     */
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+
+        Socket current = socket;
+        if(current != null) {
+            current.close();
+        }
+    }
+
+    public boolean isConnected() {
+        return socket != null;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getFramesApplied() {
+        return framesApplied.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("replication.connected", isConnected() ? 1 : 0),
+                new Metric<>("replication.lag.millis", getLagMillis()),
+                new Metric<>("replication.staleness.millis", System.currentTimeMillis() - lastAppliedMillis),
+                new Metric<>("replication.frames.applied", getFramesApplied()));
+    }
+
+    private void receive() {
+        while(running) {
+            try(Socket current = new Socket(host, port)) {
+                socket = current;
+                logger.info("Connected to replication primary {}:{}", host, port);
+
+                DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream()));
+                while(running) {
+                    apply(ReplicationFrame.read(in));
+                }
+            } catch (IOException ex) {
+                if(running) {
+                    logger.warn("Replication primary {}:{} is not available: {}", host, port, ex.toString());
+                }
+            } finally {
+                socket = null;
+            }
+
+            sleep();
+        }
+    }
+
+    private void apply(ReplicationFrame frame) {
+        statisticsBuffer.replace(frame.getPartials(), currentTimeFactory.now());
+
+        long now = System.currentTimeMillis();
+        lagMillis = now - frame.getSentMillis();
+        lastAppliedMillis = now;
+        framesApplied.incrementAndGet();
+
+        if(lagMillis >= TICK_MILLIS) {
+            logger.warn("Replication lag is over a tick: {} ms", lagMillis);
+        }
+    }
+
+    private void sleep() {
+        if(!running) {
+            return;
+        }
+
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
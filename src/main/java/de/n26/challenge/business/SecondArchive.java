@@ -0,0 +1,321 @@
+package de.n26.challenge.business;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Long-term archive of finalized seconds: per second aggregates which fell out of
+ * the {@link StatisticsBuffer} period are appended to local segment files.
+ *
+ * Evicted seconds are collected in memory and written periodically as compressed
+ * {@link ArchiveBlock}s with sequential writes through a {@link FileChannel}, so the buffer
+ * lock is never held for I/O. Segment files are rolled over when they reach the configured size.
+ * Index of the blocks (second range and position) is kept in memory and rebuilt on start
+ * by scanning block headers. Time range lookups map only the blocks needed with {@link MappedByteBuffer}.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.archive.dir")
+public class SecondArchive implements StatisticsBufferListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondArchive.class);
+
+    private static final String SEGMENT_GLOB = "segment-*.dat";
+    private static final String SEGMENT_FORMAT = "segment-%06d.dat";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int blockRecords;
+
+    private final Object pendingLock = new Object();
+    private final Object writeLock = new Object();
+    private final ConcurrentLinkedQueue<StatisticPartials> ready = new ConcurrentLinkedQueue<>();
+    private final List<BlockRef> blocks = new ArrayList<>();
+
+    private StatisticPartials pending;
+    private int segmentNumber;
+    private Path segment;
+    private FileChannel channel;
+
+    @Autowired
+    public SecondArchive(@Value("${de.n26.challenge.archive.dir}") String dir,
+                         @Value("${de.n26.challenge.archive.segment-bytes}") long segmentBytes,
+                         @Value("${de.n26.challenge.archive.block-records}") int blockRecords) {
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentBytes;
+        this.blockRecords = blockRecords;
+        this.pending = new StatisticPartials(blockRecords);
+    }
+
+    /**
+     * Opens the archive: rebuilds blocks index and opens the last segment to append to.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(dir);
+
+        List<Path> segments = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_GLOB)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(null);
+
+        for(Path path : segments) {
+            scan(path);
+        }
+
+        segmentNumber = segments.size();
+        if(segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            segment = segments.get(segments.size() - 1);
+            channel = FileChannel.open(segment, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+
+        logger.info("Second archive is opened at {}, blocks: {}", dir.toAbsolutePath(), blocks.size());
+    }
+
+    /**
+     * Writes collected seconds and closes the archive.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        flush();
+
+        synchronized(writeLock) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    @Override
+    public void secondEvicted(long second, long sum, long count, long min, long max) {
+        synchronized(pendingLock) {
+            pending.add(second, sum, count, min, max);
+
+            // Never write under the buffer lock - hand full block over to the next flush
+            if(pending.size() == blockRecords) {
+                ready.add(pending);
+                pending = new StatisticPartials(blockRecords);
+            }
+        }
+    }
+
+    /**
+     * Writes collected seconds to the archive as a block.
+     */
+    @Scheduled(fixedRateString = "${de.n26.challenge.archive.flush-interval-millis}")
+    public void flush() {
+        synchronized(writeLock) {
+            StatisticPartials last;
+            synchronized(pendingLock) {
+                last = pending;
+                pending = new StatisticPartials(blockRecords);
+            }
+
+            try {
+                StatisticPartials records;
+                while((records = ready.poll()) != null) {
+                    write(records);
+                }
+
+                if(last.size() > 0) {
+                    write(last);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Error while writing second archive", ex);
+            }
+        }
+    }
+
+    /**
+     * Look up archived seconds within the range.
+     *
+     * @param fromSec lowest second (inclusive)
+     * @param toSec highest second (inclusive)
+     * @return archived seconds within the range ordered by time
+     */
+    public StatisticPartials query(long fromSec, long toSec) {
+
+        assert fromSec <= toSec;
+
+        StatisticPartials result;
+        List<StatisticPartials> inMemory;
+
+        // Blocks must not be written while looking up so no second is missed or duplicated
+        synchronized(writeLock) {
+            List<BlockRef> found = findBlocks(fromSec, toSec);
+
+            // Not written yet seconds are newer than the ones written
+            inMemory = new ArrayList<>(ready);
+            synchronized(pendingLock) {
+                inMemory.add(copy(pending));
+            }
+
+            // Result is sized by the records found rather than by the range which might be days long
+            long capacity = 0L;
+            for(BlockRef block : found) {
+                capacity += block.header.getCount();
+            }
+            for(StatisticPartials records : inMemory) {
+                for(int i = 0; i < records.size(); i++) {
+                    if(records.getSecond(i) >= fromSec && records.getSecond(i) <= toSec) {
+                        capacity++;
+                    }
+                }
+            }
+            result = new StatisticPartials((int) Math.min(capacity, toSec - fromSec + 1));
+
+            try {
+                queryBlocks(found, fromSec, toSec, result);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Error while reading second archive", ex);
+            }
+        }
+        for(StatisticPartials records : inMemory) {
+            for(int i = 0; i < records.size(); i++) {
+                long second = records.getSecond(i);
+
+                if(second >= fromSec && second <= toSec) {
+                    result.add(second, records.getSum(i), records.getCount(i), records.getMin(i), records.getMax(i));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private List<BlockRef> findBlocks(long fromSec, long toSec) {
+        List<BlockRef> found = new ArrayList<>();
+        for(BlockRef block : blocks) {
+            if(block.header.getMaxSecond() >= fromSec && block.header.getMinSecond() <= toSec) {
+                found.add(block);
+            }
+        }
+        return found;
+    }
+
+    private void queryBlocks(List<BlockRef> found, long fromSec, long toSec, StatisticPartials result)
+            throws IOException {
+        int i = 0;
+        while(i < found.size()) {
+            // Map consecutive blocks of a segment at once
+            int j = i;
+            while(j + 1 < found.size() && found.get(j + 1).segment.equals(found.get(i).segment)) {
+                j++;
+            }
+
+            BlockRef first = found.get(i);
+            BlockRef last = found.get(j);
+            long start = first.position;
+            long length = last.position + last.header.getLength() - start;
+
+            try(FileChannel readChannel = FileChannel.open(first.segment, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = readChannel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+                for(int k = i; k <= j; k++) {
+                    BlockRef block = found.get(k);
+                    // Position is moved on Buffer to run on Java 8 when compiled by a newer JDK
+                    ((Buffer) mapped).position((int) (block.position - start + ArchiveBlock.HEADER_BYTES));
+                    block.header.decode(mapped, fromSec, toSec, result);
+                }
+            }
+
+            i = j + 1;
+        }
+    }
+
+    private void write(StatisticPartials records) throws IOException {
+        ByteBuffer block = ArchiveBlock.encode(records);
+
+        if(channel.size() > 0 && channel.size() + block.remaining() > segmentBytes) {
+            channel.force(true);
+            channel.close();
+            openSegment(segmentNumber + 1);
+        }
+
+        long position = channel.size();
+        while(block.hasRemaining()) {
+            channel.write(block);
+        }
+
+        ((Buffer) block).rewind();
+        blocks.add(new BlockRef(segment, position, ArchiveBlock.readHeader(block)));
+    }
+
+    private void scan(Path path) throws IOException {
+        try(FileChannel scanChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = 0L;
+            long size = scanChannel.size();
+            ByteBuffer header = ByteBuffer.allocate(ArchiveBlock.HEADER_BYTES);
+
+            while(position < size) {
+                ((Buffer) header).clear();
+                scanChannel.read(header, position);
+                ((Buffer) header).flip();
+
+                ArchiveBlock block = ArchiveBlock.readHeader(header);
+                if(block == null || position + block.getLength() > size) {
+                    // Partially written block - most likely the application was killed while writing
+                    logger.warn("Second archive segment {} is truncated at {}", path, position);
+                    scanChannel.truncate(position);
+                    break;
+                }
+
+                blocks.add(new BlockRef(path, position, block));
+                position += block.getLength();
+            }
+        }
+    }
+
+    private void openSegment(int number) throws IOException {
+        segmentNumber = number;
+        segment = dir.resolve(String.format(SEGMENT_FORMAT, number));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    private static StatisticPartials copy(StatisticPartials records) {
+        StatisticPartials copy = new StatisticPartials(records.size());
+        for(int i = 0; i < records.size(); i++) {
+            copy.add(records.getSecond(i), records.getSum(i), records.getCount(i), records.getMin(i), records.getMax(i));
+        }
+        return copy;
+    }
+
+    private static final class BlockRef {
+        private final Path segment;
+        private final long position;
+        private final ArchiveBlock header;
+
+        private BlockRef(Path segment, long position, ArchiveBlock header) {
+            this.segment = segment;
+            this.position = position;
+            this.header = header;
+        }
+    }
+}
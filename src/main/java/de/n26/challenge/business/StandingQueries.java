@@ -0,0 +1,372 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Standing threshold queries (e.g. count over the last 10 seconds greater than 1000) evaluated
+ * against the {@link StatisticsBuffer} once per second boundary instead of being polled by clients.
+ * Listener of a query is notified about state transitions only: when the condition starts
+ * and stops to hold.
+ *
+ * Aggregates of a window are calculated once per tick regardless of the number of queries sharing it,
+ * so the cost depends on the number of queries and distinct windows only.
+ * Min, max and avg of an empty window are not defined, so conditions on them don't hold.
+ *
+ * Queries are evaluated by a scheduler of their own at each second boundary. Listeners are notified
+ * by a delivery executor, in order for each query, so a slow listener (e.g. a client not reading its stream)
+ * delays neither the evaluation nor other listeners. Query which listener falls behind by more than
+ * {@value #MAX_PENDING_TRANSITIONS} transitions is removed.
+ *
+ * Numbers of registered queries and transitions are exposed as public metrics.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+public class StandingQueries implements PublicMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(StandingQueries.class);
+
+    private static final String EVALUATION_CRON = "* * * * * *";
+    static final int MAX_PENDING_TRANSITIONS = 64;
+
+    /**
+     * Statistic a query condition is applied to.
+     */
+    public enum Measure {
+        SUM, AVG, MAX, MIN, COUNT
+    }
+
+    /**
+     * Comparison of the statistic with the threshold.
+     */
+    public enum Comparator {
+        GT, GE, LT, LE;
+
+        boolean test(int comparison) {
+            switch(this) {
+                case GT:
+                    return comparison > 0;
+                case GE:
+                    return comparison >= 0;
+                case LT:
+                    return comparison < 0;
+                default:
+                    return comparison <= 0;
+            }
+        }
+    }
+
+    /**
+     * Listener of the query state transitions.
+     */
+    public interface Listener {
+        /**
+         * Invoked when the query condition starts or stops to hold.
+         *
+         * @param id query id
+         * @param triggered whether the condition holds
+         * @param second second the query is evaluated at
+         * @param sum sum of transaction values of the window
+         * @param count number of transactions of the window
+         * @param min single lowest transaction value of the window
+         * @param max single highest transaction value of the window
+         */
+        void transition(long id, boolean triggered, long second, long sum, long count, long min, long max);
+    }
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final CurrentTimeFactory currentTimeFactory;
+    private final int period;
+    private final int maxQueries;
+    private final Executor deliveryExecutor;
+    private final ExecutorService ownedDeliveryExecutor;
+    private ThreadPoolTaskScheduler scheduler;
+
+    private final ConcurrentMap<Long, Query> queries = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong transitions = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Aggregates of the windows by length calculated at the evaluated second, accessed by evaluating thread only
+    private final long[] evaluatedAt;
+    private final long[] sums;
+    private final long[] counts;
+    private final long[] mins;
+    private final long[] maxs;
+    private final WindowSink windowSink = new WindowSink();
+
+    @Autowired
+    public StandingQueries(StatisticsBuffer<Statistics> statisticsBuffer,
+                           CurrentTimeFactory currentTimeFactory,
+                           @Value("${de.n26.challenge.period}") int period,
+                           @Value("${de.n26.challenge.queries.max}") int maxQueries,
+                           @Value("${de.n26.challenge.queries.delivery-threads}") int deliveryThreads) {
+        this(statisticsBuffer, currentTimeFactory, period, maxQueries, Executors.newFixedThreadPool(deliveryThreads,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "queries-delivery");
+                    thread.setDaemon(true);
+                    return thread;
+                }), true);
+    }
+
+    public StandingQueries(StatisticsBuffer<Statistics> statisticsBuffer,
+                           CurrentTimeFactory currentTimeFactory,
+                           int period,
+                           int maxQueries,
+                           Executor deliveryExecutor) {
+        this(statisticsBuffer, currentTimeFactory, period, maxQueries, deliveryExecutor, false);
+    }
+
+    private StandingQueries(StatisticsBuffer<Statistics> statisticsBuffer,
+                            CurrentTimeFactory currentTimeFactory,
+                            int period,
+                            int maxQueries,
+                            Executor deliveryExecutor,
+                            boolean ownsExecutor) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.currentTimeFactory = currentTimeFactory;
+        this.period = period;
+        this.maxQueries = maxQueries;
+        this.deliveryExecutor = deliveryExecutor;
+        this.ownedDeliveryExecutor = ownsExecutor ? (ExecutorService) deliveryExecutor : null;
+        this.evaluatedAt = new long[period + 1];
+        this.sums = new long[period + 1];
+        this.counts = new long[period + 1];
+        this.mins = new long[period + 1];
+        this.maxs = new long[period + 1];
+        Arrays.fill(evaluatedAt, Long.MIN_VALUE);
+    }
+
+    /**
+     * Starts evaluation at each second boundary by a scheduler of its own,
+     * so it is not delayed by other scheduled tasks.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("queries-evaluation-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        scheduler.schedule(this::evaluate, new CronTrigger(EVALUATION_CRON));
+    }
+
+    /**
+     * Stops evaluation and delivery, transitions not delivered yet are discarded.
+     */
+    @PreDestroy
+    public void stop() {
+        if(scheduler != null) {
+            scheduler.shutdown();
+        }
+        if(ownedDeliveryExecutor != null) {
+            ownedDeliveryExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers query. Condition is not considered to hold initially, so listener is notified
+     * at the first evaluation if it holds.
+     *
+     * @param measure statistic to apply condition to
+     * @param comparator comparison of the statistic with the threshold
+     * @param threshold threshold represented as a long value (number of transactions for count)
+     * @param windowSeconds number of the most recent seconds of the period to evaluate the query on
+     * @param listener listener to notify about state transitions
+     * @return query id or -1 if too many queries are registered
+     */
+    public long register(Measure measure, Comparator comparator, long threshold, int windowSeconds,
+                         Listener listener) {
+
+        assert windowSeconds > 0 && windowSeconds <= period;
+
+        // Limit is not strict under concurrent registrations
+        if(queries.size() >= maxQueries) {
+            return -1L;
+        }
+
+        long id = ids.incrementAndGet();
+        queries.put(id, new Query(id, measure, comparator, threshold, windowSeconds, listener));
+        return id;
+    }
+
+    /**
+     * Removes query.
+     *
+     * @param id query id
+     * @return true if query was registered
+     */
+    public boolean unregister(long id) {
+        return queries.remove(id) != null;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("queries.registered", queries.size()),
+                new Metric<>("queries.transitions", transitions.get()),
+                new Metric<>("queries.dropped", dropped.get()));
+    }
+
+    public void evaluate() {
+        evaluate(currentTimeFactory.now());
+    }
+
+    /**
+     * Evaluates all the queries and hands transitions of the ones changed the state over
+     * to the delivery executor. Expected to be invoked by a single thread.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     */
+    public void evaluate(long nowSec) {
+        for(Query query : queries.values()) {
+            int window = query.windowSeconds;
+
+            if(evaluatedAt[window] != nowSec) {
+                windowSink.window = window;
+                statisticsBuffer.calculate(nowSec, window, windowSink);
+                evaluatedAt[window] = nowSec;
+            }
+
+            boolean triggered = query.test(sums[window], counts[window], mins[window], maxs[window]);
+            if(triggered == query.triggered) {
+                continue;
+            }
+
+            query.triggered = triggered;
+            transitions.incrementAndGet();
+
+            query.enqueue(new Transition(triggered, nowSec,
+                    sums[window], counts[window], mins[window], maxs[window]));
+        }
+    }
+
+    private final class WindowSink implements StatisticsSink {
+        private int window;
+
+        @Override
+        public void accept(long sum, long count, long min, long max) {
+            sums[window] = sum;
+            counts[window] = count;
+            mins[window] = min;
+            maxs[window] = max;
+        }
+    }
+
+    private static final class Transition {
+        private final boolean triggered;
+        private final long second;
+        private final long sum;
+        private final long count;
+        private final long min;
+        private final long max;
+
+        private Transition(boolean triggered, long second, long sum, long count, long min, long max) {
+            this.triggered = triggered;
+            this.second = second;
+            this.sum = sum;
+            this.count = count;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private final class Query {
+        private final long id;
+        private final Measure measure;
+        private final Comparator comparator;
+        private final long threshold;
+        private final int windowSeconds;
+        private final Listener listener;
+        private boolean triggered;
+
+        // Transitions not delivered yet, the one which makes it non-empty schedules delivery
+        private final Queue<Transition> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+
+        private Query(long id, Measure measure, Comparator comparator, long threshold, int windowSeconds,
+                      Listener listener) {
+            this.id = id;
+            this.measure = measure;
+            this.comparator = comparator;
+            this.threshold = threshold;
+            this.windowSeconds = windowSeconds;
+            this.listener = listener;
+        }
+
+        private void enqueue(Transition transition) {
+            if(pendingCount.get() >= MAX_PENDING_TRANSITIONS) {
+                logger.warn("Listener of query {} doesn't keep up, query is removed", id);
+                dropped.incrementAndGet();
+                unregister(id);
+                return;
+            }
+
+            pending.add(transition);
+            if(pendingCount.getAndIncrement() == 0) {
+                try {
+                    deliveryExecutor.execute(this::deliver);
+                } catch (RejectedExecutionException ex) {
+                    logger.debug("Transition of query {} is not delivered, queries are stopped", id);
+                }
+            }
+        }
+
+        private void deliver() {
+            do {
+                Transition transition = pending.poll();
+
+                try {
+                    listener.transition(id, transition.triggered, transition.second,
+                            transition.sum, transition.count, transition.min, transition.max);
+                } catch (RuntimeException ex) {
+                    logger.warn("Listener of query {} failed: {}", id, ex.toString());
+                }
+            } while(pendingCount.decrementAndGet() > 0);
+        }
+
+        private boolean test(long sum, long count, long min, long max) {
+            switch(measure) {
+                case SUM:
+                    return comparator.test(Long.compare(sum, threshold));
+                case COUNT:
+                    return comparator.test(Long.compare(count, threshold));
+                case AVG:
+                    return count > 0L && comparator.test(Double.compare((double) sum / count, threshold));
+                case MIN:
+                    return count > 0L && comparator.test(Long.compare(min, threshold));
+                default:
+                    return count > 0L && comparator.test(Long.compare(max, threshold));
+            }
+        }
+    }
+}
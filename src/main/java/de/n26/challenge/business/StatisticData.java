@@ -1,25 +1,161 @@
 package de.n26.challenge.business;
 
+import java.util.Arrays;
+
 /**
  * Container to provide operations on statistics data.
  *
+ * Besides per slot data it maintains indexes kept up to date on every slot change
+ * to aggregate any range of consecutive slots without scanning them:
+ * Fenwick trees (prefix sums) for sum and count and segment trees for min and max.
+ * Both are updated and queried in O(log n) time.
+ *
+ * Slots are stored in a single array in one of the {@link Layout layouts}: columnar (a column per field)
+ * keeps each field contiguous for scans, interleaved packs all the fields of a slot together and pads
+ * the slot to 64 bytes, so fields of a slot are close to each other rather than a column apart.
+ * Slots are padded, not aligned: a long array is only 8-byte aligned (and might be moved by GC),
+ * so a slot might straddle two cache lines and share one with the adjacent second. Writes to the indexes
+ * touch other lines anyway.
+ * Full scan of the columnar layout might be done {@link CollectMode#BRANCH_FREE branch-free} to let the JIT
+ * compiler vectorize it for long periods.
+ *
+ * Slots having data are tracked by an occupancy bitmap (a bit per slot), so for long and sparse periods
+ * full scans, eviction and merging of the per slot heaps and sketches visit only occupied slots and skip
+ * empty ones 64 at a time. Branch-free scan is used only while at least 1/{@value #DENSE_RATIO} of the slots
+ * are occupied, below that visiting occupied slots is cheaper than a vectorized pass over all of them.
+ *
  * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
  */
 public class StatisticData {
+
+    /**
+     * Layout of the slots in memory.
+     */
+    public enum Layout {
+        /**
+         * Struct of arrays: a contiguous column per field.
+         */
+        COLUMNAR,
+        /**
+         * Array of structs: fields of a slot together, each slot padded to 64 bytes (not aligned to a cache line).
+         */
+        INTERLEAVED
+    }
+
+    /**
+     * Implementation of the full scan aggregation.
+     */
+    public enum CollectMode {
+        /**
+         * Single loop over slots aggregating all the fields.
+         */
+        SCALAR,
+        /**
+         * Loop per column without branches which the JIT compiler is able to unroll and vectorize.
+         * Applies to the columnar layout only.
+         */
+        BRANCH_FREE
+    }
+
+    private static final int AMOUNT = 0;
+    private static final int COUNT = 1;
+    private static final int MIN = 2;
+    private static final int MAX = 3;
+    private static final int TIMESTAMP = 4;
+    private static final int FIELDS = 5;
+
+    // Longs per cache line, interleaved slot is padded (not aligned) to it
+    private static final int LINE_LONGS = 8;
+
+    // Branch-free scan is used if more than 1/DENSE_RATIO of the slots are occupied
+    static final int DENSE_RATIO = 8;
+
     private final int size;
-    private final long[] amounts;
-    private final long[] counts;
-    private final long[] mins;
-    private final long[] maxs;
-    private final long[] timestamps;
+    private final Layout layout;
+    private final CollectMode collectMode;
+    // Field of a slot is at cursor * slotStride + field offset
+    private final long[] slots;
+    private final int slotStride;
+    private final int amountOffset;
+    private final int countOffset;
+    private final int minOffset;
+    private final int maxOffset;
+    private final int timestampOffset;
+
+    // Fenwick trees, 1-based
+    private final long[] amountTree;
+    private final long[] countTree;
+    // Segment trees, leaves start at size, empty slot min is Long.MAX_VALUE
+    private final long[] minTree;
+    private final long[] maxTree;
+
+    // Min-heaps of the largest amounts, heap of a slot is at cursor * largestCapacity
+    private final int largestCapacity;
+    private final long[] largest;
+    private final int[] largestSizes;
+
+    // HyperLogLog registers, sketch of a slot is at cursor * distinctRegisters
+    private final int distinctPrecision;
+    private final int distinctRegisters;
+    private final byte[] sketches;
+
+    // Bit per slot having data
+    private final long[] occupied;
+    private int occupiedSlots;
 
     public StatisticData(int size) {
+        this(size, Layout.COLUMNAR, CollectMode.SCALAR, 0, 0);
+    }
+
+    public StatisticData(int size, Layout layout, CollectMode collectMode, int largestCapacity,
+                         int distinctPrecision) {
+        if(distinctPrecision != 0 && (distinctPrecision < HyperLogLog.MIN_PRECISION
+                || distinctPrecision > HyperLogLog.MAX_PRECISION)) {
+            throw new IllegalArgumentException("Distinct precision must be 0 or between "
+                    + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION);
+        }
+
         this.size = size;
-        amounts = new long[size];
-        counts = new long[size];
-        mins = new long[size];
-        maxs = new long[size];
-        timestamps = new long[size];
+        this.layout = layout;
+        this.collectMode = collectMode;
+
+        int base;
+        int fieldStride;
+
+        if(layout == Layout.INTERLEAVED) {
+            // Leading and trailing padding so slots don't share lines with the array header or neighbouring objects
+            slots = new long[(size + 2) * LINE_LONGS];
+            base = LINE_LONGS;
+            slotStride = LINE_LONGS;
+            fieldStride = 1;
+        } else {
+            slots = new long[size * FIELDS];
+            base = 0;
+            slotStride = 1;
+            fieldStride = size;
+        }
+
+        amountOffset = base + AMOUNT * fieldStride;
+        countOffset = base + COUNT * fieldStride;
+        minOffset = base + MIN * fieldStride;
+        maxOffset = base + MAX * fieldStride;
+        timestampOffset = base + TIMESTAMP * fieldStride;
+
+        amountTree = new long[size + 1];
+        countTree = new long[size + 1];
+        minTree = new long[2 * size];
+        maxTree = new long[2 * size];
+        Arrays.fill(minTree, Long.MAX_VALUE);
+
+        this.largestCapacity = largestCapacity;
+        this.largest = new long[size * largestCapacity];
+        this.largestSizes = new int[largestCapacity == 0 ? 0 : size];
+
+        this.distinctPrecision = distinctPrecision;
+        this.distinctRegisters = distinctPrecision == 0 ? 0 : 1 << distinctPrecision;
+        this.sketches = new byte[size * distinctRegisters];
+
+        this.occupied = new long[(size + Long.SIZE - 1) / Long.SIZE];
     }
 
     /**
@@ -31,11 +167,32 @@ public class StatisticData {
 
         assert cursor < size;
 
-        amounts[cursor] = 0L;
-        counts[cursor] = 0L;
-        mins[cursor] = 0L;
-        maxs[cursor] = 0L;
-        timestamps[cursor] = 0L;
+        int slot = cursor * slotStride;
+
+        if(slots[slot + countOffset] != 0L) {
+            updateSums(cursor, -slots[slot + amountOffset], -slots[slot + countOffset]);
+        }
+
+        slots[slot + amountOffset] = 0L;
+        slots[slot + countOffset] = 0L;
+        slots[slot + minOffset] = 0L;
+        slots[slot + maxOffset] = 0L;
+        slots[slot + timestampOffset] = 0L;
+
+        if(largestCapacity > 0) {
+            largestSizes[cursor] = 0;
+        }
+
+        if(distinctRegisters > 0) {
+            Arrays.fill(sketches, cursor * distinctRegisters, (cursor + 1) * distinctRegisters, (byte) 0);
+        }
+
+        if(isOccupied(cursor)) {
+            occupied[cursor >>> 6] &= ~(1L << cursor);
+            occupiedSlots--;
+        }
+
+        updateMinMax(cursor);
     }
 
     /**
@@ -51,19 +208,96 @@ public class StatisticData {
         assert amount > 0L;
         assert timestamp > 0L;
 
-        amounts[cursor] += amount;
-        counts[cursor]++;
+        int slot = cursor * slotStride;
+
+        slots[slot + amountOffset] += amount;
+        slots[slot + countOffset]++;
 
         // Assuming no zero amount transactions
-        if(mins[cursor] == 0 || mins[cursor] > amount) {
-            mins[cursor] = amount;
+        if(slots[slot + minOffset] == 0 || slots[slot + minOffset] > amount) {
+            slots[slot + minOffset] = amount;
+        }
+
+        if(slots[slot + maxOffset] < amount) {
+            slots[slot + maxOffset] = amount;
+        }
+
+        slots[slot + timestampOffset] = timestamp;
+
+        if(largestCapacity > 0) {
+            offerLargest(cursor, amount);
+        }
+
+        occupy(cursor);
+        updateSums(cursor, amount, 1L);
+        updateMinMax(cursor);
+    }
+
+    /**
+     * Add account hash to the sketch at the certain position according to the cursor.
+     *
+     * @param cursor current cursor position
+     * @param register register the hash is routed to (see {@link HyperLogLog#register(long, int)})
+     * @param rank rank of the hash (see {@link HyperLogLog#rank(long, int)})
+     * @return true if the register is raised
+     */
+    public boolean addDistinct(int cursor, int register, byte rank) {
+
+        assert cursor < size && register < distinctRegisters;
+
+        int index = cursor * distinctRegisters + register;
+
+        if(sketches[index] >= rank) {
+            return false;
         }
 
-        if(maxs[cursor] < amount) {
-            maxs[cursor] = amount;
+        sketches[index] = rank;
+        return true;
+    }
+
+    /**
+     * Merge aggregated data to the certain position according to the cursor and save timestamp for it.
+     *
+     * @param cursor current cursor position
+     * @param sum sum of transaction values to merge
+     * @param count number of transactions to merge
+     * @param min single lowest transaction value to merge
+     * @param max single highest transaction value to merge
+     * @param timestamp timestamp of the aggregated data
+     */
+    public void merge(int cursor, long sum, long count, long min, long max, long timestamp) {
+
+        assert cursor < size;
+        assert timestamp > 0L;
+
+        if(count == 0L) {
+            return;
+        }
+
+        int slot = cursor * slotStride;
+
+        slots[slot + amountOffset] += sum;
+        slots[slot + countOffset] += count;
+
+        // Assuming no zero amount transactions
+        if(slots[slot + minOffset] == 0 || slots[slot + minOffset] > min) {
+            slots[slot + minOffset] = min;
+        }
+
+        if(slots[slot + maxOffset] < max) {
+            slots[slot + maxOffset] = max;
+        }
+
+        slots[slot + timestampOffset] = timestamp;
+
+        // Only the max of the aggregated data is known to be an individual amount
+        if(largestCapacity > 0) {
+            offerLargest(cursor, max);
         }
 
-        timestamps[cursor] = timestamp;
+        occupy(cursor);
+        updateSums(cursor, sum, count);
+        updateMinMax(cursor);
     }
 
     /**
@@ -75,52 +309,596 @@ public class StatisticData {
      * @return aggregated and transformed into needed type statistic data
      */
     public <T> T collect(StatisticsCollector<T> collector) {
+        return collect(collector, -1);
+    }
+
+    /**
+     * Calculate aggregated statistic data skipping the given cursor position and pass to
+     * collector to transform into type demanded by superior logic.
+     *
+     * @param collector collector to accept aggregated data and transform it into needed type
+     * @param skipCursor cursor position to skip
+     * @param <T> type to transform aggregated data into
+     * @return aggregated and transformed into needed type statistic data
+     */
+    public <T> T collect(StatisticsCollector<T> collector, int skipCursor) {
 
         assert collector != null;
 
+        if(collectMode == CollectMode.BRANCH_FREE && layout == Layout.COLUMNAR
+                && (long) occupiedSlots * DENSE_RATIO >= size) {
+            return collectBranchFree(collector, skipCursor);
+        }
+
         long sum = 0;
         long count = 0;
         long maximum = 0;
         long minimum = 0;
 
-        for(int i = 0; i < size; i++) {
-            sum += amounts[i];
-            count += counts[i];
+        for(int i = nextOccupied(0); i >= 0; i = nextOccupied(i + 1)) {
+            if(i == skipCursor) {
+                continue;
+            }
+
+            int slot = i * slotStride;
+
+            sum += slots[slot + amountOffset];
+            count += slots[slot + countOffset];
 
             // Assuming no zero amount transactions
-            if((minimum == 0 || minimum > mins[i]) && mins[i] != 0) {
-                minimum = mins[i];
+            if((minimum == 0 || minimum > slots[slot + minOffset]) && slots[slot + minOffset] != 0) {
+                minimum = slots[slot + minOffset];
             }
 
-            if(maximum < maxs[i]) {
-                maximum = maxs[i];
+            if(maximum < slots[slot + maxOffset]) {
+                maximum = slots[slot + maxOffset];
             }
         }
 
         return collector.collectStatistics(sum, count, minimum, maximum);
     }
 
+    /**
+     * Calculate aggregated statistic data of consecutive slots using indexes and pass to
+     * collector to transform into type demanded by superior logic.
+     * Range wraps around the end of the slots, so any sub-window of the ring might be aggregated.
+     *
+     * @param collector collector to accept aggregated data and transform it into needed type
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     * @param <T> type to transform aggregated data into
+     * @return aggregated and transformed into needed type statistic data or empty statistics
+     * if there is no data in the range
+     */
+    public <T> T collect(StatisticsCollector<T> collector, int fromCursor, int length) {
+
+        assert collector != null;
+
+        CollectingSink<T> sink = new CollectingSink<>(collector);
+        collect(sink, fromCursor, length);
+        return sink.result;
+    }
+
+    /**
+     * Calculate aggregated statistic data of consecutive slots using indexes and pass to sink.
+     * Range wraps around the end of the slots, so any sub-window of the ring might be aggregated.
+     *
+     * @param sink sink to accept aggregated data
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     */
+    public void collect(StatisticsSink sink, int fromCursor, int length) {
+
+        assert sink != null;
+
+        long count = getCount(fromCursor, length);
+
+        if(count == 0L) {
+            sink.accept(0L, 0L, 0L, 0L);
+        } else {
+            sink.accept(
+                    getAmount(fromCursor, length),
+                    count,
+                    getMin(fromCursor, length),
+                    getMax(fromCursor, length));
+        }
+    }
+
+    /**
+     * Sum of the amounts of consecutive slots, range wraps around the end of the slots.
+     *
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     * @return sum of the amounts in the range
+     */
+    public long getAmount(int fromCursor, int length) {
+        return ringSum(amountTree, fromCursor, length);
+    }
+
+    /**
+     * Number of transactions of consecutive slots, range wraps around the end of the slots.
+     *
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     * @return number of transactions in the range
+     */
+    public long getCount(int fromCursor, int length) {
+        return ringSum(countTree, fromCursor, length);
+    }
+
+    /**
+     * Lowest amount of consecutive slots, range wraps around the end of the slots.
+     *
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     * @return lowest amount in the range or {@link Long#MAX_VALUE} if there is no data in the range
+     */
+    public long getMin(int fromCursor, int length) {
+
+        assert fromCursor < size && length <= size;
+
+        int toCursor = fromCursor + length;
+
+        return toCursor <= size
+                ? rangeMin(fromCursor, toCursor)
+                : Math.min(rangeMin(fromCursor, size), rangeMin(0, toCursor - size));
+    }
+
+    /**
+     * Highest amount of consecutive slots, range wraps around the end of the slots.
+     *
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     * @return highest amount in the range or 0 if there is no data in the range
+     */
+    public long getMax(int fromCursor, int length) {
+
+        assert fromCursor < size && length <= size;
+
+        int toCursor = fromCursor + length;
+
+        return toCursor <= size
+                ? rangeMax(fromCursor, toCursor)
+                : Math.max(rangeMax(fromCursor, size), rangeMax(0, toCursor - size));
+    }
+
+    /**
+     * Find the largest amounts kept by the slots having transactions and pass them with the slot timestamps
+     * to sink in descending order of amounts.
+     *
+     * @param n maximum number of amounts to find, not more than the capacity of the slot heaps is guaranteed
+     *          to be exact
+     * @param sink sink to accept amounts with timestamps
+     */
+    public void collectLargest(int n, LargestSink sink) {
+
+        assert n > 0;
+
+        if(largestCapacity == 0) {
+            return;
+        }
+
+        // Min-heap of the n largest amounts with the cursors they come from
+        long[] amounts = new long[n];
+        int[] cursors = new int[n];
+        int found = 0;
+
+        for(int cursor = nextOccupied(0); cursor >= 0; cursor = nextOccupied(cursor + 1)) {
+            int heap = cursor * largestCapacity;
+
+            for(int i = 0; i < largestSizes[cursor]; i++) {
+                long amount = largest[heap + i];
+
+                if(found < n) {
+                    amounts[found] = amount;
+                    cursors[found] = cursor;
+                    siftUp(amounts, cursors, found++);
+                } else if(amount > amounts[0]) {
+                    amounts[0] = amount;
+                    cursors[0] = cursor;
+                    siftDown(amounts, cursors, 0, n);
+                }
+            }
+        }
+
+        // Heap sort leaves the amounts in descending order
+        for(int last = found - 1; last > 0; last--) {
+            swap(amounts, cursors, 0, last);
+            siftDown(amounts, cursors, 0, last);
+        }
+
+        for(int i = 0; i < found; i++) {
+            sink.accept(amounts[i], getTimestamp(cursors[i]));
+        }
+    }
+
+    /**
+     * Estimate number of distinct accounts of consecutive slots by the union of their sketches,
+     * range wraps around the end of the slots. Takes time proportional to the number of registers
+     * times the number of occupied slots of the range, nothing is allocated.
+     *
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     * @param union registers to write the union to, at least {@link #getDistinctRegisters()} long
+     * @return estimated number of distinct accounts or -1 if sketches are disabled
+     */
+    public long getDistinct(int fromCursor, int length, byte[] union) {
+        if(distinctRegisters == 0) {
+            return -1L;
+        }
+
+        unionDistinct(union, fromCursor, length);
+
+        double inverseSum = 0d;
+        int zeros = 0;
+        for(int register = 0; register < distinctRegisters; register++) {
+            inverseSum += HyperLogLog.inverse(union[register]);
+            if(union[register] == 0) {
+                zeros++;
+            }
+        }
+
+        return HyperLogLog.estimate(inverseSum, zeros, distinctRegisters);
+    }
+
+    /**
+     * Union sketches of all the slots.
+     *
+     * @param union registers to write the union to, at least {@link #getDistinctRegisters()} long
+     */
+    public void unionDistinct(byte[] union) {
+        unionDistinct(union, 0, size);
+    }
+
+    /**
+     * Union sketches of consecutive slots, range wraps around the end of the slots.
+     * Only occupied slots are visited, registers of a slot are read sequentially.
+     *
+     * @param union registers to write the union to, at least {@link #getDistinctRegisters()} long
+     * @param fromCursor cursor position of the first slot of the range
+     * @param length number of slots in the range
+     */
+    public void unionDistinct(byte[] union, int fromCursor, int length) {
+
+        assert fromCursor < size && length <= size;
+
+        Arrays.fill(union, 0, distinctRegisters, (byte) 0);
+
+        int toCursor = fromCursor + length;
+
+        if(toCursor <= size) {
+            unionRange(union, fromCursor, toCursor);
+        } else {
+            unionRange(union, fromCursor, size);
+            unionRange(union, 0, toCursor - size);
+        }
+    }
+
+    /**
+     * @param cursor cursor position
+     * @return true if the slot has data
+     */
+    public boolean isOccupied(int cursor) {
+        return (occupied[cursor >>> 6] & (1L << cursor)) != 0L;
+    }
+
+    /**
+     * Find the first slot having data at or after the given cursor position, doesn't wrap around
+     * the end of the slots. Takes time proportional to the number of bitmap words skipped.
+     *
+     * @param fromCursor cursor position to start from (inclusive), might be equal to the size
+     * @return cursor position of the occupied slot or -1 if there is none
+     */
+    public int nextOccupied(int fromCursor) {
+        if(fromCursor >= size) {
+            return -1;
+        }
+
+        int word = fromCursor >>> 6;
+        long bits = occupied[word] & (-1L << fromCursor);
+
+        while(bits == 0L) {
+            if(++word == occupied.length) {
+                return -1;
+            }
+
+            bits = occupied[word];
+        }
+
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * @return number of the slots having data
+     */
+    public int getOccupied() {
+        return occupiedSlots;
+    }
+
     public int size() {
         return size;
     }
 
+    public int getDistinctPrecision() {
+        return distinctPrecision;
+    }
+
+    public int getDistinctRegisters() {
+        return distinctRegisters;
+    }
+
+    public int getLargestCapacity() {
+        return largestCapacity;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
     public long getAmount(int cursor) {
-        return amounts[cursor];
+        return slots[cursor * slotStride + amountOffset];
     }
 
     public long getCount(int cursor) {
-        return counts[cursor];
+        return slots[cursor * slotStride + countOffset];
     }
 
     public long getMin(int cursor) {
-        return mins[cursor];
+        return slots[cursor * slotStride + minOffset];
     }
 
     public long getMax(int cursor) {
-        return maxs[cursor];
+        return slots[cursor * slotStride + maxOffset];
     }
 
     public long getTimestamp(int cursor) {
-        return timestamps[cursor];
+        return slots[cursor * slotStride + timestampOffset];
+    }
+
+    // Aggregates column by column around the skipped slot, so every loop is a plain reduction
+    private <T> T collectBranchFree(StatisticsCollector<T> collector, int skipCursor) {
+        int from = skipCursor + 1;
+
+        long sum = sumColumn(amountOffset, 0, skipCursor) + sumColumn(amountOffset, from, size);
+        long count = sumColumn(countOffset, 0, skipCursor) + sumColumn(countOffset, from, size);
+        long maximum = Math.max(maxColumn(maxOffset, 0, skipCursor), maxColumn(maxOffset, from, size));
+        long minimum = Math.min(minKeyColumn(0, skipCursor), minKeyColumn(from, size)) - Long.MAX_VALUE;
+
+        return collector.collectStatistics(sum, count, minimum, maximum);
+    }
+
+    private long sumColumn(int offset, int from, int to) {
+        long sum = 0L;
+
+        for(int i = offset + from; i < offset + to; i++) {
+            sum += slots[i];
+        }
+
+        return sum;
+    }
+
+    private long maxColumn(int offset, int from, int to) {
+        long maximum = 0L;
+
+        for(int i = offset + from; i < offset + to; i++) {
+            maximum = Math.max(maximum, slots[i]);
+        }
+
+        return maximum;
+    }
+
+    // Min of (min + Long.MAX_VALUE) which wraps empty slot (zero) to the highest key
+    // and keeps the order of positive values, so no branch is needed to skip empty slots
+    private long minKeyColumn(int from, int to) {
+        long minimum = Long.MAX_VALUE;
+
+        for(int i = minOffset + from; i < minOffset + to; i++) {
+            minimum = Math.min(minimum, slots[i] + Long.MAX_VALUE);
+        }
+
+        return minimum;
+    }
+
+    private void offerLargest(int cursor, long amount) {
+        int heap = cursor * largestCapacity;
+        int heapSize = largestSizes[cursor];
+
+        if(heapSize < largestCapacity) {
+            int i = heapSize;
+            largestSizes[cursor] = heapSize + 1;
+
+            for(int parent = (i - 1) >> 1; i > 0 && largest[heap + parent] > amount; parent = (i - 1) >> 1) {
+                largest[heap + i] = largest[heap + parent];
+                i = parent;
+            }
+
+            largest[heap + i] = amount;
+        } else if(amount > largest[heap]) {
+            int i = 0;
+
+            for(int child = 1; child < largestCapacity; child = 2 * i + 1) {
+                if(child + 1 < largestCapacity && largest[heap + child + 1] < largest[heap + child]) {
+                    child++;
+                }
+
+                if(largest[heap + child] >= amount) {
+                    break;
+                }
+
+                largest[heap + i] = largest[heap + child];
+                i = child;
+            }
+
+            largest[heap + i] = amount;
+        }
+    }
+
+    private static void siftUp(long[] amounts, int[] cursors, int i) {
+        for(int parent = (i - 1) >> 1; i > 0 && amounts[parent] > amounts[i]; parent = (i - 1) >> 1) {
+            swap(amounts, cursors, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] amounts, int[] cursors, int i, int length) {
+        for(int child = 2 * i + 1; child < length; child = 2 * i + 1) {
+            if(child + 1 < length && amounts[child + 1] < amounts[child]) {
+                child++;
+            }
+
+            if(amounts[child] >= amounts[i]) {
+                return;
+            }
+
+            swap(amounts, cursors, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(long[] amounts, int[] cursors, int i, int j) {
+        long amount = amounts[i];
+        amounts[i] = amounts[j];
+        amounts[j] = amount;
+
+        int cursor = cursors[i];
+        cursors[i] = cursors[j];
+        cursors[j] = cursor;
+    }
+
+    private void occupy(int cursor) {
+        if(!isOccupied(cursor)) {
+            occupied[cursor >>> 6] |= 1L << cursor;
+            occupiedSlots++;
+        }
+    }
+
+    // Raises union registers by the sketches of the occupied slots from (inclusive) to (exclusive)
+    private void unionRange(byte[] union, int from, int to) {
+        for(int cursor = nextOccupied(from); cursor >= 0 && cursor < to; cursor = nextOccupied(cursor + 1)) {
+            int sketch = cursor * distinctRegisters;
+
+            for(int register = 0; register < distinctRegisters; register++) {
+                union[register] = (byte) Math.max(union[register], sketches[sketch + register]);
+            }
+        }
+    }
+
+    private void updateSums(int cursor, long amountDelta, long countDelta) {
+        for(int i = cursor + 1; i <= size; i += i & -i) {
+            amountTree[i] += amountDelta;
+            countTree[i] += countDelta;
+        }
+    }
+
+    private void updateMinMax(int cursor) {
+        int slot = cursor * slotStride;
+        int i = cursor + size;
+        minTree[i] = slots[slot + countOffset] == 0L ? Long.MAX_VALUE : slots[slot + minOffset];
+        maxTree[i] = slots[slot + maxOffset];
+
+        for(i >>= 1; i > 0; i >>= 1) {
+            minTree[i] = Math.min(minTree[2 * i], minTree[2 * i + 1]);
+            maxTree[i] = Math.max(maxTree[2 * i], maxTree[2 * i + 1]);
+        }
+    }
+
+    private long ringSum(long[] tree, int fromCursor, int length) {
+
+        assert fromCursor < size && length <= size;
+
+        int toCursor = fromCursor + length;
+
+        return toCursor <= size
+                ? rangeSum(tree, fromCursor, toCursor)
+                : rangeSum(tree, fromCursor, size) + rangeSum(tree, 0, toCursor - size);
+    }
+
+    // Sum of slots from (inclusive) to (exclusive)
+    private static long rangeSum(long[] tree, int from, int to) {
+        long sum = 0L;
+
+        for(int i = to; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+
+        for(int i = from; i > 0; i -= i & -i) {
+            sum -= tree[i];
+        }
+
+        return sum;
+    }
+
+    private long rangeMin(int from, int to) {
+        long minimum = Long.MAX_VALUE;
+
+        for(int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+            if((l & 1) == 1) {
+                minimum = Math.min(minimum, minTree[l++]);
+            }
+
+            if((r & 1) == 1) {
+                minimum = Math.min(minimum, minTree[--r]);
+            }
+        }
+
+        return minimum;
+    }
+
+    private long rangeMax(int from, int to) {
+        long maximum = 0L;
+
+        for(int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+            if((l & 1) == 1) {
+                maximum = Math.max(maximum, maxTree[l++]);
+            }
+
+            if((r & 1) == 1) {
+                maximum = Math.max(maximum, maxTree[--r]);
+            }
+        }
+
+        return maximum;
+    }
+
+    /**
+     * Sink to accept the largest amounts one by one.
+     */
+    public interface LargestSink {
+        /**
+         * @param amount amount represented as a long value
+         * @param timestamp timestamp of the slot the amount is added to
+         */
+        void accept(long amount, long timestamp);
+    }
+
+    /**
+     * Sink to transform accepted statistic data with collector.
+     *
+     * @param <T> type to transform aggregated data into
+     */
+    static final class CollectingSink<T> implements StatisticsSink {
+        private final StatisticsCollector<T> collector;
+        private T result;
+
+        CollectingSink(StatisticsCollector<T> collector) {
+            this.collector = collector;
+        }
+
+        @Override
+        public void accept(long sum, long count, long min, long max) {
+            result = count == 0L
+                    ? collector.emptyStatistics()
+                    : collector.collectStatistics(sum, count, min, max);
+        }
+
+        // Empty statistics carry distinct accounts too if they are counted
+        @Override
+        public void accept(long sum, long count, long min, long max, long distinct) {
+            result = collector.collectStatistics(sum, count, min, max, distinct);
+        }
+
+        T getResult() {
+            return result;
+        }
     }
 }
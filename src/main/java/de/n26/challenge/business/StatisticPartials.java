@@ -0,0 +1,145 @@
+package de.n26.challenge.business;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Per second partial aggregates (sum, count, min and max) of statistic data
+ * exported by a node to be merged with partials of other nodes.
+ *
+ * Binary format (big-endian): magic number and number of slots as ints followed
+ * by second, sum, count, min and max as longs for each slot.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class StatisticPartials {
+    private static final int MAGIC = 0x4E323650;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int SLOT_BYTES = 5 * Long.BYTES;
+
+    private final long[] seconds;
+    private final long[] sums;
+    private final long[] counts;
+    private final long[] mins;
+    private final long[] maxs;
+    private int size;
+
+    public StatisticPartials(int capacity) {
+        seconds = new long[capacity];
+        sums = new long[capacity];
+        counts = new long[capacity];
+        mins = new long[capacity];
+        maxs = new long[capacity];
+    }
+
+    /**
+     * Add partial aggregate of the second.
+     *
+     * @param second second the data is aggregated for
+     * @param sum sum of transaction values
+     * @param count number of transactions
+     * @param min single lowest transaction value
+     * @param max single highest transaction value
+     */
+    public void add(long second, long sum, long count, long min, long max) {
+
+        assert size < seconds.length;
+
+        seconds[size] = second;
+        sums[size] = sum;
+        counts[size] = count;
+        mins[size] = min;
+        maxs[size] = max;
+        size++;
+    }
+
+    /**
+     * Merge partials which fit the period ending with the given second into the statistic data
+     * by second, so partials of the same second from different nodes end up in the same slot.
+     *
+     * @param statisticData statistic data to merge partials into
+     * @param nowSec current time represented in seconds (truncated)
+     */
+    public void mergeInto(StatisticData statisticData, long nowSec) {
+        int period = statisticData.size();
+
+        for(int i = 0; i < size; i++) {
+            if(nowSec - seconds[i] < period && seconds[i] <= nowSec) {
+                statisticData.merge(
+                        (int) Math.floorMod(seconds[i], (long) period),
+                        sums[i], counts[i], mins[i], maxs[i], seconds[i]);
+            }
+        }
+    }
+
+    /**
+     * Encode partials into binary representation.
+     *
+     * @return encoded partials
+     */
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + size * SLOT_BYTES);
+        buffer.putInt(MAGIC);
+        buffer.putInt(size);
+
+        for(int i = 0; i < size; i++) {
+            buffer.putLong(seconds[i]);
+            buffer.putLong(sums[i]);
+            buffer.putLong(counts[i]);
+            buffer.putLong(mins[i]);
+            buffer.putLong(maxs[i]);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Decode partials from binary representation.
+     *
+     * @param bytes encoded partials
+     * @return decoded partials
+     * @throws IllegalArgumentException if bytes are not encoded partials
+     */
+    public static StatisticPartials decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        if(bytes.length < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a statistic partials data");
+        }
+
+        int size = buffer.getInt();
+        if(size < 0 || buffer.remaining() != (long) size * SLOT_BYTES) {
+            throw new IllegalArgumentException("Statistic partials data is corrupted");
+        }
+
+        StatisticPartials partials = new StatisticPartials(size);
+        for(int i = 0; i < size; i++) {
+            partials.add(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        return partials;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getSecond(int i) {
+        return seconds[i];
+    }
+
+    public long getSum(int i) {
+        return sums[i];
+    }
+
+    public long getCount(int i) {
+        return counts[i];
+    }
+
+    public long getMin(int i) {
+        return mins[i];
+    }
+
+    public long getMax(int i) {
+        return maxs[i];
+    }
+}
@@ -1,22 +1,55 @@
 package de.n26.challenge.business;
 
+import de.n26.challenge.util.Hashes;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Thread-safe bounded buffer to store statistic data with additional logic to
  * fit time boundaries. Implemented in circular fashion with per second data aggregation to allow constant
- * time and memory operations. Outdated data is cleaned on each invocation of public class methods.
+ * time and memory operations. Slot of a second is its remainder of division by the period, so any period
+ * is supported. Eviction, partials and replication visit only occupied slots (see {@link StatisticData}),
+ * so for long periods with sparse traffic they cost time proportional to the occupied slots
+ * and the words of the occupancy bitmap rather than to the period.
+ *
+ * Expiry is owned by {@link #tick(long)} which is expected to be invoked at each second boundary
+ * (see {@link StatisticsTicker}). A tick rolls the ring to the new second, resets slots which fell out
+ * of the period and recalculates aggregates of the whole window. So the hot paths only touch the slot
+ * of the transaction second: {@link #add(long, long, long)} merges transaction into the window aggregates
+ * in place (nothing is allocated per write) and {@link #calculate(long)} just reads them.
+ * If the ticker lags behind the clock passed to the public methods the roll is done in place,
+ * so results never depend on the ticker precision.
+ *
+ * Writers take the write lock of a single {@link StampedLock}. Reads are optimistic: aggregates (either
+ * the window ones or the sub-window ones from the {@link StatisticData} indexes) are copied under a stamp
+ * which is validated afterwards and the read is retried if a writer interfered. Only after
+ * {@value #OPTIMISTIC_READ_ATTEMPTS} failed attempts (which means pathological write contention)
+ * the read lock is taken, so in practice reads never block writers and never wait behind them.
+ *
  * Unlikely there will be a high contention ratio (roughly it must be more than 10 millions requests per second on
- * computer with Intel Core i3-3110M @ 2.40GHz processor for that) so synchronization with the
- * {@link StatisticsBuffer#statisticData} monitor is used.
+ * computer with Intel Core i3-3110M @ 2.40GHz processor for that) so a single lock is used.
+ * Lock is used instead of synchronized as a virtual thread blocked on a monitor pins its carrier thread
+ * (see {@link de.n26.challenge.api.ExecutorConfiguration}). Note that {@link StampedLock} is not reentrant.
+ *
+ * If enabled, distinct accounts are counted by {@link HyperLogLog} sketches: a sketch per slot and the union of the
+ * window maintained the same way as the other window aggregates (raised in place by adds, rebuilt by ticks) along
+ * with its harmonic sum, so the window estimate is read in constant time. Sub-window is estimated by the union
+ * of its slots at read time: the union takes time proportional to the registers times the occupied slots,
+ * so such reads take the read lock instead of being retried.
+ *
+ * If enabled, flight recorder events are emitted for adds (including lock wait), rolls and calculations
+ * (see {@link BufferAddEvent}, {@link BufferRollEvent} and {@link BufferCalculateEvent}), otherwise
+ * the only overhead is a check of a flag.
  *
  * For more performant solution the options might be:
- *  - in case of high contention - use locks instead of synchronized
  *  - in case time discrepancy is mostly limited - to use lock per aggregation unit - second or several seconds
  *  (implementation might be based on {@link java.util.concurrent.ConcurrentHashMap})
  *  - some more advanced lock-free solution like LMAX Disruptor with multiple consumers pre-calculating
@@ -27,148 +60,653 @@ import java.time.ZoneOffset;
 @Component
 public class StatisticsBuffer<T> {
 
-    private static final int NOT_INITIALIZED_CURSOR = -1;
+    static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    /**
+     * Account hash of transactions without account.
+     */
+    public static final long NO_ACCOUNT = 0L;
 
     private final StatisticData statisticData;
     private final StatisticsCollector<T> collector;
-    private long oldestTimestamp = 0L;
-    private int oldestPosition = NOT_INITIALIZED_CURSOR;
+    private final int period;
+    private final StampedLock lock = new StampedLock();
+    // Slots changed since the last replication, guarded by lock
+    private final boolean[] changed;
+    private final List<StatisticsBufferListener> listeners = new CopyOnWriteArrayList<>();
+    private boolean eventsEnabled;
+
+    // Second the ring is rolled to, read without lock to decide whether to roll
+    private volatile long second;
+
+    // Aggregates of the window, written under write lock and read optimistically
+    private long windowSum;
+    private long windowCount;
+    private long windowMin;
+    private long windowMax;
+    // Union of the slot sketches with sum of 2^-rank and number of zero registers, guarded the same way
+    private final byte[] windowRegisters;
+    private double windowInverseSum;
+    private int windowZeros;
+    // Union of the sub-window sketches, reused by the readers one at a time
+    private final byte[] subWindowRegisters;
+    private final Lock subWindowRegistersLock = new ReentrantLock();
 
     @Autowired
-    public StatisticsBuffer(@Value("${de.n26.challenge.period}") int period, StatisticsCollector<T> collector) {
-        this.statisticData = new StatisticData(period);
+    public StatisticsBuffer(@Value("${de.n26.challenge.period}") int period,
+                            @Value("${de.n26.challenge.slot-layout}") String layout,
+                            @Value("${de.n26.challenge.collect-mode}") String collectMode,
+                            @Value("${de.n26.challenge.largest.capacity}") int largestCapacity,
+                            @Value("${de.n26.challenge.distinct.precision}") int distinctPrecision,
+                            StatisticsCollector<T> collector) {
+        this(period,
+                StatisticData.Layout.valueOf(layout.toUpperCase(Locale.ROOT)),
+                StatisticData.CollectMode.valueOf(collectMode.toUpperCase(Locale.ROOT).replace('-', '_')),
+                largestCapacity,
+                distinctPrecision,
+                collector);
+    }
+
+    public StatisticsBuffer(int period, StatisticsCollector<T> collector) {
+        this(period, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR, 0, 0, collector);
+    }
+
+    public StatisticsBuffer(int period,
+                            StatisticData.Layout layout,
+                            StatisticData.CollectMode collectMode,
+                            int largestCapacity,
+                            int distinctPrecision,
+                            StatisticsCollector<T> collector) {
+        this.statisticData = new StatisticData(period, layout, collectMode, largestCapacity, distinctPrecision);
         this.collector = collector;
+        this.period = period;
+        this.changed = new boolean[period];
+        this.windowRegisters = new byte[statisticData.getDistinctRegisters()];
+        this.subWindowRegisters = new byte[statisticData.getDistinctRegisters()];
+        this.windowInverseSum = windowRegisters.length;
+        this.windowZeros = windowRegisters.length;
+    }
+
+    /**
+     * Hashes account for distinct accounts counting, no objects are created.
+     *
+     * @param account account identifier, might be null
+     * @return account hash or {@link #NO_ACCOUNT} if account is null
+     */
+    public static long accountHash(String account) {
+        if(account == null) {
+            return NO_ACCOUNT;
+        }
+
+        long hash = Hashes.mix(Hashes.hash(account));
+        return hash == NO_ACCOUNT ? 1L : hash;
+    }
+
+    /**
+     * Registers listeners to be notified about slot lifecycle events.
+     *
+     * @param listeners listeners to register
+     */
+    @Autowired(required = false)
+    public void setListeners(List<StatisticsBufferListener> listeners) {
+        this.listeners.addAll(listeners);
+    }
+
+    /**
+     * Enables flight recorder events, they are recorded only if enabled in the recording settings too.
+     *
+     * @param eventsEnabled whether to emit flight recorder events
+     */
+    @Autowired
+    public void setEventsEnabled(@Value("${de.n26.challenge.jfr.enabled}") boolean eventsEnabled) {
+        this.eventsEnabled = eventsEnabled;
     }
 
     /**
      * Adds transaction data to the buffer.
-     * Before addition outdated data is cleaned.
-     * If transation is outdated or in the future - it will be skipped.
+     * If transation is outdated or in the future - it will be skipped without any locking.
      *
      * @param transactionAmountLong amount represented as a long value
      * @param transactionTimeSec transaction time represented in seconds (truncated)
      * @param nowSec current time represented in seconds (truncated)
      */
     public void add(long transactionAmountLong, long transactionTimeSec, long nowSec) {
+        add(transactionAmountLong, NO_ACCOUNT, transactionTimeSec, nowSec);
+    }
+
+    /**
+     * Adds transaction data of an account to the buffer.
+     * If transation is outdated or in the future - it will be skipped without any locking.
+     *
+     * @param transactionAmountLong amount represented as a long value
+     * @param accountHash account hash (see {@link #accountHash(String)})
+     * @param transactionTimeSec transaction time represented in seconds (truncated)
+     * @param nowSec current time represented in seconds (truncated)
+     */
+    public void add(long transactionAmountLong, long accountHash, long transactionTimeSec, long nowSec) {
 
         // Skip transactions out of the period boundaries
-        if(nowSec - transactionTimeSec >= statisticData.size() || transactionTimeSec > nowSec) {
-            // To distribute the load more evenly clear stale on each invocation
-            synchronized(statisticData) {
-                clearStale(nowSec);
-            }
+        if(nowSec - transactionTimeSec >= period || transactionTimeSec > nowSec) {
             return;
         }
 
-        int second = LocalDateTime
-                .ofEpochSecond(transactionTimeSec, 0, ZoneOffset.UTC)
-                .getSecond();
+        BufferAddEvent event = eventsEnabled ? BufferAddEvent.start() : null;
+
+        long stamp = lock.writeLock();
+        try {
+            if(event != null) {
+                event.lockAcquired();
+            }
+
+            roll(nowSec);
+            addRolled(transactionAmountLong, accountHash, transactionTimeSec);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
 
-        synchronized(statisticData) {
-            clearStale(nowSec);
-            statisticData.add(second, transactionAmountLong, transactionTimeSec);
-            setOldest(second, transactionTimeSec);
+        if(event != null) {
+            event.finish(1);
+        }
+    }
+
+    /**
+     * Adds batch of transactions to the buffer taking the lock once.
+     * Outdated transactions and transactions in the future are skipped.
+     *
+     * @param transactionAmountsLong amounts represented as a long values
+     * @param transactionTimesSec transaction times represented in seconds (truncated)
+     * @param length number of transactions in the batch
+     * @param nowSec current time represented in seconds (truncated)
+     */
+    public void add(long[] transactionAmountsLong, long[] transactionTimesSec, int length, long nowSec) {
+        add(transactionAmountsLong, null, transactionTimesSec, length, nowSec);
+    }
+
+    /**
+     * Adds batch of transactions of accounts to the buffer taking the lock once.
+     * Outdated transactions and transactions in the future are skipped.
+     *
+     * @param transactionAmountsLong amounts represented as a long values
+     * @param accountHashes account hashes (see {@link #accountHash(String)}), null if none has account
+     * @param transactionTimesSec transaction times represented in seconds (truncated)
+     * @param length number of transactions in the batch
+     * @param nowSec current time represented in seconds (truncated)
+     */
+    public void add(long[] transactionAmountsLong, long[] accountHashes, long[] transactionTimesSec, int length,
+                    long nowSec) {
+
+        assert length <= transactionAmountsLong.length && length <= transactionTimesSec.length;
+        assert accountHashes == null || length <= accountHashes.length;
+
+        BufferAddEvent event = eventsEnabled ? BufferAddEvent.start() : null;
+
+        long stamp = lock.writeLock();
+        try {
+            if(event != null) {
+                event.lockAcquired();
+            }
+
+            roll(nowSec);
+
+            for(int i = 0; i < length; i++) {
+                if(transactionTimesSec[i] <= nowSec) {
+                    addRolled(transactionAmountsLong[i],
+                            accountHashes == null ? NO_ACCOUNT : accountHashes[i],
+                            transactionTimesSec[i]);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if(event != null) {
+            event.finish(length);
         }
     }
 
     /**
      * Return statistic data aggregated for period stored in the buffer.
-     * Before calculation outdated data is cleaned.
      *
      * @param nowSec current time represented in seconds (truncated)
      * @return statistic data aggregated for period stored in the buffer
      */
     public T calculate(long nowSec) {
-        synchronized(statisticData) {
-            clearStale(nowSec);
+        return calculate(nowSec, period);
+    }
 
-            if(empty()) {
-                return collector.emptyStatistics();
-            } else {
-                return statisticData.collect(collector);
+    /**
+     * Pass statistic data aggregated for period stored in the buffer to sink.
+     * Unlike {@link #calculate(long)} no object is created.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     * @param sink sink to accept aggregated data
+     */
+    public void calculate(long nowSec, StatisticsSink sink) {
+        calculate(nowSec, period, sink);
+    }
+
+    /**
+     * Return statistic data aggregated for the most recent seconds of the period.
+     * Sub-window is aggregated by the {@link StatisticData} indexes in logarithmic time
+     * regardless of its length.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     * @param lastSeconds number of the most recent seconds to aggregate
+     * @return statistic data aggregated for the sub-window
+     */
+    public T calculate(long nowSec, int lastSeconds) {
+        StatisticData.CollectingSink<T> sink = new StatisticData.CollectingSink<>(collector);
+        calculate(nowSec, lastSeconds, sink);
+        return sink.getResult();
+    }
+
+    /**
+     * Pass statistic data aggregated for the most recent seconds of the period to sink.
+     * Unlike {@link #calculate(long, int)} no object is created.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     * @param lastSeconds number of the most recent seconds to aggregate
+     * @param sink sink to accept aggregated data
+     */
+    public void calculate(long nowSec, int lastSeconds, StatisticsSink sink) {
+
+        assert lastSeconds > 0;
+
+        BufferCalculateEvent event = null;
+        if(eventsEnabled) {
+            event = new BufferCalculateEvent();
+            event.begin();
+        }
+
+        if(nowSec > second) {
+            tick(nowSec);
+        }
+
+        boolean window = lastSeconds >= period;
+        boolean distinctEnabled = windowRegisters.length > 0;
+        // Union of the sub-window sketches is too expensive to be retried, so it is read under the lock at once
+        boolean locked = distinctEnabled && !window;
+        long stamp = locked ? lock.readLock() : lock.tryOptimisticRead();
+        int attempt;
+        long sum, count, min, max, distinct;
+
+        try {
+            for(attempt = 1; ; attempt++) {
+                if(window) {
+                    sum = windowSum;
+                    count = windowCount;
+                    min = windowMin;
+                    max = windowMax;
+                    distinct = distinctEnabled
+                            ? HyperLogLog.estimate(windowInverseSum, windowZeros, windowRegisters.length)
+                            : -1L;
+                } else {
+                    // Ring might be already rolled further by a caller with more recent clock
+                    int fromCursor = cursor(second - lastSeconds + 1);
+                    sum = statisticData.getAmount(fromCursor, lastSeconds);
+                    count = statisticData.getCount(fromCursor, lastSeconds);
+                    min = statisticData.getMin(fromCursor, lastSeconds);
+                    max = statisticData.getMax(fromCursor, lastSeconds);
+                    distinct = distinctEnabled ? distinct(fromCursor, lastSeconds) : -1L;
+                }
+
+                if(locked || lock.validate(stamp)) {
+                    break;
+                }
+
+                if(attempt < OPTIMISTIC_READ_ATTEMPTS) {
+                    stamp = lock.tryOptimisticRead();
+                } else {
+                    stamp = lock.readLock();
+                    locked = true;
+                }
+            }
+        } finally {
+            if(locked) {
+                lock.unlockRead(stamp);
             }
         }
-    }
 
-    private void setOldest(int second, long transactionTime) {
-        if(empty() || transactionTime < oldestTimestamp) {
-            updateCursor(second, transactionTime);
+        // Distinct accounts are passed for an empty window too, so the shape of the statistics doesn't change
+        if(count == 0L && distinctEnabled) {
+            sink.accept(0L, 0L, 0L, 0L, 0L);
+        } else if(count == 0L) {
+            sink.accept(0L, 0L, 0L, 0L);
+        } else if(distinctEnabled) {
+            sink.accept(sum, count, min, max, distinct);
+        } else {
+            sink.accept(sum, count, min, max);
+        }
+
+        if(event != null) {
+            event.end();
+
+            if(event.shouldCommit()) {
+                event.lastSeconds = lastSeconds;
+                event.attempts = attempt;
+                event.locked = locked;
+                event.commit();
+            }
         }
     }
 
-    private void updateCursor(int position, long timestamp) {
-        oldestPosition = position;
-        oldestTimestamp = timestamp;
+    // Distinct accounts of the sub-window, sketches are guarded by the read lock held by the caller
+    private long distinct(int fromCursor, int length) {
+        subWindowRegistersLock.lock();
+        try {
+            return statisticData.getDistinct(fromCursor, length, subWindowRegisters);
+        } finally {
+            subWindowRegistersLock.unlock();
+        }
     }
 
-    private void clearStale(long nowSec) {
-        int stale = getStale(nowSec);
+    /**
+     * Return per second partial aggregates of the period stored in the buffer.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     * @return partial aggregates of the seconds having transactions
+     */
+    public StatisticPartials partials(long nowSec) {
+        StatisticPartials partials = new StatisticPartials(period);
 
-        if(stale > 0) {
-            clear(stale);
+        if(nowSec > second) {
+            tick(nowSec);
         }
+
+        long stamp = lock.readLock();
+        try {
+            for(int i = statisticData.nextOccupied(0); i >= 0; i = statisticData.nextOccupied(i + 1)) {
+                partials.add(
+                        statisticData.getTimestamp(i),
+                        statisticData.getAmount(i),
+                        statisticData.getCount(i),
+                        statisticData.getMin(i),
+                        statisticData.getMax(i));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        return partials;
     }
 
-    private void clear(int n) {
-        if(empty()) {
-            return;
+    /**
+     * Return the largest individual transaction amounts of the period merged from the per second heaps.
+     * Insertion into the heaps creates no objects, only the read allocates its result.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     * @param n number of amounts to return, limited by the capacity of the per second heaps
+     * @return the largest amounts in descending order, empty if the heaps are disabled
+     */
+    public LargestAmounts largest(long nowSec, int n) {
+
+        assert n > 0;
+
+        int limit = Math.min(n, statisticData.getLargestCapacity());
+        LargestAmounts largest = new LargestAmounts(limit);
+
+        if(limit == 0) {
+            return largest;
         }
 
-        int period = statisticData.size();
-        if(n == period) {
-            // Complete reset
-            reset();
-        } else {
-            // Clear stale and update cursor
-            int k = oldestPosition;
+        if(nowSec > second) {
+            tick(nowSec);
+        }
 
-            for (int i = 0; i < n; i++) {
-                statisticData.reset((k + i) % period);
+        long stamp = lock.readLock();
+        try {
+            statisticData.collectLargest(limit, largest);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        return largest;
+    }
+
+    public int getLargestCapacity() {
+        return statisticData.getLargestCapacity();
+    }
+
+    /**
+     * Return partial aggregates of the slots changed since the previous invocation
+     * to replicate them to standby instances.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     * @return partial aggregates of the changed slots having transactions
+     */
+    public StatisticPartials changes(long nowSec) {
+        StatisticPartials partials = new StatisticPartials(period);
+
+        long stamp = lock.writeLock();
+        try {
+            roll(nowSec);
+
+            // Flags of the evicted slots are cleared by roll
+            for(int i = statisticData.nextOccupied(0); i >= 0; i = statisticData.nextOccupied(i + 1)) {
+                if(changed[i]) {
+                    changed[i] = false;
+
+                    partials.add(
+                            statisticData.getTimestamp(i),
+                            statisticData.getAmount(i),
+                            statisticData.getCount(i),
+                            statisticData.getMin(i),
+                            statisticData.getMax(i));
+                }
             }
-            int moveCursor = (k + n) % period;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        return partials;
+    }
+
+    /**
+     * Replace slots with partial aggregates replicated from primary instance.
+     * Partials out of the period are skipped.
+     *
+     * @param partials partial aggregates to replace slots with
+     * @param nowSec current time represented in seconds (truncated)
+     */
+    public void replace(StatisticPartials partials, long nowSec) {
+        long stamp = lock.writeLock();
+        try {
+            roll(nowSec);
 
-            while(statisticData.getTimestamp(moveCursor) == 0L) {
-                moveCursor = (moveCursor + 1) % period;
+            long currentSecond = second;
+            for(int i = 0; i < partials.size(); i++) {
+                long second = partials.getSecond(i);
 
-                if(moveCursor == oldestPosition) {
-                    markEmpty();
-                    return;
+                if(currentSecond - second < period && second <= currentSecond) {
+                    int cursor = cursor(second);
+                    statisticData.reset(cursor);
+                    statisticData.merge(cursor,
+                            partials.getSum(i),
+                            partials.getCount(i),
+                            partials.getMin(i),
+                            partials.getMax(i),
+                            second);
                 }
             }
 
-            updateCursor(moveCursor, statisticData.getTimestamp(moveCursor));
+            publish();
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
-    private int getStale(long now) {
-        if(empty())
-            return 0;
+    /**
+     * Rolls the buffer to the given second: resets outdated slots and recalculates
+     * aggregates of the window. Invoking it with the second the buffer is
+     * already rolled to (or earlier) has no effect.
+     *
+     * @param nowSec current time represented in seconds (truncated)
+     */
+    public void tick(long nowSec) {
+        long stamp = lock.writeLock();
+        try {
+            roll(nowSec);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
 
-        int period = statisticData.size();
-        long delta = now - oldestTimestamp;
+    private void addRolled(long transactionAmountLong, long accountHash, long transactionTimeSec) {
+        // Ring might be already rolled further by a caller with more recent clock
+        if(second - transactionTimeSec >= period) {
+            return;
+        }
+
+        int cursor = cursor(transactionTimeSec);
+        statisticData.add(cursor, transactionAmountLong, transactionTimeSec);
+        changed[cursor] = true;
 
-        return delta < period ? 0 : checkStaleSize(delta - period + 1);
+        if(windowCount == 0L) {
+            windowMin = transactionAmountLong;
+            windowMax = transactionAmountLong;
+        } else {
+            windowMin = Math.min(windowMin, transactionAmountLong);
+            windowMax = Math.max(windowMax, transactionAmountLong);
+        }
+        windowSum += transactionAmountLong;
+        windowCount++;
+
+        if(accountHash != NO_ACCOUNT && windowRegisters.length > 0) {
+            addDistinct(cursor, accountHash);
+        }
     }
 
-    private int checkStaleSize(long stale) {
-        int period = statisticData.size();
+    private void addDistinct(int cursor, long accountHash) {
+        int precision = statisticData.getDistinctPrecision();
+        int register = HyperLogLog.register(accountHash, precision);
+        byte rank = HyperLogLog.rank(accountHash, precision);
+
+        // Window register might be raised by the slot only
+        if(statisticData.addDistinct(cursor, register, rank) && windowRegisters[register] < rank) {
+            windowInverseSum += HyperLogLog.inverse(rank) - HyperLogLog.inverse(windowRegisters[register]);
+            if(windowRegisters[register] == 0) {
+                windowZeros--;
+            }
+            windowRegisters[register] = rank;
+        }
+    }
+
+    private void roll(long nowSec) {
+        long currentSecond = second;
+
+        if(nowSec <= currentSecond) {
+            return;
+        }
+
+        BufferRollEvent event = null;
+        if(eventsEnabled) {
+            event = new BufferRollEvent();
+            event.begin();
+        }
+
+        // Slots of the closed seconds are not reset yet (the earliest one is reset as the last)
+        if(currentSecond > 0L && !listeners.isEmpty()) {
+            for(long sec = Math.max(currentSecond, nowSec - period); sec < nowSec; sec++) {
+                closed(sec);
+            }
+        }
+
         // No precision loss as period is int
-        return stale > period ? period : (int) stale;
+        int stale = (int) Math.min(nowSec - currentSecond, period);
+
+        // Slots of the seconds the ring is rolled over, wrapping around the end of the slots
+        int fromCursor = cursor(nowSec - stale + 1);
+        int toCursor = fromCursor + stale;
+
+        if(toCursor <= period) {
+            evict(fromCursor, toCursor);
+        } else {
+            evict(fromCursor, period);
+            evict(0, toCursor - period);
+        }
+
+        second = nowSec;
+        publish();
+
+        if(event != null) {
+            event.end();
+
+            if(event.shouldCommit()) {
+                event.second = nowSec;
+                event.staleSlots = stale;
+                event.commit();
+            }
+        }
+    }
+
+    // Resets occupied slots from (inclusive) to (exclusive), empty ones are skipped by the bitmap words
+    private void evict(int fromCursor, int toCursor) {
+        for(int cursor = statisticData.nextOccupied(fromCursor);
+            cursor >= 0 && cursor < toCursor;
+            cursor = statisticData.nextOccupied(cursor + 1)) {
+
+            evicted(cursor);
+            statisticData.reset(cursor);
+            changed[cursor] = false;
+        }
     }
 
-    private boolean empty() {
-        return oldestPosition == NOT_INITIALIZED_CURSOR;
+    private void evicted(int cursor) {
+        for(StatisticsBufferListener listener : listeners) {
+            listener.secondEvicted(
+                    statisticData.getTimestamp(cursor),
+                    statisticData.getAmount(cursor),
+                    statisticData.getCount(cursor),
+                    statisticData.getMin(cursor),
+                    statisticData.getMax(cursor));
+        }
     }
 
-    private void reset() {
-        for (int i = 0; i < statisticData.size(); i++) {
-            statisticData.reset(i);
+    private void closed(long sec) {
+        int cursor = cursor(sec);
+        boolean filled = statisticData.getTimestamp(cursor) == sec;
+
+        for(StatisticsBufferListener listener : listeners) {
+            if(filled) {
+                listener.secondClosed(
+                        sec,
+                        statisticData.getAmount(cursor),
+                        statisticData.getCount(cursor),
+                        statisticData.getMin(cursor),
+                        statisticData.getMax(cursor));
+            } else {
+                listener.secondClosed(sec, 0L, 0L, 0L, 0L);
+            }
         }
+    }
+
+    private void publish() {
+        StatisticsSnapshot snapshot = statisticData.collect(StatisticsSnapshot.COLLECTOR);
 
-        markEmpty();
+        windowSum = snapshot.getSum();
+        windowCount = snapshot.getCount();
+        windowMin = snapshot.getMin();
+        windowMax = snapshot.getMax();
+
+        if(windowRegisters.length > 0) {
+            // Sum is recalculated from scratch, so rounding of the in place updates doesn't accumulate
+            statisticData.unionDistinct(windowRegisters);
+
+            double inverseSum = 0d;
+            int zeros = 0;
+            for(byte rank : windowRegisters) {
+                inverseSum += HyperLogLog.inverse(rank);
+                if(rank == 0) {
+                    zeros++;
+                }
+            }
+
+            windowInverseSum = inverseSum;
+            windowZeros = zeros;
+        }
     }
 
-    private void markEmpty() {
-        oldestPosition = NOT_INITIALIZED_CURSOR;
+    private int cursor(long sec) {
+        return (int) Math.floorMod(sec, (long) period);
     }
 }
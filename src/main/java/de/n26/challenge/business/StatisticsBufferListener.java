@@ -0,0 +1,36 @@
+package de.n26.challenge.business;
+
+/**
+ * Listener to be notified about {@link StatisticsBuffer} slot lifecycle events.
+ * Listeners are invoked under the buffer lock so implementations must be fast and never block.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public interface StatisticsBufferListener {
+
+    /**
+     * Invoked when a second having transactions falls out of the period and its slot is reset.
+     *
+     * @param second evicted second
+     * @param sum sum of transaction values of the second
+     * @param count total number of transactions of the second
+     * @param min single lowest transaction value of the second
+     * @param max single highest transaction value of the second
+     */
+    default void secondEvicted(long second, long sum, long count, long min, long max) {
+    }
+
+    /**
+     * Invoked once per second when the buffer is rolled past it, in order of seconds,
+     * including seconds without transactions. Transactions which arrive for the second later are not reported.
+     * If the buffer is rolled by more than a period at once only seconds still within the period are reported.
+     *
+     * @param second closed second
+     * @param sum sum of transaction values of the second
+     * @param count total number of transactions of the second
+     * @param min single lowest transaction value of the second
+     * @param max single highest transaction value of the second
+     */
+    default void secondClosed(long second, long sum, long count, long min, long max) {
+    }
+}
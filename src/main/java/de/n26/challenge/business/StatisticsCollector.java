@@ -18,6 +18,21 @@ public interface StatisticsCollector<T> {
      */
     T collectStatistics(long sum, long count, long min, long max);
 
+    /**
+     * Converts aggregated statistic data with estimated number of distinct accounts
+     * to the type needed by superior logic. Distinct accounts are ignored by default.
+     *
+     * @param sum sum of transaction value from statistics buffer
+     * @param count total number of transactions from statistics buffer
+     * @param min single lowest transaction value from statistics buffer
+     * @param max single highest transaction value from statistics buffer
+     * @param distinct estimated number of distinct accounts from statistics buffer
+     * @return aggregated statistic data converted to the type needed by superior logic
+     */
+    default T collectStatistics(long sum, long count, long min, long max, long distinct) {
+        return collectStatistics(sum, count, min, max);
+    }
+
     /**
      * Creates empty statistic data container of type needed by superior logic.
      *
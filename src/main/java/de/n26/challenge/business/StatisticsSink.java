@@ -0,0 +1,34 @@
+package de.n26.challenge.business;
+
+/**
+ * Primitive counterpart of {@link StatisticsCollector}: accepts aggregated statistic data
+ * without creating a container per call, e.g. to write it straight into a reusable buffer.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public interface StatisticsSink {
+
+    /**
+     * Accepts aggregated statistic data. All the values are zeros if there is no data.
+     *
+     * @param sum sum of transaction value from statistics buffer
+     * @param count total number of transactions from statistics buffer
+     * @param min single lowest transaction value from statistics buffer
+     * @param max single highest transaction value from statistics buffer
+     */
+    void accept(long sum, long count, long min, long max);
+
+    /**
+     * Accepts aggregated statistic data with estimated number of distinct accounts, passed for empty data too
+     * if distinct accounts are counted. Sinks not interested in distinct accounts get the rest of the data.
+     *
+     * @param sum sum of transaction value from statistics buffer
+     * @param count total number of transactions from statistics buffer
+     * @param min single lowest transaction value from statistics buffer
+     * @param max single highest transaction value from statistics buffer
+     * @param distinct estimated number of distinct accounts from statistics buffer
+     */
+    default void accept(long sum, long count, long min, long max, long distinct) {
+        accept(sum, count, min, max);
+    }
+}
@@ -0,0 +1,129 @@
+package de.n26.challenge.business;
+
+/**
+ * Immutable aggregate of statistic data (sum, count, min and max) for a range of seconds.
+ * Used to recalculate aggregates of the {@link StatisticsBuffer} window when the ring is rolled
+ * and to merge partial aggregates of the peers.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public final class StatisticsSnapshot {
+
+    public static final StatisticsSnapshot EMPTY = new StatisticsSnapshot(0L, 0L, 0L, 0L);
+
+    /**
+     * Collector to aggregate {@link StatisticData} into a snapshot.
+     */
+    public static final StatisticsCollector<StatisticsSnapshot> COLLECTOR =
+            new StatisticsCollector<StatisticsSnapshot>() {
+                @Override
+                public StatisticsSnapshot collectStatistics(long sum, long count, long min, long max) {
+                    return count == 0L ? EMPTY : new StatisticsSnapshot(sum, count, min, max);
+                }
+
+                @Override
+                public StatisticsSnapshot emptyStatistics() {
+                    return EMPTY;
+                }
+            };
+
+    private final long sum;
+    private final long count;
+    private final long min;
+    private final long max;
+
+    private StatisticsSnapshot(long sum, long count, long min, long max) {
+        this.sum = sum;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Creates new snapshot with single transaction amount added.
+     *
+     * @param amount transaction amount
+     * @return new snapshot containing given amount
+     */
+    public StatisticsSnapshot add(long amount) {
+        return merge(amount, 1L, amount, amount);
+    }
+
+    /**
+     * Creates new snapshot with aggregated data merged in.
+     *
+     * @param sum sum of transaction values to merge
+     * @param count number of transactions to merge
+     * @param min single lowest transaction value to merge
+     * @param max single highest transaction value to merge
+     * @return new snapshot containing merged data
+     */
+    public StatisticsSnapshot merge(long sum, long count, long min, long max) {
+        if(count == 0L) {
+            return this;
+        }
+
+        if(this.count == 0L) {
+            return new StatisticsSnapshot(sum, count, min, max);
+        }
+
+        return new StatisticsSnapshot(
+                this.sum + sum,
+                this.count + count,
+                Math.min(this.min, min),
+                Math.max(this.max, max));
+    }
+
+    /**
+     * Creates new snapshot with other snapshot data merged in.
+     *
+     * @param other snapshot to merge
+     * @return new snapshot containing merged data
+     */
+    public StatisticsSnapshot merge(StatisticsSnapshot other) {
+        return merge(other.sum, other.count, other.min, other.max);
+    }
+
+    /**
+     * Pass snapshot data to collector to transform into type demanded by superior logic.
+     *
+     * @param collector collector to accept aggregated data and transform it into needed type
+     * @param <T> type to transform aggregated data into
+     * @return transformed snapshot data or empty statistics if snapshot contains no transactions
+     */
+    public <T> T collect(StatisticsCollector<T> collector) {
+
+        assert collector != null;
+
+        return count == 0L
+                ? collector.emptyStatistics()
+                : collector.collectStatistics(sum, count, min, max);
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("StatisticsSnapshot{");
+        sb.append("sum=").append(sum);
+        sb.append(", count=").append(count);
+        sb.append(", min=").append(min);
+        sb.append(", max=").append(max);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled ticker which owns expiry of the {@link StatisticsBuffer}.
+ * Fires at the beginning of each second to roll the buffer, so neither
+ * ingest nor read requests have to pay for resetting outdated slots.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+@ConditionalOnProperty(name = "de.n26.challenge.ticker.enabled", matchIfMissing = true)
+public class StatisticsTicker {
+
+    private final StatisticsBuffer<Statistics> statisticsBuffer;
+    private final CurrentTimeFactory currentTimeFactory;
+
+    @Autowired
+    public StatisticsTicker(StatisticsBuffer<Statistics> statisticsBuffer, CurrentTimeFactory currentTimeFactory) {
+        this.statisticsBuffer = statisticsBuffer;
+        this.currentTimeFactory = currentTimeFactory;
+    }
+
+    @Scheduled(cron = "* * * * * *")
+    public void tick() {
+        statisticsBuffer.tick(currentTimeFactory.now());
+    }
+}
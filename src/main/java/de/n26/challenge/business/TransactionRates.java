@@ -0,0 +1,124 @@
+package de.n26.challenge.business;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Transaction rates smoothed by exponentially weighted moving averages over 1, 5 and 15 minutes.
+ *
+ * Averages are advanced once per second from the {@link StatisticsBuffer} slot which is just closed
+ * (see {@link StatisticsBufferListener#secondClosed(long, long, long, long, long)}), so there is no extra work
+ * per transaction and memory is constant per horizon. Averages start from zero and seconds missed
+ * (e.g. buffer rolled by more than a period at once) are treated as seconds without transactions.
+ * Published as immutable {@link Rates} so readers never wait for the update.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@Component
+public class TransactionRates implements StatisticsBufferListener {
+
+    private static final int[] HORIZONS_MINUTES = {1, 5, 15};
+
+    // Weight of the closed second per horizon
+    private final double[] alphas = new double[HORIZONS_MINUTES.length];
+
+    // Guarded by the buffer lock the listener is invoked under
+    private final double[] countAverages = new double[HORIZONS_MINUTES.length];
+    private final double[] amountAverages = new double[HORIZONS_MINUTES.length];
+    private long lastSecond;
+
+    private volatile Rates rates = new Rates(0L, 0L, 0L, countAverages.clone(), amountAverages.clone());
+
+    public TransactionRates() {
+        for(int i = 0; i < HORIZONS_MINUTES.length; i++) {
+            alphas[i] = 1.0d - Math.exp(-1.0d / (HORIZONS_MINUTES[i] * 60));
+        }
+    }
+
+    @Override
+    public void secondClosed(long second, long sum, long count, long min, long max) {
+        if(second <= lastSecond) {
+            return;
+        }
+
+        long skipped = lastSecond == 0L ? 0L : second - lastSecond - 1;
+
+        for(int i = 0; i < HORIZONS_MINUTES.length; i++) {
+            if(skipped > 0L) {
+                double decay = Math.pow(1.0d - alphas[i], skipped);
+                countAverages[i] *= decay;
+                amountAverages[i] *= decay;
+            }
+
+            countAverages[i] += alphas[i] * (count - countAverages[i]);
+            amountAverages[i] += alphas[i] * (sum - amountAverages[i]);
+        }
+
+        lastSecond = second;
+        rates = new Rates(second, count, sum, countAverages.clone(), amountAverages.clone());
+    }
+
+    /**
+     * Return the most recent rates.
+     *
+     * @return rates as of the last closed second
+     */
+    public Rates getRates() {
+        return rates;
+    }
+
+    /**
+     * Return minutes of the horizons averages are calculated over.
+     *
+     * @return horizons in minutes
+     */
+    public static int[] getHorizonsMinutes() {
+        return HORIZONS_MINUTES.clone();
+    }
+
+    /**
+     * Immutable rates as of the closed second. Amounts are represented in long units.
+     */
+    public static final class Rates {
+        private final long second;
+        private final long count;
+        private final long amount;
+        private final double[] countAverages;
+        private final double[] amountAverages;
+
+        private Rates(long second, long count, long amount, double[] countAverages, double[] amountAverages) {
+            this.second = second;
+            this.count = count;
+            this.amount = amount;
+            this.countAverages = countAverages;
+            this.amountAverages = amountAverages;
+        }
+
+        public long getSecond() {
+            return second;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+
+        /**
+         * @param horizon index of the horizon in {@link #getHorizonsMinutes()}
+         * @return average number of transactions per second
+         */
+        public double getCountAverage(int horizon) {
+            return countAverages[horizon];
+        }
+
+        /**
+         * @param horizon index of the horizon in {@link #getHorizonsMinutes()}
+         * @return average amount per second
+         */
+        public double getAmountAverage(int horizon) {
+            return amountAverages[horizon];
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package de.n26.challenge.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency driven concurrency limit based on additive increase/multiplicative decrease.
+ * While requests complete within the target latency the limit grows by one per
+ * limit-sized window of requests, once a request exceeds the target the limit
+ * is cut by the decrease factor (not more often than once per target latency interval).
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class AdaptiveConcurrencyLimit {
+    private static final double DECREASE_FACTOR = 0.9d;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private int successes;
+    private long lastDecrease;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis) {
+        assert minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit;
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    }
+
+    /**
+     * Acquires permit to process request if number of requests in flight is below the limit.
+     *
+     * @return true if permit is acquired, false if limit is reached
+     */
+    public boolean tryAcquire() {
+        while(true) {
+            int current = inFlight.get();
+
+            if(current >= limit) {
+                return false;
+            }
+
+            if(inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases permit and adjusts the limit according to request latency.
+     *
+     * @param latencyNanos latency of the processed request
+     * @param nowNanos current {@link System#nanoTime()} value
+     */
+    public void release(long latencyNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+
+        synchronized(this) {
+            if(latencyNanos > targetLatencyNanos) {
+                if(nowNanos - lastDecrease > targetLatencyNanos) {
+                    limit = Math.max(minLimit, (int) (limit * DECREASE_FACTOR));
+                    lastDecrease = nowNanos;
+                }
+                successes = 0;
+            } else if(++successes >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+                successes = 0;
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
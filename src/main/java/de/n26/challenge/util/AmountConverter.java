@@ -43,6 +43,17 @@ public class AmountConverter {
         return BigDecimal.valueOf(amount).divide(HUNDERD);
     }
 
+    /**
+     * Converts amount represented in long units but having a fractional part
+     * (e.g. average amount per second) to double.
+     *
+     * @param amount amount represented in long units
+     * @return converted amount
+     */
+    public static double toDoubleValue(double amount) {
+        return amount / MULTIPLIER;
+    }
+
     private static int getMultiplier() {
         int result = 10;
 
@@ -0,0 +1,44 @@
+package de.n26.challenge.util;
+
+/**
+ * To hash strings into 64-bit values without creating objects (e.g. to feed probabilistic structures).
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class Hashes {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * FNV-1a over the characters, no bytes are created.
+     *
+     * @param value value to hash
+     * @return hash of the value
+     */
+    public static long hash(CharSequence value) {
+        long hash = FNV_OFFSET;
+
+        for(int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * MurmurHash3 finalizer, spreads every input bit over all the bits of the result.
+     *
+     * @param hash hash to mix
+     * @return mixed hash
+     */
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,57 @@
+package de.n26.challenge.util;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logger wrapper to log not more than given number of messages per second.
+ * Messages over the limit are only counted and the number of suppressed
+ * messages is reported with the next logged one. Stack traces are never logged
+ * as building them is the most expensive part under flood of errors.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class RateLimitedLogger {
+    private final Logger logger;
+    private final TokenBucket bucket;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public RateLimitedLogger(Logger logger, long messagesPerSecond) {
+        this(logger, new TokenBucket(messagesPerSecond, messagesPerSecond));
+    }
+
+    public RateLimitedLogger(Logger logger, TokenBucket bucket) {
+        this.logger = logger;
+        this.bucket = bucket;
+    }
+
+    /**
+     * Logs message with error level if rate limit allows.
+     *
+     * @param message message to log
+     * @param argument message argument
+     */
+    public void error(String message, Object argument) {
+        if(!logger.isErrorEnabled()) {
+            return;
+        }
+
+        if(!bucket.tryAcquire()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+
+        long suppressedSinceLast = suppressed.getAndSet(0L);
+
+        if(suppressedSinceLast > 0) {
+            logger.error(message + " ({} similar messages suppressed)", argument, suppressedSinceLast);
+        } else {
+            logger.error(message, argument);
+        }
+    }
+
+    public long getSuppressed() {
+        return suppressed.get();
+    }
+}
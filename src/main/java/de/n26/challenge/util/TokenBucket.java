@@ -0,0 +1,78 @@
+package de.n26.challenge.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe token bucket rate limiter.
+ * Bucket is refilled continuously with the configured rate up to its capacity.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class TokenBucket {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoTime;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, long tokensPerSecond) {
+        this(capacity, tokensPerSecond, System::nanoTime);
+    }
+
+    public TokenBucket(long capacity, long tokensPerSecond, LongSupplier nanoTime) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) tokensPerSecond / NANOS_PER_SECOND;
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    /**
+     * Takes single token from the bucket if available.
+     *
+     * @return true if token is taken, false if bucket is empty
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+
+        if(tokens < 1) {
+            return false;
+        }
+
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Takes given number of tokens from the bucket regardless of the tokens available,
+     * so the bucket might go into debt and stay empty for a longer time.
+     *
+     * @param n number of tokens to take
+     */
+    public synchronized void penalize(long n) {
+        refill();
+
+        tokens = Math.max(tokens - n, -capacity);
+    }
+
+    /**
+     * Checks whether the bucket is refilled up to its capacity, so it's no different from a new one.
+     *
+     * @return true if bucket is full
+     */
+    public synchronized boolean isFull() {
+        refill();
+
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
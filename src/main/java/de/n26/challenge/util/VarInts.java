@@ -0,0 +1,56 @@
+package de.n26.challenge.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * To write and read signed long values in variable length zigzag encoding:
+ * values close to zero (either positive or negative) take less bytes,
+ * 7 bits of value per byte.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class VarInts {
+    /**
+     * Maximum number of bytes single value takes.
+     */
+    public static final int MAX_BYTES = 10;
+
+    /**
+     * Writes signed value to the buffer.
+     *
+     * @param buffer buffer to write value to
+     * @param value value to write
+     */
+    public static void writeSigned(ByteBuffer buffer, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while((zigzag & ~0x7FL) != 0L) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+
+        buffer.put((byte) zigzag);
+    }
+
+    /**
+     * Reads signed value from the buffer.
+     *
+     * @param buffer buffer to read value from
+     * @return value read
+     * @throws IllegalArgumentException if value is malformed
+     */
+    public static long readSigned(ByteBuffer buffer) {
+        long zigzag = 0L;
+
+        for(int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+
+            if((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+
+        throw new IllegalArgumentException("Malformed variable length value");
+    }
+}
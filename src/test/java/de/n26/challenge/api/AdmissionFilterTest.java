@@ -0,0 +1,146 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.util.AdaptiveConcurrencyLimit;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link AdmissionFilter}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class AdmissionFilterTest {
+
+    private static final String CLIENT_HEADER = "X-Client-Id";
+
+    @Test
+    public void rateLimit() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(
+                new AdaptiveConcurrencyLimit(10, 1, 10, 1000), 1, 2, 10, 100);
+
+        assertThat(filter(filter, "client", HttpStatus.CREATED), is(HttpStatus.CREATED.value()));
+        assertThat(filter(filter, "client", HttpStatus.CREATED), is(HttpStatus.CREATED.value()));
+        assertThat(filter(filter, "client", HttpStatus.CREATED), is(HttpStatus.TOO_MANY_REQUESTS.value()));
+
+        // Other clients are not affected
+        assertThat(filter(filter, "other", HttpStatus.CREATED), is(HttpStatus.CREATED.value()));
+    }
+
+    @Test
+    public void rejectedTransactionsPenalized() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(
+                new AdaptiveConcurrencyLimit(10, 1, 10, 1000), 1, 10, 10, 100);
+
+        assertThat(filter(filter, "client", HttpStatus.BAD_REQUEST), is(HttpStatus.BAD_REQUEST.value()));
+        assertThat(filter(filter, "client", HttpStatus.CREATED), is(HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+
+    @Test
+    public void concurrencyLimit() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 1000);
+        AdmissionFilter filter = new AdmissionFilter(limit, 100, 100, 10, 100);
+
+        limit.tryAcquire();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("client"), response, chain(HttpStatus.CREATED));
+
+        assertThat(response.getStatus(), is(HttpStatus.SERVICE_UNAVAILABLE.value()));
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER), is("1"));
+    }
+
+    @Test
+    public void clientHeaderIgnored() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(
+                new AdaptiveConcurrencyLimit(10, 1, 10, 1000), 1, 2, 10, 100);
+
+        // Fresh id with each request doesn't give a fresh bucket
+        assertThat(filter(filter, request("client", "id-1"), HttpStatus.CREATED), is(HttpStatus.CREATED.value()));
+        assertThat(filter(filter, request("client", "id-2"), HttpStatus.CREATED), is(HttpStatus.CREATED.value()));
+        assertThat(filter(filter, request("client", "id-3"), HttpStatus.CREATED),
+                is(HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+
+    @Test
+    public void trustedClientHeader() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(
+                new AdaptiveConcurrencyLimit(10, 1, 10, 1000), 1, 1, 10, 100, CLIENT_HEADER);
+
+        // Clients behind the same proxy have their own buckets
+        assertThat(filter(filter, request("proxy", "client"), HttpStatus.CREATED), is(HttpStatus.CREATED.value()));
+        assertThat(filter(filter, request("proxy", "client"), HttpStatus.CREATED),
+                is(HttpStatus.TOO_MANY_REQUESTS.value()));
+        assertThat(filter(filter, request("proxy", "other"), HttpStatus.CREATED), is(HttpStatus.CREATED.value()));
+    }
+
+    @Test
+    public void clientFlood() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(
+                new AdaptiveConcurrencyLimit(10, 1, 10, 1000), 1, 10, 10, 2);
+
+        assertThat(filter(filter, "client", HttpStatus.BAD_REQUEST), is(HttpStatus.BAD_REQUEST.value()));
+
+        // New clients beyond the limit share a bucket, penalty of the known client is kept
+        for(int i = 0; i < 20; i++) {
+            filter(filter, "flood-" + i, HttpStatus.CREATED);
+        }
+        assertThat(filter(filter, "flood-20", HttpStatus.CREATED), is(HttpStatus.TOO_MANY_REQUESTS.value()));
+        assertThat(filter(filter, "client", HttpStatus.CREATED), is(HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+
+    private int filter(AdmissionFilter filter, String clientAddress, HttpStatus status) throws Exception {
+        return filter(filter, request(clientAddress, null), status);
+    }
+
+    private int filter(AdmissionFilter filter, MockHttpServletRequest request, HttpStatus status) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain(status));
+        return response.getStatus();
+    }
+
+    private MockHttpServletRequest request(String clientAddress) {
+        return request(clientAddress, null);
+    }
+
+    private MockHttpServletRequest request(String remoteAddress, String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/transactions");
+        request.setRemoteAddr(remoteAddress);
+        if(clientId != null) {
+            request.addHeader(CLIENT_HEADER, clientId);
+        }
+        return request;
+    }
+
+    private MockFilterChain chain(HttpStatus status) {
+        return new MockFilterChain(new StatusServlet(status));
+    }
+
+    // Servlet responding with the given status
+    private static class StatusServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private final HttpStatus status;
+
+        StatusServlet(HttpStatus status) {
+            this.status = status;
+        }
+
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp) {
+            resp.setStatus(status.value());
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package de.n26.challenge.api;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test {@link BinaryMediaTypes}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class BinaryMediaTypesTest {
+
+    @Test
+    public void negotiate() throws Exception {
+        assertThat(BinaryMediaTypes.negotiate("application/x-jackson-smile"), is(BinaryMediaTypes.APPLICATION_SMILE));
+        assertThat(BinaryMediaTypes.negotiate("application/cbor"), is(BinaryMediaTypes.APPLICATION_CBOR));
+        assertThat(BinaryMediaTypes.negotiate("application/json;q=0.8, application/cbor"),
+                is(BinaryMediaTypes.APPLICATION_CBOR));
+        assertThat(BinaryMediaTypes.negotiate("*/*;q=0.1, application/x-jackson-smile"),
+                is(BinaryMediaTypes.APPLICATION_SMILE));
+    }
+
+    @Test
+    public void negotiateJson() throws Exception {
+        assertThat(BinaryMediaTypes.negotiate(null), is((MediaType) null));
+        assertThat(BinaryMediaTypes.negotiate("*/*"), is((MediaType) null));
+        assertThat(BinaryMediaTypes.negotiate("application/json"), is((MediaType) null));
+        assertThat(BinaryMediaTypes.negotiate("application/json, application/cbor"), is((MediaType) null));
+        assertThat(BinaryMediaTypes.negotiate("application/x-jackson-smile;q=0.5, application/json"), is((MediaType) null));
+        assertThat(BinaryMediaTypes.negotiate("application/cbor;q=abc"), is((MediaType) null));
+    }
+}
@@ -0,0 +1,76 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.PeerAggregator;
+import de.n26.challenge.business.StatisticPartials;
+import de.n26.challenge.business.StatisticsBuffer;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test {@link ClusterController}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ClusterControllerTest {
+
+    @Mock
+    private StatisticsBuffer<Statistics> statisticsBuffer;
+
+    @Mock
+    private CurrentTimeFactory currentTimeFactory;
+
+    @Mock
+    private PeerAggregator peerAggregator;
+
+    private long nowSec = System.currentTimeMillis() / 1000;
+
+    @Before
+    public void setup() {
+        when(currentTimeFactory.now()).thenReturn(nowSec);
+    }
+
+    @Test
+    public void getPartials() throws Exception {
+        StatisticPartials partials = new StatisticPartials(1);
+        partials.add(nowSec, 1000L, 1L, 1000L, 1000L);
+        when(statisticsBuffer.partials(nowSec)).thenReturn(partials);
+
+        ClusterController controller = new ClusterController(statisticsBuffer, currentTimeFactory, Optional.empty());
+
+        assertThat(controller.getPartials(), is(partials.encode()));
+    }
+
+    @Test
+    public void getGlobalStatistics() throws Exception {
+        Statistics statistics = Statistics.build().count(1);
+        when(peerAggregator.aggregate(nowSec)).thenReturn(statistics);
+
+        ClusterController controller =
+                new ClusterController(statisticsBuffer, currentTimeFactory, Optional.of(peerAggregator));
+
+        ResponseEntity<Statistics> response = controller.getGlobalStatistics();
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response.getBody(), is(statistics));
+    }
+
+    @Test
+    public void getGlobalStatisticsNotAggregator() throws Exception {
+        ClusterController controller = new ClusterController(statisticsBuffer, currentTimeFactory, Optional.empty());
+
+        assertThat(controller.getGlobalStatistics().getStatusCode(), is(HttpStatus.NOT_FOUND));
+    }
+
+}
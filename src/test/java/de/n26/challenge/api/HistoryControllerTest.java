@@ -0,0 +1,64 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.DefaultStatisticsCollector;
+import de.n26.challenge.business.SecondArchive;
+import de.n26.challenge.business.StatisticPartials;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test {@link HistoryController}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class HistoryControllerTest {
+
+    @Mock
+    private SecondArchive secondArchive;
+
+    @Test
+    public void getHistory() throws Exception {
+        StatisticPartials partials = new StatisticPartials(1);
+        partials.add(1500000001L, 30000L, 3L, 5000L, 20000L);
+        when(secondArchive.query(1500000000L, 1500000010L)).thenReturn(partials);
+
+        HistoryController controller = controller(Optional.of(secondArchive));
+
+        ResponseEntity<List<HistoricStatistics>> response = controller.getHistory(1500000000000L, 1500000010999L);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response.getBody(), is(Collections.singletonList(new HistoricStatistics(1500000001000L,
+                Statistics.build().sum(300).avg(100).max(200).min(50).count(3)))));
+    }
+
+    @Test
+    public void getHistoryInvalidRange() throws Exception {
+        HistoryController controller = controller(Optional.of(secondArchive));
+
+        assertThat(controller.getHistory(1500000010000L, 1500000000000L).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(controller.getHistory(1500000000000L, 1500003600000L).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    public void getHistoryArchiveDisabled() throws Exception {
+        HistoryController controller = controller(Optional.empty());
+
+        assertThat(controller.getHistory(1500000000000L, 1500000010000L).getStatusCode(), is(HttpStatus.NOT_FOUND));
+    }
+
+    private HistoryController controller(Optional<SecondArchive> secondArchive) {
+        return new HistoryController(secondArchive, new DefaultStatisticsCollector(), 3600L);
+    }
+}
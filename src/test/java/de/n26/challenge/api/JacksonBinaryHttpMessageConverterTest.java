@@ -0,0 +1,68 @@
+package de.n26.challenge.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test {@link JacksonBinaryHttpMessageConverter}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class JacksonBinaryHttpMessageConverterTest {
+
+    @Test
+    public void smile() throws Exception {
+        readWrite(new JacksonBinaryHttpMessageConverter(new ObjectMapper(new SmileFactory()),
+                BinaryMediaTypes.APPLICATION_SMILE), BinaryMediaTypes.APPLICATION_SMILE);
+    }
+
+    @Test
+    public void cbor() throws Exception {
+        readWrite(new JacksonBinaryHttpMessageConverter(new ObjectMapper(new CBORFactory()),
+                BinaryMediaTypes.APPLICATION_CBOR), BinaryMediaTypes.APPLICATION_CBOR);
+    }
+
+    @Test
+    public void encodedSize() throws Exception {
+        // Same values as in ContentFormatBenchmark, amounts are doubles so binary formats gain little in size
+        assertSize(new JsonFactory(), 67, 101);
+        assertSize(new SmileFactory(), 75, 91);
+        assertSize(new CBORFactory(), 62, 87);
+    }
+
+    private static void assertSize(JsonFactory factory, int statisticsBytes, int transactionBytes) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper(factory);
+
+        Statistics statistics = Statistics.build().sum(123456.78).avg(2057.61).max(9999.99).min(0.01).count(60);
+        Transaction transaction = new Transaction();
+        transaction.setTimestamp(1500000000123L);
+        transaction.setAmount(12.34);
+        transaction.setId("4f3c1b2a-9d8e-4c7b-a6f5-e4d3c2b1a098");
+
+        assertThat(objectMapper.writeValueAsBytes(statistics).length, is(statisticsBytes));
+        assertThat(objectMapper.writeValueAsBytes(transaction).length, is(transactionBytes));
+    }
+
+    private static void readWrite(JacksonBinaryHttpMessageConverter converter, MediaType mediaType) throws Exception {
+        assertThat(converter.canRead(Transaction.class, mediaType), is(true));
+        assertThat(converter.canRead(Transaction.class, MediaType.APPLICATION_JSON), is(false));
+        assertThat(converter.canWrite(Statistics.class, mediaType), is(true));
+
+        Statistics statistics = Statistics.build().sum(300.5).avg(100.17).max(200).min(50).count(3);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(statistics, mediaType, output);
+
+        assertThat(output.getHeaders().getContentType(), is(mediaType));
+        assertThat(converter.read(Statistics.class, new MockHttpInputMessage(output.getBodyAsBytes())),
+                is(statistics));
+    }
+}
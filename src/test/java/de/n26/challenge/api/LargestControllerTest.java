@@ -0,0 +1,71 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.DefaultStatisticsCollector;
+import de.n26.challenge.business.StatisticData;
+import de.n26.challenge.business.StatisticsBuffer;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test {@link LargestController}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LargestControllerTest {
+
+    private static final long NOW_SEC = 1500000000L;
+
+    @Mock
+    private CurrentTimeFactory currentTimeFactory;
+
+    @Test
+    public void getLargest() throws Exception {
+        when(currentTimeFactory.now()).thenReturn(NOW_SEC);
+
+        StatisticsBuffer<Statistics> statisticsBuffer = buffer(3);
+        statisticsBuffer.add(1250L, NOW_SEC - 5, NOW_SEC);
+        statisticsBuffer.add(999999L, NOW_SEC - 1, NOW_SEC);
+        statisticsBuffer.add(50L, NOW_SEC, NOW_SEC);
+
+        ResponseEntity<List<LargeTransaction>> response =
+                new LargestController(statisticsBuffer, currentTimeFactory).getLargest(2);
+
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response.getBody(), is(Arrays.asList(
+                new LargeTransaction(9999.99, (NOW_SEC - 1) * 1000),
+                new LargeTransaction(12.5, (NOW_SEC - 5) * 1000))));
+    }
+
+    @Test
+    public void getLargestInvalid() throws Exception {
+        LargestController controller = new LargestController(buffer(3), currentTimeFactory);
+
+        assertThat(controller.getLargest(0).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(controller.getLargest(-1).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    public void getLargestDisabled() throws Exception {
+        LargestController controller = new LargestController(buffer(0), currentTimeFactory);
+
+        assertThat(controller.getLargest(10).getStatusCode(), is(HttpStatus.NOT_FOUND));
+    }
+
+    private static StatisticsBuffer<Statistics> buffer(int largestCapacity) {
+        return new StatisticsBuffer<>(60, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR,
+                largestCapacity, 0, new DefaultStatisticsCollector());
+    }
+}
@@ -0,0 +1,84 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.DefaultStatisticsCollector;
+import de.n26.challenge.business.StandingQueries;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test {@link QueriesController}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class QueriesControllerTest {
+
+    @Mock
+    private StandingQueries standingQueries;
+
+    @Test
+    public void register() throws Exception {
+        when(standingQueries.getPeriod()).thenReturn(60);
+        when(standingQueries.register(any(), any(), anyLong(), anyInt(), any())).thenReturn(1L);
+
+        ResponseEntity<SseEmitter> response = controller().register("avg", "GT", 12.5d, null);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+
+        ArgumentCaptor<StandingQueries.Listener> listener = ArgumentCaptor.forClass(StandingQueries.Listener.class);
+        verify(standingQueries).register(eq(StandingQueries.Measure.AVG), eq(StandingQueries.Comparator.GT),
+                eq(1250L), eq(60), listener.capture());
+
+        // Sent before the stream is initialized, so the event is kept by emitter
+        listener.getValue().transition(1L, true, 1500000000L, 3000L, 2L, 1000L, 2000L);
+        verify(standingQueries, never()).unregister(1L);
+    }
+
+    @Test
+    public void registerCount() throws Exception {
+        when(standingQueries.getPeriod()).thenReturn(60);
+        when(standingQueries.register(any(), any(), anyLong(), anyInt(), any())).thenReturn(1L);
+
+        assertThat(controller().register("count", "le", 100d, 10).getStatusCode(), is(HttpStatus.OK));
+        verify(standingQueries).register(eq(StandingQueries.Measure.COUNT), eq(StandingQueries.Comparator.LE),
+                eq(100L), eq(10), any());
+    }
+
+    @Test
+    public void registerInvalid() throws Exception {
+        when(standingQueries.getPeriod()).thenReturn(60);
+        QueriesController controller = controller();
+
+        assertThat(controller.register("median", "gt", 1d, 10).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(controller.register("sum", "ne", 1d, 10).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(controller.register("sum", "gt", Double.NaN, 10).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(controller.register("sum", "gt", 1d, 0).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(controller.register("sum", "gt", 1d, 61).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        assertThat(controller.register("count", "gt", 1.5d, 10).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        verify(standingQueries, never()).register(any(), any(), anyLong(), anyInt(), any());
+    }
+
+    @Test
+    public void registerLimit() throws Exception {
+        when(standingQueries.getPeriod()).thenReturn(60);
+        when(standingQueries.register(any(), any(), anyLong(), anyInt(), any())).thenReturn(-1L);
+
+        assertThat(controller().register("max", "ge", 100d, null).getStatusCode(), is(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    private QueriesController controller() {
+        return new QueriesController(standingQueries, new DefaultStatisticsCollector(), 60000L);
+    }
+}
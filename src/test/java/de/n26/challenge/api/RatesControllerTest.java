@@ -0,0 +1,29 @@
+package de.n26.challenge.api;
+
+import de.n26.challenge.business.TransactionRates;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link RatesController}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class RatesControllerTest {
+
+    @Test
+    public void getRates() throws Exception {
+        TransactionRates transactionRates = new TransactionRates();
+        transactionRates.secondClosed(1500000000L, 25050L, 3L, 50L, 20000L);
+
+        Rates rates = new RatesController(transactionRates).getRates();
+
+        assertThat(rates.getTimestamp(), is(1500000000000L));
+        assertThat(rates.getCurrent(), is(new Rate(3.0d, 250.5d)));
+        assertThat(rates.getAverages().keySet().toString(), is("[1m, 5m, 15m]"));
+        assertThat(rates.getAverages().get("1m").getTransactionsPerSecond(),
+                is(transactionRates.getRates().getCountAverage(0)));
+    }
+}
@@ -0,0 +1,67 @@
+package de.n26.challenge.api;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link ReadLaneFilter}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class ReadLaneFilterTest {
+
+    private static final int READ_LANE_PORT = 8081;
+
+    private final ReadLaneFilter filter = new ReadLaneFilter(READ_LANE_PORT);
+
+    @Test
+    public void readLane() throws Exception {
+        MockFilterChain chain = filter("GET", "/statistics", READ_LANE_PORT);
+        assertThat(chain.getRequest(), is(notNullValue()));
+
+        chain = filter("GET", "/statistics/rates", READ_LANE_PORT);
+        assertThat(chain.getRequest(), is(notNullValue()));
+
+        chain = filter("POST", "/transactions", READ_LANE_PORT);
+        assertThat(chain.getRequest(), is(nullValue()));
+    }
+
+    @Test
+    public void readLaneBlockingReads() throws Exception {
+        for(String uri : new String[] {"/statistics/history", "/statistics/global", "/statistics/partials",
+                "/statistics/queries", "/statisticsXYZ", "/statistics/"}) {
+            MockFilterChain chain = filter("GET", uri, READ_LANE_PORT);
+            assertThat(uri, chain.getRequest(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void mainLane() throws Exception {
+        MockFilterChain chain = filter("POST", "/transactions", 8080);
+        assertThat(chain.getRequest(), is(notNullValue()));
+    }
+
+    private MockFilterChain filter(String method, String uri, int port) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setLocalPort(port);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        if(chain.getRequest() == null) {
+            assertThat(response.getStatus(), is(HttpStatus.NOT_FOUND.value()));
+        }
+
+        return chain;
+    }
+
+}
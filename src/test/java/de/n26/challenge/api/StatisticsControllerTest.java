@@ -1,6 +1,12 @@
 package de.n26.challenge.api;
 
+import de.n26.challenge.business.CountWindow;
+import de.n26.challenge.business.DefaultStatisticsCollector;
+import de.n26.challenge.business.DuplicateFilter;
+import de.n26.challenge.business.IngestQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.n26.challenge.business.StatisticsBuffer;
+import de.n26.challenge.business.StatisticsSink;
 import de.n26.challenge.util.CurrentTimeFactory;
 import de.n26.challenge.util.UriBuilder;
 import org.junit.Before;
@@ -8,14 +14,28 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -38,6 +58,9 @@ public class StatisticsControllerTest {
     @Mock
     private UriBuilder uriBuilder;
 
+    @Mock
+    private IngestQueue ingestQueue;
+
     private StatisticsController statisticsController;
 
     private long nowSec = System.currentTimeMillis() / 1000;
@@ -46,13 +69,122 @@ public class StatisticsControllerTest {
     public void setup() throws URISyntaxException {
         when(currentTimeFactory.now()).thenReturn(nowSec);
         when(uriBuilder.getUri()).thenReturn(new URI(FAKE_LOCATION));
-        statisticsController = new StatisticsController(statisticsBuffer, currentTimeFactory, 60, uriBuilder);
+        statisticsController = new StatisticsController(statisticsBuffer, currentTimeFactory, 60, uriBuilder,
+                null, null, null);
     }
 
     @Test
     public void getStatistics() throws Exception {
-        statisticsController.getStatistics();
-        verify(statisticsBuffer).calculate(nowSec);
+        doAnswer(invocation -> {
+            invocation.getArgumentAt(1, StatisticsSink.class).accept(30000L, 3L, 5000L, 20000L);
+            return null;
+        }).when(statisticsBuffer).calculate(eq(nowSec), any(StatisticsSink.class));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        statisticsController.getStatistics(null, null, null, response);
+
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(response.getContentType(), is(MediaType.APPLICATION_JSON_VALUE));
+        assertThat(new ObjectMapper().readValue(response.getContentAsByteArray(), Statistics.class),
+                is(Statistics.build().sum(300).avg(100).max(200).min(50).count(3)));
+    }
+
+    @Test
+    public void getStatisticsLast() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgumentAt(2, StatisticsSink.class).accept(1000L, 1L, 1000L, 1000L);
+            return null;
+        }).when(statisticsBuffer).calculate(eq(nowSec), eq(15), any(StatisticsSink.class));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        statisticsController.getStatistics("15s", null, null, response);
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(new ObjectMapper().readValue(response.getContentAsByteArray(), Statistics.class),
+                is(Statistics.build().sum(10).avg(10).max(10).min(10).count(1)));
+
+        // Longer sub-window is limited by the period
+        statisticsController.getStatistics("120", null, null, new MockHttpServletResponse());
+        verify(statisticsBuffer).calculate(eq(nowSec), eq(60), any(StatisticsSink.class));
+    }
+
+    @Test
+    public void getStatisticsBinary() throws Exception {
+        Statistics statistics = Statistics.build().sum(300).avg(100).max(200).min(50).count(3);
+        when(statisticsBuffer.calculate(nowSec)).thenReturn(statistics);
+        when(statisticsBuffer.calculate(nowSec, 15)).thenReturn(statistics);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<Statistics> entity = statisticsController.getStatistics(null, null,
+                BinaryMediaTypes.APPLICATION_SMILE_VALUE, response);
+        assertThat(entity.getHeaders().getContentType(), is(BinaryMediaTypes.APPLICATION_SMILE));
+        assertThat(entity.getBody(), is(statistics));
+
+        entity = statisticsController.getStatistics("15s", null, "application/cbor, application/json;q=0.5", response);
+        assertThat(entity.getHeaders().getContentType(), is(BinaryMediaTypes.APPLICATION_CBOR));
+        assertThat(entity.getBody(), is(statistics));
+
+        // Written as JSON by the controller itself
+        entity = statisticsController.getStatistics("15s", null, "application/json, application/cbor;q=0.5", response);
+        assertThat(entity, is((ResponseEntity<Statistics>) null));
+        verify(statisticsBuffer).calculate(eq(nowSec), eq(15), any(StatisticsSink.class));
+    }
+
+    @Test
+    public void getStatisticsLastInvalid() throws Exception {
+        for(String last : new String[] {"0s", "15m", "s", "-5", "9999999999"}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            statisticsController.getStatistics(last, null, null, response);
+            assertThat(response.getStatus(), is(HttpStatus.BAD_REQUEST.value()));
+        }
+    }
+
+    @Test
+    public void getStatisticsLastN() throws Exception {
+        CountWindow<Statistics> countWindow = new CountWindow<>(3, new DefaultStatisticsCollector());
+        StatisticsController controller = new StatisticsController(statisticsBuffer, currentTimeFactory, 60,
+                uriBuilder, null, null, countWindow);
+
+        for(double amount : new double[] {1d, 0.5d, 2d, 3d}) {
+            Transaction transaction = new Transaction();
+            transaction.setTimestamp(nowSec * 1000);
+            transaction.setAmount(amount);
+            controller.updateStatistics(transaction);
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.getStatistics(null, "2", null, response);
+        assertThat(response.getContentAsString(), is("{\"sum\":5.0,\"avg\":2.0,\"max\":3.0,\"min\":2.0,\"count\":2}"));
+
+        // Limited by the capacity
+        ResponseEntity<Statistics> entity = controller.getStatistics(null, "10000",
+                BinaryMediaTypes.APPLICATION_CBOR_VALUE, new MockHttpServletResponse());
+        assertThat(entity.getBody(), is(Statistics.build().sum(5.5).avg(1.8).max(3).min(0.5).count(3)));
+
+        for(String[] parameters : new String[][] {{null, "0"}, {null, "1k"}, {"15s", "10"}}) {
+            response = new MockHttpServletResponse();
+            controller.getStatistics(parameters[0], parameters[1], null, response);
+            assertThat(response.getStatus(), is(HttpStatus.BAD_REQUEST.value()));
+        }
+
+        // Disabled
+        response = new MockHttpServletResponse();
+        statisticsController.getStatistics(null, "10", null, response);
+        assertThat(response.getStatus(), is(HttpStatus.NOT_FOUND.value()));
+    }
+
+    @Test
+    public void updateStatisticsDuplicate() throws Exception {
+        StatisticsController controller = new StatisticsController(statisticsBuffer, currentTimeFactory, 60,
+                uriBuilder, null, new DuplicateFilter(60, 1000, 0.001d), null);
+
+        Transaction transaction = new Transaction();
+        transaction.setTimestamp(nowSec * 1000);
+        transaction.setAmount(0.5d);
+        transaction.setId("tx-1");
+
+        assertThat(controller.updateStatistics(transaction).getStatusCode(), is(HttpStatus.CREATED));
+        assertThat(controller.updateStatistics(transaction).getStatusCode(), is(HttpStatus.OK));
+        verify(statisticsBuffer).add(50L, StatisticsBuffer.NO_ACCOUNT, nowSec, nowSec);
     }
 
     @Test
@@ -93,6 +225,40 @@ public class StatisticsControllerTest {
         assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
     }
 
+    @Test
+    public void updateStatisticsRejectEvent() throws Exception {
+        statisticsController.setEventsEnabled(true);
+
+        Transaction transaction = new Transaction();
+        transaction.setTimestamp((nowSec + 1) * 1000);
+        transaction.setAmount(0.5d);
+
+        Path file = Files.createTempFile("reject", ".jfr");
+        try(Recording recording = new Recording()) {
+            recording.enable("de.n26.challenge.TransactionReject");
+            recording.start();
+
+            statisticsController.updateStatistics(transaction);
+
+            // Outdated transaction is rejected too, although it is not an error of the client
+            transaction.setTimestamp((nowSec - 60) * 1000);
+            statisticsController.updateStatistics(transaction);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+            assertThat(events.size(), is(2));
+            assertThat(events.get(0).getInt("status"), is(HttpStatus.BAD_REQUEST.value()));
+            assertThat(events.get(0).getString("reason"), is("Transaction data is not valid"));
+            assertThat(events.get(1).getInt("status"), is(HttpStatus.NO_CONTENT.value()));
+            assertThat(events.get(1).getString("reason"), is("Transaction is outdated"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void updateStatistics() throws Exception {
         Transaction transaction = new Transaction();
@@ -105,7 +271,40 @@ public class StatisticsControllerTest {
         assertThat(response.getStatusCode(), is(HttpStatus.CREATED));
         assertThat(response.getHeaders().getLocation(), is(new URI(FAKE_LOCATION)));
 
-        verify(statisticsBuffer).add(50L, timestamp / 1000, nowSec);
+        verify(statisticsBuffer).add(50L, StatisticsBuffer.NO_ACCOUNT, timestamp / 1000, nowSec);
+    }
+
+    @Test
+    public void updateStatisticsAccount() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setTimestamp(nowSec * 1000);
+        transaction.setAmount(0.5d);
+        transaction.setAccount("DE89370400440532013000");
+
+        assertThat(statisticsController.updateStatistics(transaction).getStatusCode(), is(HttpStatus.CREATED));
+        verify(statisticsBuffer).add(50L, StatisticsBuffer.accountHash("DE89370400440532013000"), nowSec, nowSec);
+    }
+
+    @Test
+    public void updateStatisticsAsync() throws Exception {
+        StatisticsController asyncController =
+                new StatisticsController(statisticsBuffer, currentTimeFactory, 60, uriBuilder, ingestQueue, null, null);
+        Transaction transaction = new Transaction();
+        long timestamp = (nowSec - 55) * 1000;
+
+        transaction.setTimestamp(timestamp);
+        transaction.setAmount(0.5d);
+
+        when(ingestQueue.offer(50L, timestamp / 1000, null, StatisticsBuffer.NO_ACCOUNT)).thenReturn(true);
+        ResponseEntity<?> response = asyncController.updateStatistics(transaction);
+        assertThat(response.getStatusCode(), is(HttpStatus.ACCEPTED));
+
+        when(ingestQueue.offer(50L, timestamp / 1000, null, StatisticsBuffer.NO_ACCOUNT)).thenReturn(false);
+        response = asyncController.updateStatistics(transaction);
+        assertThat(response.getStatusCode(), is(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), is("1"));
+
+        verify(statisticsBuffer, never()).add(50L, StatisticsBuffer.NO_ACCOUNT, timestamp / 1000, nowSec);
     }
 
 }
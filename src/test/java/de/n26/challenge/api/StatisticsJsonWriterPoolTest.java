@@ -0,0 +1,70 @@
+package de.n26.challenge.api;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link StatisticsJsonWriterPool}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class StatisticsJsonWriterPoolTest {
+
+    @Test
+    public void borrowOnNewThreads() throws Exception {
+        StatisticsJsonWriterPool pool = new StatisticsJsonWriterPool(1);
+        AtomicReference<StatisticsJsonWriter> first = new AtomicReference<>();
+        AtomicReference<StatisticsJsonWriter> second = new AtomicReference<>();
+
+        // Thread per request like virtual threads, the writer is reused anyway
+        runOnNewThread(() -> {
+            StatisticsJsonWriter writer = pool.borrow();
+            first.set(writer);
+            pool.release(writer);
+        });
+        runOnNewThread(() -> {
+            StatisticsJsonWriter writer = pool.borrow();
+            second.set(writer);
+            pool.release(writer);
+        });
+
+        assertThat(second.get(), is(sameInstance(first.get())));
+        assertThat(pool.getAvailable(), is(1));
+    }
+
+    @Test
+    public void borrowExhausted() throws Exception {
+        StatisticsJsonWriterPool pool = new StatisticsJsonWriterPool(2);
+
+        StatisticsJsonWriter writer1 = pool.borrow();
+        StatisticsJsonWriter writer2 = pool.borrow();
+        assertThat(pool.getAvailable(), is(0));
+
+        // Pool doesn't block when exhausted, extra writer is dropped on release
+        StatisticsJsonWriter writer3 = pool.borrow();
+        assertThat(writer3, is(not(sameInstance(writer1))));
+        assertThat(writer3, is(not(sameInstance(writer2))));
+
+        pool.release(writer1);
+        pool.release(writer2);
+        pool.release(writer3);
+        assertThat(pool.getAvailable(), is(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityNotPositive() throws Exception {
+        new StatisticsJsonWriterPool(0);
+    }
+
+    private void runOnNewThread(Runnable runnable) throws InterruptedException {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        thread.join();
+    }
+}
@@ -0,0 +1,71 @@
+package de.n26.challenge.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.n26.challenge.business.DefaultStatisticsCollector;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link StatisticsJsonWriter}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class StatisticsJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void accept() throws Exception {
+        StatisticsJsonWriter writer = new StatisticsJsonWriter();
+
+        writer.accept(12345L, 3L, 5L, 10000L);
+        assertThat(writer.toString(), is("{\"sum\":123.45,\"avg\":41.15,\"max\":100.0,\"min\":0.05,\"count\":3}"));
+
+        writer.accept(0L, 0L, 0L, 0L);
+        assertThat(writer.toString(), is("{\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0}"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.writeTo(outputStream);
+        assertThat(objectMapper.readValue(outputStream.toByteArray(), Statistics.class), is(Statistics.EMPTY_STATISTICS));
+    }
+
+    @Test
+    public void acceptSameAsCollector() throws Exception {
+        StatisticsJsonWriter writer = new StatisticsJsonWriter();
+        DefaultStatisticsCollector collector = new DefaultStatisticsCollector();
+        Random random = new Random(42);
+
+        for(int n = 0; n < 10000; n++) {
+            long count = 1 + random.nextInt(1000);
+            long min = 1 + random.nextInt(100000);
+            long max = min + random.nextInt(100000);
+            // Round sums to check the scale the average is rounded to
+            long sum = count * min + random.nextInt(100000) * (long) Math.pow(10, random.nextInt(4));
+
+            writer.accept(sum, count, min, max);
+
+            assertThat(writer.toString(), objectMapper.readValue(writer.toString(), Statistics.class),
+                    is(collector.collectStatistics(sum, count, min, max)));
+        }
+    }
+
+    @Test
+    public void acceptDistinct() throws Exception {
+        StatisticsJsonWriter writer = new StatisticsJsonWriter();
+
+        writer.accept(12345L, 3L, 5L, 10000L, 2L);
+        assertThat(writer.toString(),
+                is("{\"sum\":123.45,\"avg\":41.15,\"max\":100.0,\"min\":0.05,\"count\":3,\"distinct\":2}"));
+        assertThat(objectMapper.readValue(writer.toString(), Statistics.class),
+                is(new DefaultStatisticsCollector().collectStatistics(12345L, 3L, 5L, 10000L, 2L)));
+
+        // Not counted
+        writer.accept(12345L, 3L, 5L, 10000L, -1L);
+        assertThat(writer.toString(), is("{\"sum\":123.45,\"avg\":41.15,\"max\":100.0,\"min\":0.05,\"count\":3}"));
+    }
+}
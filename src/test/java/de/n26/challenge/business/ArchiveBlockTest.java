@@ -0,0 +1,60 @@
+package de.n26.challenge.business;
+
+import org.junit.Test;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link ArchiveBlock}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class ArchiveBlockTest {
+
+    @Test
+    public void encodeDecode() throws Exception {
+        StatisticPartials partials = new StatisticPartials(4);
+        partials.add(1500000000L, 1000L, 1L, 1000L, 1000L);
+        partials.add(1500000001L, 5000L, 3L, 500L, 3000L);
+        partials.add(1500000002L, 4000L, 2L, 1500L, 2500L);
+        partials.add(1500000010L, Long.MAX_VALUE, 1L, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        ByteBuffer buffer = ArchiveBlock.encode(partials);
+        int length = buffer.remaining();
+
+        ArchiveBlock block = ArchiveBlock.readHeader(buffer);
+        assertThat(block.getCount(), is(4));
+        assertThat(block.getLength(), is(length));
+        assertThat(block.getMinSecond(), is(1500000000L));
+        assertThat(block.getMaxSecond(), is(1500000010L));
+
+        // Delta encoded regular seconds take much less than raw longs
+        assertTrue(length < 4 * 5 * Long.BYTES);
+
+        ((Buffer) buffer).position(ArchiveBlock.HEADER_BYTES);
+        StatisticPartials decoded = new StatisticPartials(4);
+        block.decode(buffer, 1500000001L, 1500000010L, decoded);
+
+        assertThat(decoded.size(), is(3));
+        assertThat(decoded.getSecond(0), is(1500000001L));
+        assertThat(decoded.getSum(0), is(5000L));
+        assertThat(decoded.getCount(0), is(3L));
+        assertThat(decoded.getMin(0), is(500L));
+        assertThat(decoded.getMax(0), is(3000L));
+        assertThat(decoded.getSecond(1), is(1500000002L));
+        assertThat(decoded.getMin(1), is(1500L));
+        assertThat(decoded.getSecond(2), is(1500000010L));
+        assertThat(decoded.getSum(2), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void readHeaderCorrupted() throws Exception {
+        assertThat(ArchiveBlock.readHeader(ByteBuffer.allocate(ArchiveBlock.HEADER_BYTES - 1)), is(nullValue()));
+        assertThat(ArchiveBlock.readHeader(ByteBuffer.allocate(ArchiveBlock.HEADER_BYTES)), is(nullValue()));
+    }
+}
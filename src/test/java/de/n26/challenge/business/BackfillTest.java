@@ -0,0 +1,160 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.util.AmountConverter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test {@link Backfill}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class BackfillTest {
+
+    private static final int PERIOD = 60;
+    private static final long START_MILLIS = 1500000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void runCsv() throws Exception {
+        List<long[]> transactions = transactions(5000, 600);
+
+        StringBuilder csv = new StringBuilder("timestamp,amount\n");
+        for(long[] transaction : transactions) {
+            csv.append(transaction[0]).append(',')
+                    .append(AmountConverter.toBigDecimalValue(transaction[1]).toPlainString())
+                    .append(transaction[0] % 2 == 0 ? "\r\n" : "\n");
+        }
+        csv.append("1500000001000,abc\n");
+        csv.append("1500000001000,-5\n");
+        csv.append(START_MILLIS + 1000).append(",0\n");
+
+        Path input = folder.newFile("transactions.csv").toPath();
+        Files.write(input, csv.toString().getBytes(StandardCharsets.US_ASCII));
+        Path output = folder.newFile("statistics.csv").toPath();
+
+        // Small chunks so seconds are split between workers
+        Backfill.Summary summary = new Backfill(PERIOD, 4, 256).run(input, Backfill.Format.CSV, output);
+
+        assertThat(summary.getRows(), is(transactions.size() + 4L));
+        assertThat(summary.getSkipped(), is(4L));
+        assertThat(Files.readAllLines(output), is(expected(transactions)));
+    }
+
+    @Test
+    public void runCsvAmounts() throws Exception {
+        Path input = folder.newFile("transactions.csv").toPath();
+        Files.write(input, (START_MILLIS + ",12.345\n"
+                + START_MILLIS + ",7\n"
+                + START_MILLIS + ",.5\n"
+                + START_MILLIS + ",0.994").getBytes(StandardCharsets.US_ASCII));
+        Path output = folder.newFile("statistics.csv").toPath();
+
+        Backfill.Summary summary = new Backfill(PERIOD, 1, 1024).run(input, Backfill.Format.CSV, output);
+
+        assertThat(summary.getSkipped(), is(0L));
+        assertThat(Files.readAllLines(output).get(0), is("1500000000,20.84,5.21,12.35,0.5,4"));
+    }
+
+    @Test
+    public void runBinary() throws Exception {
+        List<long[]> transactions = transactions(5000, 600);
+
+        Path input = folder.newFile("transactions.bin").toPath();
+        try(DataOutputStream stream = new DataOutputStream(Files.newOutputStream(input))) {
+            for(long[] transaction : transactions) {
+                stream.writeLong(transaction[0]);
+                stream.writeLong(transaction[1]);
+            }
+        }
+        Path output = folder.newFile("statistics.csv").toPath();
+
+        Backfill.Summary summary = new Backfill(PERIOD, 4, 1000).run(input, Backfill.Format.BINARY, output);
+
+        assertThat(summary.getRows(), is((long) transactions.size()));
+        assertThat(summary.getSkipped(), is(0L));
+        assertThat(Files.readAllLines(output), is(expected(transactions)));
+    }
+
+    @Test
+    public void runEmpty() throws Exception {
+        Path input = folder.newFile("transactions.csv").toPath();
+        Path output = folder.newFile("statistics.csv").toPath();
+
+        Backfill.Summary summary = new Backfill(PERIOD, 2, 1024).run(input, Backfill.Format.CSV, output);
+
+        assertThat(summary.getRows(), is(0L));
+        assertThat(Files.readAllLines(output).isEmpty(), is(true));
+    }
+
+    // Ordered by time with rows out of order within a few seconds
+    private static List<long[]> transactions(int number, int seconds) {
+        Random random = new Random(3L);
+        List<long[]> transactions = new ArrayList<>(number);
+
+        for(int i = 0; i < number; i++) {
+            long timestamp = START_MILLIS + (long) i * seconds * 1000 / number - random.nextInt(3000);
+            transactions.add(new long[] {Math.max(START_MILLIS, timestamp), 1L + random.nextInt(100000)});
+        }
+
+        return transactions;
+    }
+
+    private static List<String> expected(List<long[]> transactions) throws IOException {
+        long minSec = Long.MAX_VALUE;
+        long maxSec = Long.MIN_VALUE;
+        for(long[] transaction : transactions) {
+            minSec = Math.min(minSec, transaction[0] / 1000);
+            maxSec = Math.max(maxSec, transaction[0] / 1000);
+        }
+
+        List<String> lines = new ArrayList<>();
+        for(long second = minSec; second <= maxSec; second++) {
+            long sum = 0L;
+            long count = 0L;
+            long min = Long.MAX_VALUE;
+            long max = 0L;
+
+            for(long[] transaction : transactions) {
+                long transactionSec = transaction[0] / 1000;
+
+                if(transactionSec <= second && second - transactionSec < PERIOD) {
+                    sum += transaction[1];
+                    count++;
+                    min = Math.min(min, transaction[1]);
+                    max = Math.max(max, transaction[1]);
+                }
+            }
+
+            if(count == 0L) {
+                lines.add(second + ",0,0,0,0,0");
+            } else {
+                BigDecimal sumConverted = AmountConverter.toBigDecimalValue(sum);
+                lines.add(second
+                        + "," + sumConverted.toPlainString()
+                        + "," + sumConverted.divide(BigDecimal.valueOf(count), BigDecimal.ROUND_HALF_EVEN).toPlainString()
+                        + "," + AmountConverter.toBigDecimalValue(max).toPlainString()
+                        + "," + AmountConverter.toBigDecimalValue(min).toPlainString()
+                        + "," + count);
+            }
+        }
+
+        return lines;
+    }
+}
@@ -0,0 +1,107 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link CountWindow}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class CountWindowTest {
+
+    @Test
+    public void calculate() throws Exception {
+        CountWindow<Statistics> window = new CountWindow<>(3, new DefaultStatisticsCollector());
+        assertThat(window.calculate(3), is(Statistics.EMPTY_STATISTICS));
+
+        window.add(1000L);
+        window.add(500L);
+        assertThat(window.calculate(3), is(Statistics.build().sum(15).avg(8).max(10).min(5).count(2)));
+
+        window.add(new long[] {2000L, 3000L, 0L}, 2);
+        assertThat(window.calculate(3), is(Statistics.build().sum(55).avg(18).max(30).min(5).count(3)));
+        assertThat(window.calculate(100), is(window.calculate(3)));
+        assertThat(window.calculate(1), is(Statistics.build().sum(30).avg(30).max(30).min(30).count(1)));
+    }
+
+    @Test
+    public void calculateRandom() throws Exception {
+        int capacity = 1000;
+        CountWindow<StatisticsSnapshot> window = new CountWindow<>(capacity, StatisticsSnapshot.COLLECTOR);
+        List<Long> added = new ArrayList<>();
+
+        Random random = new Random(17);
+        for(int i = 0; i < 20000; i++) {
+            // Runs of increasing and decreasing amounts to grow the deques
+            long amount = i % 4000 < 2000
+                    ? 1 + (i % 2000) * 10 + random.nextInt(5)
+                    : 1 + random.nextInt(100000);
+            window.add(amount);
+            added.add(amount);
+
+            if(i % 97 == 0) {
+                int lastN = 1 + random.nextInt(capacity + 100);
+                assertThat(window.calculate(lastN).toString(), is(expected(added, Math.min(lastN, capacity))));
+            }
+        }
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        CountWindow<Statistics> window = new CountWindow<>(0, new DefaultStatisticsCollector());
+        window.add(1000L);
+
+        assertThat(window.getCapacity(), is(0));
+        assertThat(window.calculate(10), is(Statistics.EMPTY_STATISTICS));
+    }
+
+    @Test
+    public void calculateConcurrent() throws Exception {
+        CountWindow<StatisticsSnapshot> window = new CountWindow<>(100, StatisticsSnapshot.COLLECTOR);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Amounts of a window of 10 are 10 consecutive numbers, so any consistent read is recognized
+        Thread writer = new Thread(() -> {
+            for(long amount = 1; amount <= 200000; amount++) {
+                window.add(amount);
+            }
+            done.countDown();
+        });
+        writer.start();
+
+        while(done.getCount() > 0) {
+            StatisticsSnapshot snapshot = window.calculate(10);
+
+            if(snapshot.getCount() == 10L) {
+                assertThat(snapshot.getMax() - snapshot.getMin(), is(9L));
+                assertThat(snapshot.getSum(), is(10 * snapshot.getMin() + 45));
+            }
+        }
+
+        writer.join();
+    }
+
+    private static String expected(List<Long> added, int lastN) {
+        List<Long> last = added.subList(Math.max(0, added.size() - lastN), added.size());
+        long sum = 0L;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        for(long amount : last) {
+            sum += amount;
+            min = Math.min(min, amount);
+            max = Math.max(max, amount);
+        }
+
+        return StatisticsSnapshot.COLLECTOR.collectStatistics(sum, last.size(), min, max).toString();
+    }
+}
@@ -0,0 +1,82 @@
+package de.n26.challenge.business;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link DuplicateFilter}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class DuplicateFilterTest {
+
+    private static final long START_SEC = 1500000000L;
+
+    @Test
+    public void register() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(60, 1000, 0.001d);
+
+        assertTrue(filter.register("tx-1", START_SEC));
+        assertTrue(filter.register("tx-2", START_SEC));
+        assertFalse(filter.register("tx-1", START_SEC));
+
+        // Same id in another second is another transaction
+        assertTrue(filter.register("tx-1", START_SEC + 1));
+
+        assertThat(filter.getDuplicates(), is(1L));
+    }
+
+    @Test
+    public void registerExpired() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(60, 1000, 0.001d);
+
+        assertTrue(filter.register("tx-1", START_SEC));
+
+        // Filter of the second is cleared once the ring comes round to it
+        assertTrue(filter.register("tx-2", START_SEC + 60));
+        assertTrue(filter.register("tx-1", START_SEC + 60));
+        assertFalse(filter.register("tx-1", START_SEC + 60));
+
+        // Second out of the period is not tracked anymore
+        assertTrue(filter.register("tx-1", START_SEC));
+    }
+
+    @Test
+    public void registerFalsePositiveRate() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(60, 10000, 0.01d);
+
+        int falsePositives = 0;
+        for(int i = 0; i < 10000; i++) {
+            if(!filter.register("transaction-" + i, START_SEC)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(filter.getFalsePositiveRate(), is(0.01d));
+        assertTrue("False positives: " + falsePositives, falsePositives < 200);
+    }
+
+    @Test
+    public void invalidConfiguration() throws Exception {
+        // Zero would size the slots to Integer.MAX_VALUE bits, negative and NaN rates to none
+        for(double falsePositiveRate : new double[] {0.0d, -0.1d, 1.0d, Double.NaN}) {
+            try {
+                new DuplicateFilter(60, 1000, falsePositiveRate);
+                fail("False positive rate must be rejected: " + falsePositiveRate);
+            } catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+
+        for(int expectedPerSecond : new int[] {0, -1}) {
+            try {
+                new DuplicateFilter(60, expectedPerSecond, 0.01d);
+                fail("Expected transactions per second must be rejected: " + expectedPerSecond);
+            } catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+    }
+}
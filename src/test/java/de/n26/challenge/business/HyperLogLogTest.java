@@ -0,0 +1,62 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.util.Hashes;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link HyperLogLog}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class HyperLogLogTest {
+
+    @Test
+    public void registerRank() throws Exception {
+        assertThat(HyperLogLog.register(0xf000000000000000L, 4), is(15));
+        assertThat(HyperLogLog.register(0x0fffffffffffffffL, 4), is(0));
+
+        assertThat(HyperLogLog.rank(0xf800000000000000L, 4), is((byte) 1));
+        assertThat(HyperLogLog.rank(0xf100000000000000L, 4), is((byte) 4));
+        // Limited by the sentinel bit
+        assertThat(HyperLogLog.rank(0xf000000000000000L, 4), is((byte) 61));
+    }
+
+    @Test
+    public void estimate() throws Exception {
+        for(int precision : new int[] {HyperLogLog.MIN_PRECISION, 10, 12}) {
+            for(int cardinality : new int[] {10, 1000, 100000}) {
+                int registers = 1 << precision;
+                byte[] sketch = new byte[registers];
+
+                // Every account twice
+                for(int i = 0; i < 2 * cardinality; i++) {
+                    long hash = Hashes.mix(Hashes.hash("account-" + i % cardinality));
+                    int register = HyperLogLog.register(hash, precision);
+                    sketch[register] = (byte) Math.max(sketch[register], HyperLogLog.rank(hash, precision));
+                }
+
+                double inverseSum = 0d;
+                int zeros = 0;
+                for(byte rank : sketch) {
+                    inverseSum += HyperLogLog.inverse(rank);
+                    zeros += rank == 0 ? 1 : 0;
+                }
+
+                long estimate = HyperLogLog.estimate(inverseSum, zeros, registers);
+                // Four standard errors
+                double error = 4 * 1.04d / Math.sqrt(registers);
+
+                assertTrue(precision + "/" + cardinality + ": " + estimate,
+                        Math.abs(estimate - cardinality) <= Math.max(1d, error * cardinality));
+            }
+        }
+    }
+
+    @Test
+    public void estimateEmpty() throws Exception {
+        assertThat(HyperLogLog.estimate(1024d, 1024, 1024), is(0L));
+    }
+}
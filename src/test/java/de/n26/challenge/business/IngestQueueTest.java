@@ -0,0 +1,178 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link IngestQueue}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class IngestQueueTest {
+
+    private final long nowSec = System.currentTimeMillis() / 1000;
+    private final CurrentTimeFactory currentTimeFactory = () -> nowSec;
+
+    @Test
+    public void offer() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        IngestQueue queue = new IngestQueue(buffer, currentTimeFactory, 1024, 16);
+        queue.start();
+
+        for(int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(1000L, nowSec - i % 60));
+        }
+
+        queue.stop();
+
+        assertThat(queue.getApplied(), is(100L));
+        assertThat(queue.getDepth(), is(0));
+        assertThat(buffer.calculate(nowSec).getCount(), is(100L));
+    }
+
+    @Test
+    public void offerCountWindow() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        CountWindow<Statistics> countWindow = new CountWindow<>(50, new DefaultStatisticsCollector());
+        IngestQueue queue = new IngestQueue(buffer, currentTimeFactory, 1024, 16, null, countWindow);
+        queue.start();
+
+        for(int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(1000L, nowSec - i % 60));
+        }
+
+        queue.stop();
+
+        assertThat(queue.getApplied(), is(100L));
+        assertThat(queue.getDepth(), is(0));
+        assertThat(buffer.calculate(nowSec).getCount(), is(100L));
+        assertThat(countWindow.calculate(100).getCount(), is(50L));
+    }
+
+    @Test
+    public void offerAccount() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, StatisticData.Layout.COLUMNAR,
+                StatisticData.CollectMode.SCALAR, 0, 10, new DefaultStatisticsCollector());
+        IngestQueue queue = new IngestQueue(buffer, currentTimeFactory, 1024, 16);
+        queue.start();
+
+        for(int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(1000L, nowSec - i % 60, null, StatisticsBuffer.accountHash("account-" + i % 3)));
+        }
+        assertTrue(queue.offer(1000L, nowSec));
+
+        queue.stop();
+
+        assertThat(buffer.calculate(nowSec).getCount(), is(101L));
+        assertThat(buffer.calculate(nowSec).getDistinct(), is(3L));
+    }
+
+    @Test
+    public void offerDuplicate() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        DuplicateFilter filter = new DuplicateFilter(60, 1000, 0.001d);
+        IngestQueue queue = new IngestQueue(buffer, currentTimeFactory, 1024, 16, filter);
+        queue.start();
+
+        assertTrue(queue.offer(1000L, nowSec, "tx-1"));
+        assertTrue(queue.offer(1000L, nowSec, "tx-1"));
+        assertTrue(queue.offer(1000L, nowSec, null));
+        assertTrue(queue.offer(1000L, nowSec, null));
+
+        queue.stop();
+
+        assertThat(queue.getApplied(), is(3L));
+        assertThat(filter.getDuplicates(), is(1L));
+        assertThat(buffer.calculate(nowSec).getCount(), is(3L));
+    }
+
+    @Test
+    public void offerQueueFull() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<Statistics>(60, new DefaultStatisticsCollector()) {
+            @Override
+            public void add(long[] amounts, long[] accountHashes, long[] times, int length, long nowSec) {
+                applying.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.add(amounts, accountHashes, times, length, nowSec);
+            }
+        };
+        IngestQueue queue = new IngestQueue(buffer, currentTimeFactory, 2, 2);
+        queue.start();
+
+        // Drainer takes the first one and gets stuck, then queue is filled up
+        assertTrue(queue.offer(1000L, nowSec));
+        applying.await();
+        assertTrue(queue.offer(1000L, nowSec));
+        assertTrue(queue.offer(1000L, nowSec));
+        assertFalse(queue.offer(1000L, nowSec));
+        assertThat(queue.getDepth(), is(2));
+        assertThat(queue.getDropped(), is(1L));
+
+        release.countDown();
+        queue.stop();
+
+        // Stopped queue accepts nothing
+        assertFalse(queue.offer(1000L, nowSec));
+        assertThat(queue.getDropped(), is(2L));
+        assertThat(buffer.calculate(nowSec).getCount(), is(3L));
+    }
+
+    @Test
+    public void offerWhileStopping() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        IngestQueue queue = new IngestQueue(buffer, currentTimeFactory, 64, 8);
+        queue.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Future<Long>> producers = new ArrayList<>();
+
+        // Producers offer until the queue is stopped, full queue is retried
+        for(int i = 0; i < 4; i++) {
+            producers.add(executor.submit(() -> {
+                long enqueued = 0L;
+                started.countDown();
+
+                for(int attempt = 0; attempt < 1000000; attempt++) {
+                    if(queue.offer(1000L, nowSec)) {
+                        enqueued++;
+                    } else if(queue.getDepth() < 64) {
+                        break;
+                    }
+                }
+                return enqueued;
+            }));
+        }
+
+        started.await();
+        Thread.sleep(10L);
+        queue.stop();
+
+        long enqueued = 0L;
+        for(Future<Long> producer : producers) {
+            enqueued += producer.get();
+        }
+        executor.shutdown();
+
+        // Everything accepted is applied
+        assertThat(queue.getApplied(), is(enqueued));
+        assertThat(buffer.calculate(nowSec).getCount(), is(enqueued));
+    }
+}
@@ -0,0 +1,64 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test {@link PeerAggregator}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PeerAggregatorTest {
+
+    private static final String PEER_1 = "http://peer1";
+    private static final String PEER_2 = "http://peer2";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Test
+    public void aggregate() throws Exception {
+        long nowSec = System.currentTimeMillis() / 1000;
+
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        buffer.add(1000L, nowSec - 1, nowSec);
+
+        StatisticPartials peerPartials = new StatisticPartials(1);
+        peerPartials.add(nowSec - 1, 5000L, 2L, 2000L, 3000L);
+
+        when(restTemplate.getForObject(PEER_1 + PeerAggregator.PARTIALS_PATH, byte[].class))
+                .thenReturn(peerPartials.encode());
+        when(restTemplate.getForObject(PEER_2 + PeerAggregator.PARTIALS_PATH, byte[].class))
+                .thenThrow(new ResourceAccessException("Peer is down"));
+
+        PeerAggregator aggregator = new PeerAggregator(buffer, new DefaultStatisticsCollector(), 60,
+                Arrays.asList(PEER_1, PEER_2), 1000L, restTemplate);
+
+        try {
+            Statistics statistics = aggregator.aggregate(nowSec);
+            Statistics statistics_expected = Statistics.build()
+                    .avg(20.0)
+                    .count(3)
+                    .max(30.0)
+                    .min(10.0)
+                    .sum(60.0);
+
+            assertThat(statistics, is(statistics_expected));
+        } finally {
+            aggregator.shutdown();
+        }
+    }
+
+}
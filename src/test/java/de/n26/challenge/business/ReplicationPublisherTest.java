@@ -0,0 +1,118 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.Socket;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link ReplicationPublisher} together with {@link ReplicationReceiver}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class ReplicationPublisherTest {
+
+    private static final long TIMEOUT_MILLIS = 10000L;
+
+    private final long nowSec = System.currentTimeMillis() / 1000;
+    private final CurrentTimeFactory currentTimeFactory = () -> nowSec;
+
+    private StatisticsBuffer<Statistics> primaryBuffer;
+    private StatisticsBuffer<Statistics> standbyBuffer;
+    private ReplicationPublisher publisher;
+    private ReplicationReceiver receiver;
+
+    @Before
+    public void setup() throws Exception {
+        primaryBuffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        standbyBuffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        publisher = new ReplicationPublisher(primaryBuffer, currentTimeFactory, 0, 2);
+        publisher.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if(receiver != null) {
+            receiver.stop();
+        }
+        publisher.stop();
+    }
+
+    @Test
+    public void publish() throws Exception {
+        // Data before standby is connected is sent as full state
+        primaryBuffer.add(1000L, nowSec - 5, nowSec);
+
+        receiver = new ReplicationReceiver(standbyBuffer, currentTimeFactory, "localhost", publisher.getPort());
+        receiver.start();
+
+        awaitConnected();
+        publishUntilApplied(1);
+        assertThat(standbyBuffer.calculate(nowSec), is(primaryBuffer.calculate(nowSec)));
+
+        // Then changes only
+        primaryBuffer.add(2000L, nowSec - 5, nowSec);
+        primaryBuffer.add(3000L, nowSec, nowSec);
+
+        publishUntilApplied(receiver.getFramesApplied() + 1);
+        assertThat(standbyBuffer.calculate(nowSec), is(primaryBuffer.calculate(nowSec)));
+        assertThat(standbyBuffer.calculate(nowSec).getCount(), is(3L));
+        assertTrue(receiver.getLagMillis() < 1000L);
+    }
+
+    @Test(timeout = 60000L)
+    public void publishSlowStandby() throws Exception {
+        // Frames of a day of slots fill socket buffers of a standby which doesn't read quickly
+        StatisticsBuffer<Statistics> dayBuffer = new StatisticsBuffer<>(86400, new DefaultStatisticsCollector());
+        ReplicationPublisher dayPublisher = new ReplicationPublisher(dayBuffer, currentTimeFactory, 0, 2);
+        dayPublisher.start();
+
+        try(Socket standby = new Socket("localhost", dayPublisher.getPort())) {
+            assertTrue(standby.isConnected());
+
+            // Publishing is never blocked by the standby, it is disconnected instead
+            while(dayPublisher.getOverflowed() == 0L) {
+                for(int i = 0; i < 86400; i++) {
+                    dayBuffer.add(1000L, nowSec - i, nowSec);
+                }
+                dayPublisher.publish();
+            }
+
+            assertThat(dayPublisher.metrics().stream()
+                    .filter(metric -> metric.getName().equals("replication.standbys"))
+                    .findFirst().get().getValue(), is(0));
+        } finally {
+            dayPublisher.stop();
+        }
+    }
+
+    private void awaitConnected() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while(!receiver.isConnected()) {
+            assertTrue("Standby is not connected", System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+
+    private void publishUntilApplied(long frames) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        publisher.publish();
+
+        while(receiver.getFramesApplied() < frames) {
+            assertTrue("Replication frame is not applied", System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+            // Standby might be accepted after the previous publish
+            if(receiver.getFramesApplied() == 0) {
+                publisher.publish();
+            }
+        }
+    }
+
+}
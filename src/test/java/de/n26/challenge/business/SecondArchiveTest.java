@@ -0,0 +1,121 @@
+package de.n26.challenge.business;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link SecondArchive}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class SecondArchiveTest {
+
+    private static final long START_SEC = 1500000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void query() throws Exception {
+        SecondArchive archive = open(1 << 20);
+
+        for(long sec = START_SEC; sec < START_SEC + 25; sec++) {
+            archive.secondEvicted(sec, 1000L * (sec - START_SEC), 1L, 1000L, 2000L);
+        }
+
+        // Full blocks, pending block and not flushed seconds are all looked up
+        archive.flush();
+        archive.secondEvicted(START_SEC + 25, 1000L, 1L, 1000L, 1000L);
+
+        StatisticPartials result = archive.query(START_SEC + 5, START_SEC + 25);
+        assertThat(result.size(), is(21));
+        for(int i = 0; i < result.size(); i++) {
+            assertThat(result.getSecond(i), is(START_SEC + 5 + i));
+        }
+        assertThat(result.getSum(0), is(5000L));
+        assertThat(result.getMax(0), is(2000L));
+        assertThat(result.getSum(20), is(1000L));
+
+        assertThat(archive.query(START_SEC - 100, START_SEC - 1).size(), is(0));
+
+        archive.close();
+    }
+
+    @Test
+    public void queryWideRange() throws Exception {
+        SecondArchive archive = open(1 << 20);
+
+        for(long sec = START_SEC; sec < START_SEC + 25; sec++) {
+            archive.secondEvicted(sec, 1000L, 1L, 1000L, 1000L);
+        }
+        archive.flush();
+        archive.secondEvicted(START_SEC + 25, 1000L, 1L, 1000L, 1000L);
+
+        // Result is sized by the seconds archived, not by the ten years of the range
+        long years = 10L * 365 * 86400;
+        StatisticPartials result = archive.query(START_SEC - years, START_SEC + years);
+        assertThat(result.size(), is(26));
+        assertThat(result.getSecond(25), is(START_SEC + 25));
+
+        archive.close();
+    }
+
+    @Test
+    public void reopen() throws Exception {
+        SecondArchive archive = open(64);
+
+        for(long sec = START_SEC; sec < START_SEC + 30; sec++) {
+            archive.secondEvicted(sec, 1000L, 1L, 1000L, 1000L);
+        }
+        archive.close();
+
+        // Small segments are rolled over
+        assertTrue(folder.getRoot().listFiles().length > 1);
+
+        SecondArchive reopened = open(64);
+        StatisticPartials result = reopened.query(START_SEC, START_SEC + 29);
+        assertThat(result.size(), is(30));
+        assertThat(result.getSecond(29), is(START_SEC + 29));
+        reopened.close();
+    }
+
+    @Test
+    public void reopenTruncated() throws Exception {
+        SecondArchive archive = open(1 << 20);
+
+        for(long sec = START_SEC; sec < START_SEC + 20; sec++) {
+            archive.secondEvicted(sec, 1000L, 1L, 1000L, 1000L);
+        }
+        archive.close();
+
+        // Simulate block written partially
+        File segment = folder.getRoot().listFiles()[0];
+        try(RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        SecondArchive reopened = open(1 << 20);
+        StatisticPartials result = reopened.query(START_SEC, START_SEC + 19);
+        assertThat(result.size(), is(10));
+        assertThat(result.getSecond(9), is(START_SEC + 9));
+
+        // Archive is appended after the last complete block
+        reopened.secondEvicted(START_SEC + 20, 1000L, 1L, 1000L, 1000L);
+        reopened.flush();
+        assertThat(reopened.query(START_SEC + 20, START_SEC + 20).size(), is(1));
+        reopened.close();
+    }
+
+    private SecondArchive open(long segmentBytes) throws Exception {
+        SecondArchive archive = new SecondArchive(folder.getRoot().getPath(), segmentBytes, 10);
+        archive.open();
+        return archive;
+    }
+}
@@ -0,0 +1,209 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test {@link StandingQueries}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class StandingQueriesTest {
+
+    private static final int PERIOD = 60;
+    private static final long NOW_SEC = 1500000000L;
+
+    @Mock
+    private CurrentTimeFactory currentTimeFactory;
+
+    @Mock
+    private StandingQueries.Listener listener;
+
+    private StatisticsBuffer<Statistics> statisticsBuffer;
+    private StandingQueries standingQueries;
+
+    @Before
+    public void setUp() throws Exception {
+        statisticsBuffer = new StatisticsBuffer<>(PERIOD, new DefaultStatisticsCollector());
+        standingQueries = new StandingQueries(statisticsBuffer, currentTimeFactory, PERIOD, 2, Runnable::run);
+    }
+
+    @Test
+    public void evaluateTransitions() throws Exception {
+        long id = standingQueries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GT,
+                1L, 10, listener);
+
+        statisticsBuffer.add(1000L, NOW_SEC, NOW_SEC);
+        standingQueries.evaluate(NOW_SEC);
+        verifyZeroInteractions(listener);
+
+        // Aggregates are calculated once per second
+        statisticsBuffer.add(3000L, NOW_SEC - 5, NOW_SEC);
+        standingQueries.evaluate(NOW_SEC);
+        verifyZeroInteractions(listener);
+
+        standingQueries.evaluate(NOW_SEC + 1);
+        verify(listener).transition(id, true, NOW_SEC + 1, 4000L, 2L, 1000L, 3000L);
+
+        // Only transitions are notified
+        standingQueries.evaluate(NOW_SEC + 2);
+        verifyNoMoreInteractions(listener);
+
+        standingQueries.evaluate(NOW_SEC + 5);
+        verify(listener).transition(id, false, NOW_SEC + 5, 1000L, 1L, 1000L, 1000L);
+
+        standingQueries.evaluate(NOW_SEC + 10);
+        verifyNoMoreInteractions(listener);
+
+        assertThat(metrics(), is("queries.registered=1, queries.transitions=2, queries.dropped=0"));
+    }
+
+    @Test
+    public void evaluateMeasures() throws Exception {
+        statisticsBuffer.add(1000L, NOW_SEC, NOW_SEC);
+        statisticsBuffer.add(2000L, NOW_SEC, NOW_SEC);
+
+        assertThat(holds(StandingQueries.Measure.SUM, StandingQueries.Comparator.GE, 3000L), is(true));
+        assertThat(holds(StandingQueries.Measure.SUM, StandingQueries.Comparator.GT, 3000L), is(false));
+        assertThat(holds(StandingQueries.Measure.AVG, StandingQueries.Comparator.GT, 1499L), is(true));
+        assertThat(holds(StandingQueries.Measure.AVG, StandingQueries.Comparator.LT, 1500L), is(false));
+        assertThat(holds(StandingQueries.Measure.MAX, StandingQueries.Comparator.LE, 2000L), is(true));
+        assertThat(holds(StandingQueries.Measure.MIN, StandingQueries.Comparator.LT, 1000L), is(false));
+        assertThat(holds(StandingQueries.Measure.COUNT, StandingQueries.Comparator.LE, 2L), is(true));
+    }
+
+    @Test
+    public void evaluateEmptyWindow() throws Exception {
+        assertThat(holds(StandingQueries.Measure.MIN, StandingQueries.Comparator.LT, 1000L), is(false));
+        assertThat(holds(StandingQueries.Measure.AVG, StandingQueries.Comparator.LT, 1000L), is(false));
+        assertThat(holds(StandingQueries.Measure.COUNT, StandingQueries.Comparator.LT, 1L), is(true));
+        assertThat(holds(StandingQueries.Measure.SUM, StandingQueries.Comparator.LE, 0L), is(true));
+    }
+
+    @Test
+    public void evaluateSharedWindow() throws Exception {
+        @SuppressWarnings("unchecked")
+        StatisticsBuffer<Statistics> buffer = mock(StatisticsBuffer.class);
+        StandingQueries queries = new StandingQueries(buffer, currentTimeFactory, PERIOD, 10, Runnable::run);
+        when(currentTimeFactory.now()).thenReturn(NOW_SEC);
+
+        queries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GT, 1L, 10, listener);
+        queries.register(StandingQueries.Measure.SUM, StandingQueries.Comparator.GT, 1L, 10, listener);
+        queries.register(StandingQueries.Measure.MAX, StandingQueries.Comparator.GT, 1L, 30, listener);
+
+        queries.evaluate();
+
+        verify(buffer).calculate(eq(NOW_SEC), eq(10), any(StatisticsSink.class));
+        verify(buffer).calculate(eq(NOW_SEC), eq(30), any(StatisticsSink.class));
+    }
+
+    @Test
+    public void evaluateFailedListener() throws Exception {
+        statisticsBuffer.add(1000L, NOW_SEC, NOW_SEC);
+        doThrow(new IllegalStateException("closed"))
+                .when(listener).transition(anyLong(), anyBoolean(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+
+        long id = standingQueries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GE,
+                1L, PERIOD, listener);
+        standingQueries.evaluate(NOW_SEC);
+
+        verify(listener).transition(id, true, NOW_SEC, 1000L, 1L, 1000L, 1000L);
+        assertThat(metrics(), is("queries.registered=1, queries.transitions=1, queries.dropped=0"));
+    }
+
+    @Test(timeout = 10000L)
+    public void evaluateBlockedListener() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        StandingQueries queries = new StandingQueries(statisticsBuffer, currentTimeFactory, PERIOD, 10, executor);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch notified = new CountDownLatch(2);
+
+        // Listener of a client which doesn't read its stream
+        long blocked = queries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GE, 1L, 10,
+                (queryId, triggered, second, sum, count, min, max) -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        queries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GE, 1L, 1,
+                (queryId, triggered, second, sum, count, min, max) -> notified.countDown());
+
+        try {
+            // Evaluation is not held by the blocked listener and other listeners are notified
+            statisticsBuffer.add(1000L, NOW_SEC, NOW_SEC);
+            queries.evaluate(NOW_SEC);
+            queries.evaluate(NOW_SEC + 1);
+            assertTrue(notified.await(5, TimeUnit.SECONDS));
+
+            // Blocked listener falls behind and its query is removed
+            for(int i = 0; i < StandingQueries.MAX_PENDING_TRANSITIONS; i++) {
+                long second = NOW_SEC + 20 + 20 * i;
+                statisticsBuffer.add(1000L, second, second);
+                queries.evaluate(second);
+                queries.evaluate(second + 10);
+            }
+            assertThat(queries.unregister(blocked), is(false));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void registerLimit() throws Exception {
+        long first = standingQueries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GT,
+                1L, PERIOD, listener);
+        long second = standingQueries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GT,
+                1L, PERIOD, listener);
+
+        assertThat(standingQueries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GT,
+                1L, PERIOD, listener), is(-1L));
+
+        assertThat(standingQueries.unregister(first), is(true));
+        assertThat(standingQueries.unregister(first), is(false));
+        assertThat(standingQueries.register(StandingQueries.Measure.COUNT, StandingQueries.Comparator.GT,
+                1L, PERIOD, listener) > second, is(true));
+    }
+
+    private boolean holds(StandingQueries.Measure measure, StandingQueries.Comparator comparator, long threshold) {
+        List<Boolean> states = new ArrayList<>();
+        long id = standingQueries.register(measure, comparator, threshold, PERIOD,
+                (queryId, triggered, second, sum, count, min, max) -> states.add(triggered));
+        standingQueries.evaluate(NOW_SEC);
+        standingQueries.unregister(id);
+
+        return !states.isEmpty() && states.get(0);
+    }
+
+    private String metrics() {
+        StringBuilder result = new StringBuilder();
+        for(Metric<?> metric : standingQueries.metrics()) {
+            if(result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(metric.getName()).append('=').append(metric.getValue());
+        }
+        return result.toString();
+    }
+}
@@ -3,6 +3,13 @@ package de.n26.challenge.business;
 import de.n26.challenge.api.Statistics;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
 
@@ -47,6 +54,22 @@ public class StatisticDataTest {
         assertThat(statisticData.getTimestamp(16), is(1500077409L));
     }
 
+    @Test
+    public void merge() throws Exception {
+        StatisticData statisticData = new StatisticData(60);
+        statisticData.add(15, 10L, 1500077407L);
+        statisticData.merge(15, 35L, 2L, 15L, 20L, 1500077407L);
+        statisticData.merge(16, 0L, 0L, 0L, 0L, 1500077408L);
+
+        assertThat(statisticData.getAmount(15), is(45L));
+        assertThat(statisticData.getCount(15), is(3L));
+        assertThat(statisticData.getMax(15), is(20L));
+        assertThat(statisticData.getMin(15), is(10L));
+        assertThat(statisticData.getTimestamp(15), is(1500077407L));
+
+        assertThat(statisticData.getTimestamp(16), is(0L));
+    }
+
     @Test
     public void collect() throws Exception {
         StatisticData statisticData = new StatisticData(60);
@@ -65,6 +88,281 @@ public class StatisticDataTest {
         assertThat(statistics, is(statistics_expected));
     }
 
+    @Test
+    public void collectRange() throws Exception {
+        StatisticData statisticData = new StatisticData(60);
+        statisticData.add(58, 10L, 1500077398L);
+        statisticData.add(59, 30L, 1500077399L);
+        statisticData.add(0, 20L, 1500077400L);
+        statisticData.add(1, 40L, 1500077401L);
+
+        // Range wraps around the end of the slots
+        assertThat(statisticData.collect(StatisticsSnapshot.COLLECTOR, 59, 3).toString(),
+                is(StatisticsSnapshot.EMPTY.merge(90L, 3L, 20L, 40L).toString()));
+
+        statisticData.reset(1);
+        assertThat(statisticData.collect(StatisticsSnapshot.COLLECTOR, 59, 3).toString(),
+                is(StatisticsSnapshot.EMPTY.merge(50L, 2L, 20L, 30L).toString()));
+
+        assertThat(statisticData.collect(StatisticsSnapshot.COLLECTOR, 2, 56), is(StatisticsSnapshot.EMPTY));
+    }
+
+    @Test
+    public void collectRangeRandom() throws Exception {
+        int size = 37;
+        StatisticData statisticData = new StatisticData(size);
+        Random random = new Random(42);
+
+        for(int n = 0; n < 1000; n++) {
+            int cursor = random.nextInt(size);
+
+            if(random.nextInt(4) == 0) {
+                statisticData.reset(cursor);
+            } else {
+                statisticData.add(cursor, 1 + random.nextInt(10000), 1500077400L);
+            }
+
+            int from = random.nextInt(size);
+            int length = 1 + random.nextInt(size);
+
+            long sum = 0L, count = 0L, min = Long.MAX_VALUE, max = 0L;
+            for(int i = 0; i < length; i++) {
+                int slot = (from + i) % size;
+                sum += statisticData.getAmount(slot);
+                count += statisticData.getCount(slot);
+                if(statisticData.getCount(slot) > 0L) {
+                    min = Math.min(min, statisticData.getMin(slot));
+                    max = Math.max(max, statisticData.getMax(slot));
+                }
+            }
+
+            StatisticsSnapshot expected = StatisticsSnapshot.EMPTY.merge(sum, count, min, max);
+            assertThat(statisticData.collect(StatisticsSnapshot.COLLECTOR, from, length).toString(),
+                    is(expected.toString()));
+        }
+    }
+
+    @Test
+    public void interleavedLayout() throws Exception {
+        StatisticData columnar =
+                new StatisticData(60, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR, 0, 0);
+        StatisticData interleaved =
+                new StatisticData(60, StatisticData.Layout.INTERLEAVED, StatisticData.CollectMode.SCALAR, 0, 0);
+        Random random = new Random(42);
+
+        for(int n = 0; n < 1000; n++) {
+            int cursor = random.nextInt(60);
+            long amount = 1 + random.nextInt(10000);
+
+            if(random.nextInt(10) == 0) {
+                columnar.reset(cursor);
+                interleaved.reset(cursor);
+            } else {
+                columnar.add(cursor, amount, 1500077400L + cursor);
+                interleaved.add(cursor, amount, 1500077400L + cursor);
+            }
+        }
+
+        assertThat(interleaved.getLayout(), is(StatisticData.Layout.INTERLEAVED));
+        for(int i = 0; i < 60; i++) {
+            assertThat(interleaved.getAmount(i), is(columnar.getAmount(i)));
+            assertThat(interleaved.getCount(i), is(columnar.getCount(i)));
+            assertThat(interleaved.getMin(i), is(columnar.getMin(i)));
+            assertThat(interleaved.getMax(i), is(columnar.getMax(i)));
+            assertThat(interleaved.getTimestamp(i), is(columnar.getTimestamp(i)));
+        }
+        assertThat(interleaved.collect(new DefaultStatisticsCollector()),
+                is(columnar.collect(new DefaultStatisticsCollector())));
+        assertThat(interleaved.collect(new DefaultStatisticsCollector(), 50, 20),
+                is(columnar.collect(new DefaultStatisticsCollector(), 50, 20)));
+    }
+
+    @Test
+    public void collectBranchFree() throws Exception {
+        StatisticData scalar =
+                new StatisticData(3600, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR, 0, 0);
+        StatisticData branchFree =
+                new StatisticData(3600, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.BRANCH_FREE, 0, 0);
+
+        assertThat(branchFree.collect(StatisticsSnapshot.COLLECTOR).toString(),
+                is(scalar.collect(StatisticsSnapshot.COLLECTOR).toString()));
+
+        Random random = new Random(42);
+        for(int n = 0; n < 1000; n++) {
+            int cursor = random.nextInt(3600);
+            long amount = 1 + random.nextInt(1000000);
+            scalar.add(cursor, amount, 1500077400L);
+            branchFree.add(cursor, amount, 1500077400L);
+        }
+        branchFree.add(0, Long.MAX_VALUE / 2, 1500077400L);
+        scalar.add(0, Long.MAX_VALUE / 2, 1500077400L);
+
+        assertThat(branchFree.collect(StatisticsSnapshot.COLLECTOR).toString(),
+                is(scalar.collect(StatisticsSnapshot.COLLECTOR).toString()));
+        for(int skipCursor : new int[] {0, 1, 1800, 3599}) {
+            assertThat(branchFree.collect(StatisticsSnapshot.COLLECTOR, skipCursor).toString(),
+                    is(scalar.collect(StatisticsSnapshot.COLLECTOR, skipCursor).toString()));
+        }
+    }
+
+    @Test
+    public void collectLargest() throws Exception {
+        int capacity = 5;
+        StatisticData statisticData =
+                new StatisticData(60, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR, capacity, 0);
+        List<long[]> added = new ArrayList<>();
+
+        Random random = new Random(11);
+        for(int i = 0; i < 2000; i++) {
+            int cursor = random.nextInt(60);
+            long amount = 1 + random.nextInt(100000);
+            statisticData.add(cursor, amount, 1500077400L + cursor);
+            added.add(new long[] {amount, 1500077400L + cursor});
+        }
+
+        // Largest amounts of a slot beyond the heap capacity are lost, so expected are only the ones the heap keeps
+        added.sort((a, b) -> Long.compare(b[0], a[0]));
+        List<long[]> expected = new ArrayList<>();
+        Map<Long, Integer> perSlot = new HashMap<>();
+        for(long[] transaction : added) {
+            if(perSlot.merge(transaction[1], 1, Integer::sum) <= capacity) {
+                expected.add(transaction);
+            }
+        }
+
+        for(int n : new int[] {1, 5, 7, 300}) {
+            List<long[]> actual = new ArrayList<>();
+            statisticData.collectLargest(n, (amount, timestamp) -> actual.add(new long[] {amount, timestamp}));
+
+            assertThat(actual.size(), is(n));
+            for(int i = 0; i < n; i++) {
+                assertThat(actual.get(i)[0], is(expected.get(i)[0]));
+            }
+        }
+
+        // Slot heaps are exact within capacity
+        List<long[]> top = new ArrayList<>();
+        statisticData.collectLargest(capacity, (amount, timestamp) -> top.add(new long[] {amount, timestamp}));
+        for(int i = 0; i < capacity; i++) {
+            assertThat(top.get(i)[0], is(added.get(i)[0]));
+            assertThat(top.get(i)[1], is(added.get(i)[1]));
+        }
+    }
+
+    @Test
+    public void collectLargestResetMerge() throws Exception {
+        StatisticData statisticData =
+                new StatisticData(60, StatisticData.Layout.INTERLEAVED, StatisticData.CollectMode.SCALAR, 3, 0);
+        statisticData.add(1, 10L, 1500077401L);
+        statisticData.add(1, 30L, 1500077401L);
+        statisticData.add(2, 20L, 1500077402L);
+        statisticData.merge(3, 100L, 4L, 5L, 50L, 1500077403L);
+
+        List<String> largest = new ArrayList<>();
+        statisticData.collectLargest(10, (amount, timestamp) -> largest.add(amount + "@" + timestamp));
+        assertThat(largest, is(Arrays.asList("50@1500077403", "30@1500077401", "20@1500077402", "10@1500077401")));
+
+        statisticData.reset(1);
+        largest.clear();
+        statisticData.collectLargest(10, (amount, timestamp) -> largest.add(amount + "@" + timestamp));
+        assertThat(largest, is(Arrays.asList("50@1500077403", "20@1500077402")));
+
+        // Disabled heaps
+        StatisticData disabled = new StatisticData(60);
+        disabled.add(1, 10L, 1500077401L);
+        disabled.collectLargest(10, (amount, timestamp) -> fail());
+        assertThat(disabled.getLargestCapacity(), is(0));
+    }
+
+    @Test
+    public void distinct() throws Exception {
+        StatisticData statisticData =
+                new StatisticData(60, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR, 0, 4);
+        statisticData.add(58, 10L, 1500077398L);
+        statisticData.add(1, 10L, 1500077401L);
+
+        assertTrue(statisticData.addDistinct(58, 3, (byte) 2));
+        assertFalse(statisticData.addDistinct(58, 3, (byte) 1));
+        assertTrue(statisticData.addDistinct(1, 3, (byte) 5));
+        assertTrue(statisticData.addDistinct(1, 7, (byte) 1));
+
+        byte[] union = new byte[statisticData.getDistinctRegisters()];
+
+        // Linear counting of 16 registers
+        assertThat(statisticData.getDistinct(58, 2, union), is(1L));
+        assertThat(statisticData.getDistinct(58, 4, union), is(2L));
+        assertThat(union[3], is((byte) 5));
+        assertThat(statisticData.getDistinct(2, 50, union), is(0L));
+
+        statisticData.unionDistinct(union);
+        assertThat(union[3], is((byte) 5));
+        assertThat(union[7], is((byte) 1));
+
+        statisticData.reset(1);
+        assertThat(statisticData.getDistinct(58, 4, union), is(1L));
+        statisticData.unionDistinct(union);
+        assertThat(union[3], is((byte) 2));
+        assertThat(union[7], is((byte) 0));
+
+        assertThat(new StatisticData(60).getDistinct(0, 60, new byte[0]), is(-1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void distinctPrecision() throws Exception {
+        new StatisticData(60, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR, 0, 17);
+    }
+
+    @Test
+    public void occupied() throws Exception {
+        StatisticData statisticData = new StatisticData(200);
+        assertThat(statisticData.nextOccupied(0), is(-1));
+
+        statisticData.add(3, 10L, 1500077403L);
+        statisticData.add(3, 20L, 1500077403L);
+        statisticData.add(64, 30L, 1500077464L);
+        statisticData.merge(199, 100L, 2L, 40L, 60L, 1500077599L);
+        statisticData.merge(100, 0L, 0L, 0L, 0L, 1500077500L);
+
+        assertThat(statisticData.getOccupied(), is(3));
+        assertThat(statisticData.nextOccupied(0), is(3));
+        assertThat(statisticData.nextOccupied(4), is(64));
+        assertThat(statisticData.nextOccupied(65), is(199));
+        assertThat(statisticData.nextOccupied(200), is(-1));
+        assertTrue(statisticData.isOccupied(64));
+        assertFalse(statisticData.isOccupied(100));
+
+        statisticData.reset(64);
+        statisticData.reset(65);
+        assertThat(statisticData.getOccupied(), is(2));
+        assertThat(statisticData.nextOccupied(4), is(199));
+    }
+
+    @Test
+    public void collectSparse() throws Exception {
+        int size = 3600;
+        StatisticData branchFree =
+                new StatisticData(size, StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.BRANCH_FREE, 0, 0);
+        StatisticData scalar = new StatisticData(size);
+
+        // Occupancy goes from sparse to dense, so both scans of the branch-free mode are used
+        Random random = new Random(5);
+        for(int i = 0; i < 2000; i++) {
+            int cursor = random.nextInt(size);
+            long amount = 1 + random.nextInt(100000);
+            branchFree.add(cursor, amount, 1500077400L + cursor);
+            scalar.add(cursor, amount, 1500077400L + cursor);
+
+            if(i % 100 == 0) {
+                int skipCursor = random.nextInt(size);
+                StatisticsSnapshot expected = scalar.collect(StatisticsSnapshot.COLLECTOR, 0, size);
+
+                assertThat(branchFree.collect(StatisticsSnapshot.COLLECTOR).toString(), is(expected.toString()));
+                assertThat(branchFree.collect(StatisticsSnapshot.COLLECTOR, skipCursor).toString(),
+                        is(scalar.collect(StatisticsSnapshot.COLLECTOR, skipCursor).toString()));
+            }
+        }
+    }
+
     @Test
     public void size() throws Exception {
         StatisticData statisticData = new StatisticData(60);
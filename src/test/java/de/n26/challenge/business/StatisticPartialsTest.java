@@ -0,0 +1,76 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link StatisticPartials}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class StatisticPartialsTest {
+
+    @Test
+    public void encodeDecode() throws Exception {
+        StatisticPartials partials = new StatisticPartials(2);
+        partials.add(1500077407L, 25L, 2L, 10L, 15L);
+        partials.add(1500077408L, 20L, 1L, 20L, 20L);
+
+        StatisticPartials decoded = StatisticPartials.decode(partials.encode());
+
+        assertThat(decoded.size(), is(2));
+        assertThat(decoded.getSecond(0), is(1500077407L));
+        assertThat(decoded.getSum(0), is(25L));
+        assertThat(decoded.getCount(0), is(2L));
+        assertThat(decoded.getMin(0), is(10L));
+        assertThat(decoded.getMax(0), is(15L));
+        assertThat(decoded.getSecond(1), is(1500077408L));
+        assertThat(decoded.getSum(1), is(20L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeCorrupted() throws Exception {
+        StatisticPartials partials = new StatisticPartials(1);
+        partials.add(1500077407L, 25L, 2L, 10L, 15L);
+        byte[] bytes = partials.encode();
+
+        StatisticPartials.decode(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test
+    public void mergeInto() throws Exception {
+        long nowSec = 1500077460L;
+
+        StatisticPartials node1 = new StatisticPartials(2);
+        node1.add(nowSec - 60, 1000L, 1L, 1000L, 1000L);
+        node1.add(nowSec - 1, 25L, 2L, 10L, 15L);
+
+        StatisticPartials node2 = new StatisticPartials(2);
+        node2.add(nowSec - 1, 20L, 1L, 20L, 20L);
+        node2.add(nowSec + 1, 1000L, 1L, 1000L, 1000L);
+
+        StatisticData global = new StatisticData(60);
+        node1.mergeInto(global, nowSec);
+        node2.mergeInto(global, nowSec);
+
+        // Same second from different nodes ends up in the same slot, out of period data is skipped
+        int cursor = (int) ((nowSec - 1) % 60);
+        assertThat(global.getCount(cursor), is(3L));
+
+        Statistics statistics = global.collect(new DefaultStatisticsCollector());
+        Statistics statistics_expected = Statistics.build()
+                .avg(0.15)
+                .count(3)
+                .max(0.2)
+                .min(0.1)
+                .sum(0.45);
+
+        assertThat(statistics, is(statistics_expected));
+    }
+
+}
@@ -1,17 +1,32 @@
 package de.n26.challenge.business;
 
 import de.n26.challenge.api.Statistics;
+import de.n26.challenge.api.StatisticsJsonWriter;
 import de.n26.challenge.util.AmountConverter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -56,6 +71,129 @@ public class StatisticsBufferTest {
         assertThat(statistic_no_period, is(statistic_no_period_expected));
     }
 
+    @Test
+    public void largest() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, StatisticData.Layout.COLUMNAR,
+                StatisticData.CollectMode.SCALAR, 2, 0, new DefaultStatisticsCollector());
+        long nowSec = timestampSecFor(10, 59);
+
+        buffer.add(1000L, nowSec - 59, nowSec);
+        buffer.add(9000L, nowSec - 59, nowSec);
+        buffer.add(3000L, nowSec - 10, nowSec);
+        buffer.add(7000L, nowSec, nowSec);
+        buffer.add(5000L, nowSec, nowSec);
+        buffer.add(2000L, nowSec, nowSec);
+
+        LargestAmounts largest = buffer.largest(nowSec, 10);
+        assertThat(largest.size(), is(2));
+        assertThat(largest.getAmount(0), is(9000L));
+        assertThat(largest.getSecond(0), is(nowSec - 59));
+        assertThat(largest.getAmount(1), is(7000L));
+        assertThat(largest.getSecond(1), is(nowSec));
+
+        // Second with the largest amount is evicted
+        largest = buffer.largest(nowSec + 1, 1);
+        assertThat(largest.size(), is(1));
+        assertThat(largest.getAmount(0), is(7000L));
+
+        assertThat(new StatisticsBuffer<>(60, new DefaultStatisticsCollector()).largest(nowSec, 10).size(), is(0));
+    }
+
+    @Test
+    public void distinct() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, StatisticData.Layout.COLUMNAR,
+                StatisticData.CollectMode.SCALAR, 0, 12, new DefaultStatisticsCollector());
+        long nowSec = timestampSecFor(10, 59);
+
+        // Accounts 0-999 in the older half of the period, 500-1499 in the recent one
+        for(int i = 0; i < 2000; i++) {
+            int account = i < 1000 ? i : i - 500;
+            long transactionTimeSec = i < 1000 ? nowSec - 59 + i % 30 : nowSec - i % 30;
+            buffer.add(1000L, StatisticsBuffer.accountHash("account-" + account), transactionTimeSec, nowSec);
+        }
+        buffer.add(1000L, StatisticsBuffer.NO_ACCOUNT, nowSec, nowSec);
+
+        Statistics window = buffer.calculate(nowSec);
+        assertThat(window.getCount(), is(2001L));
+        assertNear(window.getDistinct(), 1500L);
+        assertNear(buffer.calculate(nowSec, 30).getDistinct(), 1000L);
+
+        // Same estimate if rebuilt by the tick
+        buffer.tick(nowSec);
+        assertThat(buffer.calculate(nowSec).getDistinct(), is(window.getDistinct()));
+
+        // Older half is evicted
+        assertNear(buffer.calculate(nowSec + 30).getDistinct(), 1000L);
+        buffer.tick(nowSec + 30);
+        assertNear(buffer.calculate(nowSec + 30).getDistinct(), 1000L);
+
+        // Empty window keeps the shape of the statistics
+        assertThat(buffer.calculate(nowSec + 60).getDistinct(), is(0L));
+        assertThat(buffer.calculate(nowSec + 60, 10).getDistinct(), is(0L));
+        StatisticsJsonWriter writer = new StatisticsJsonWriter();
+        buffer.calculate(nowSec + 60, writer);
+        assertThat(writer.toString(), is("{\"sum\":0.0,\"avg\":0.0,\"max\":0.0,\"min\":0.0,\"count\":0,\"distinct\":0}"));
+
+        assertThat(new StatisticsBuffer<>(60, new DefaultStatisticsCollector()).calculate(nowSec).getDistinct(),
+                is((Long) null));
+    }
+
+    @Test
+    public void periodNotMinute() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(90, new DefaultStatisticsCollector());
+        long nowSec = timestampSecFor(10, 0);
+
+        buffer.add(1000L, nowSec - 80, nowSec);
+        buffer.add(2000L, nowSec - 20, nowSec);
+        buffer.add(3000L, nowSec, nowSec);
+
+        // Seconds a minute apart don't share a slot
+        assertThat(buffer.calculate(nowSec).getCount(), is(3L));
+        assertThat(buffer.calculate(nowSec + 9).getCount(), is(3L));
+        assertThat(buffer.calculate(nowSec + 10).getCount(), is(2L));
+        assertThat(buffer.calculate(nowSec + 70).getCount(), is(1L));
+        assertThat(buffer.calculate(nowSec + 70, 70).getCount(), is(0L));
+        assertThat(buffer.calculate(nowSec + 90).getCount(), is(0L));
+    }
+
+    @Test
+    public void longPeriodSparse() throws Exception {
+        int period = 86400;
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(period, StatisticData.Layout.COLUMNAR,
+                StatisticData.CollectMode.BRANCH_FREE, 0, 0, new DefaultStatisticsCollector());
+        long nowSec = timestampSecFor(10, 0);
+
+        // Few transactions spread over the day
+        Random random = new Random(9);
+        long[] seconds = new long[500];
+        for(int i = 0; i < seconds.length; i++) {
+            seconds[i] = nowSec - random.nextInt(period);
+            buffer.add(1000L + i, seconds[i], nowSec);
+        }
+
+        for(long sec = nowSec; sec < nowSec + period; sec += 1 + random.nextInt(3600)) {
+            buffer.tick(sec);
+
+            long count = 0L;
+            long hourCount = 0L;
+            Set<Long> occupied = new HashSet<>();
+            for(long second : seconds) {
+                if(sec - second < period) {
+                    count++;
+                    occupied.add(second);
+                }
+                hourCount += sec - second < 3600 ? 1 : 0;
+            }
+
+            assertThat(buffer.calculate(sec).getCount(), is(count));
+            assertThat(buffer.calculate(sec, 3600).getCount(), is(hourCount));
+            assertThat(buffer.partials(sec).size(), is(occupied.size()));
+        }
+
+        assertThat(buffer.calculate(nowSec + period), is(Statistics.EMPTY_STATISTICS));
+        assertThat(buffer.partials(nowSec + period).size(), is(0));
+    }
+
     @Test
     public void addCrossingPeriodBoundaries() throws Exception {
         StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
@@ -250,6 +388,348 @@ public class StatisticsBufferTest {
         assertThat(statistic_no_period, is(statistic_no_period_expected));
     }
 
+    @Test
+    public void addAfterTick() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        buffer.add(1000L, timestampSecFor(10, 56),  timestampSecFor(10, 56));
+        buffer.tick(timestampSecFor(10, 58));
+
+        // Late transaction goes to the completed seconds, current one - to the live second
+        buffer.add(2000L, timestampSecFor(10, 57),  timestampSecFor(10, 58));
+        buffer.add(3000L, timestampSecFor(10, 58),  timestampSecFor(10, 58));
+
+        // Ticker is ahead of the caller clock - transaction is already out of the window
+        buffer.tick(timestampSecFor(11, 56));
+        buffer.add(9000L, timestampSecFor(10, 56),  timestampSecFor(10, 58));
+
+        Statistics statistic_in_period = buffer.calculate(timestampSecFor(11, 56));
+        Statistics statistic_part_period = buffer.calculate(timestampSecFor(11, 57));
+
+        Statistics statistic_in_period_expected = Statistics.build()
+                .avg(25.0)
+                .count(2)
+                .max(30.0)
+                .min(20.0)
+                .sum(50.0);
+
+        Statistics statistic_part_period_expected = Statistics.build()
+                .avg(30.0)
+                .count(1)
+                .max(30.0)
+                .min(30.0)
+                .sum(30.0);
+
+        assertThat(statistic_in_period, is(statistic_in_period_expected));
+        assertThat(statistic_part_period, is(statistic_part_period_expected));
+    }
+
+    @Test
+    public void addBatch() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        long[] amounts = {1000L, 2000L, 3000L, 4000L};
+        long[] times = {
+                timestampSecFor(9, 58),
+                timestampSecFor(10, 56),
+                timestampSecFor(10, 58),
+                timestampSecFor(10, 59)
+        };
+
+        buffer.add(amounts, times, 4, timestampSecFor(10, 58));
+
+        Statistics statistic_in_period = buffer.calculate(timestampSecFor(10, 59));
+        Statistics statistic_in_period_expected = Statistics.build()
+                .avg(25.0)
+                .count(2)
+                .max(30.0)
+                .min(20.0)
+                .sum(50.0);
+
+        assertThat(statistic_in_period, is(statistic_in_period_expected));
+    }
+
+    @Test
+    public void partials() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        buffer.add(1000L, timestampSecFor(10, 56),  timestampSecFor(10, 57));
+        buffer.add(2000L, timestampSecFor(10, 57),  timestampSecFor(10, 57));
+        buffer.add(3000L, timestampSecFor(10, 57),  timestampSecFor(10, 57));
+
+        StatisticPartials partials = buffer.partials(timestampSecFor(11, 56));
+
+        assertThat(partials.size(), is(1));
+        assertThat(partials.getSecond(0), is(timestampSecFor(10, 57)));
+        assertThat(partials.getSum(0), is(5000L));
+        assertThat(partials.getCount(0), is(2L));
+        assertThat(partials.getMin(0), is(2000L));
+        assertThat(partials.getMax(0), is(3000L));
+    }
+
+    @Test
+    public void changes() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        buffer.add(1000L, timestampSecFor(10, 56),  timestampSecFor(10, 57));
+        buffer.add(2000L, timestampSecFor(10, 57),  timestampSecFor(10, 57));
+
+        assertThat(buffer.changes(timestampSecFor(10, 57)).size(), is(2));
+        assertThat(buffer.changes(timestampSecFor(10, 57)).size(), is(0));
+
+        buffer.add(3000L, timestampSecFor(10, 57),  timestampSecFor(10, 58));
+
+        StatisticPartials changes = buffer.changes(timestampSecFor(10, 58));
+        assertThat(changes.size(), is(1));
+        assertThat(changes.getSecond(0), is(timestampSecFor(10, 57)));
+        assertThat(changes.getSum(0), is(5000L));
+        assertThat(changes.getCount(0), is(2L));
+    }
+
+    @Test
+    public void replace() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        buffer.add(1000L, timestampSecFor(10, 57),  timestampSecFor(10, 58));
+
+        StatisticPartials partials = new StatisticPartials(3);
+        partials.add(timestampSecFor(9, 58), 9000L, 1L, 9000L, 9000L);
+        partials.add(timestampSecFor(10, 57), 5000L, 2L, 2000L, 3000L);
+        partials.add(timestampSecFor(10, 58), 4000L, 1L, 4000L, 4000L);
+
+        buffer.replace(partials, timestampSecFor(10, 58));
+
+        Statistics statistic_in_period = buffer.calculate(timestampSecFor(10, 58));
+        Statistics statistic_in_period_expected = Statistics.build()
+                .avg(30.0)
+                .count(3)
+                .max(40.0)
+                .min(20.0)
+                .sum(90.0);
+
+        assertThat(statistic_in_period, is(statistic_in_period_expected));
+    }
+
+    @Test
+    public void tick() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        buffer.add(1000L, timestampSecFor(10, 56),  timestampSecFor(10, 57));
+        buffer.tick(timestampSecFor(11, 56));
+
+        // Tick backwards has no effect
+        buffer.tick(timestampSecFor(10, 57));
+
+        assertThat(buffer.calculate(timestampSecFor(10, 57)), is(Statistics.EMPTY_STATISTICS));
+    }
+
+    @Test
+    public void secondEvicted() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        StatisticPartials evicted = new StatisticPartials(60);
+        buffer.setListeners(Collections.singletonList(new StatisticsBufferListener() {
+            @Override
+            public void secondEvicted(long second, long sum, long count, long min, long max) {
+                evicted.add(second, sum, count, min, max);
+            }
+        }));
+
+        buffer.add(1000L, timestampSecFor(10, 56),  timestampSecFor(10, 57));
+        buffer.add(3000L, timestampSecFor(10, 56),  timestampSecFor(10, 57));
+        buffer.add(2000L, timestampSecFor(10, 57),  timestampSecFor(10, 57));
+
+        buffer.tick(timestampSecFor(11, 56));
+        assertThat(evicted.size(), is(1));
+        assertThat(evicted.getSecond(0), is(timestampSecFor(10, 56)));
+        assertThat(evicted.getSum(0), is(4000L));
+        assertThat(evicted.getCount(0), is(2L));
+        assertThat(evicted.getMin(0), is(1000L));
+        assertThat(evicted.getMax(0), is(3000L));
+
+        buffer.tick(timestampSecFor(11, 57));
+        assertThat(evicted.size(), is(2));
+        assertThat(evicted.getSecond(1), is(timestampSecFor(10, 57)));
+    }
+
+    @Test
+    public void secondClosed() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        StatisticPartials closed = new StatisticPartials(100);
+        buffer.setListeners(Collections.singletonList(new StatisticsBufferListener() {
+            @Override
+            public void secondClosed(long second, long sum, long count, long min, long max) {
+                closed.add(second, sum, count, min, max);
+            }
+        }));
+
+        buffer.add(1000L, timestampSecFor(10, 56),  timestampSecFor(10, 56));
+        buffer.add(2000L, timestampSecFor(10, 56),  timestampSecFor(10, 56));
+        buffer.tick(timestampSecFor(10, 59));
+
+        assertThat(closed.size(), is(3));
+        assertThat(closed.getSecond(0), is(timestampSecFor(10, 56)));
+        assertThat(closed.getSum(0), is(3000L));
+        assertThat(closed.getCount(0), is(2L));
+        assertThat(closed.getSecond(2), is(timestampSecFor(10, 58)));
+        assertThat(closed.getCount(2), is(0L));
+
+        // Only seconds within the period are reported after a long gap
+        buffer.tick(timestampSecFor(12, 59));
+        assertThat(closed.size(), is(63));
+        assertThat(closed.getSecond(3), is(timestampSecFor(11, 59)));
+        assertThat(closed.getSecond(62), is(timestampSecFor(12, 58)));
+    }
+
+    @Test
+    public void calculateLast() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+
+        buffer.add(1000L, timestampSecFor(10, 30),  timestampSecFor(10, 57));
+        buffer.add(2000L, timestampSecFor(10, 43),  timestampSecFor(10, 57));
+        buffer.add(5000L, timestampSecFor(10, 58),  timestampSecFor(10, 58));
+        buffer.add(3000L, timestampSecFor(11, 2),  timestampSecFor(11, 2));
+
+        // Sub-window crosses the end of the ring
+        assertThat(buffer.calculate(timestampSecFor(11, 5), 22), is(Statistics.build()
+                .sum(80).avg(40).max(50).min(30).count(2)));
+        assertThat(buffer.calculate(timestampSecFor(11, 5), 23), is(Statistics.build()
+                .sum(100).avg(33).max(50).min(20).count(3)));
+        assertThat(buffer.calculate(timestampSecFor(11, 5), 60), is(buffer.calculate(timestampSecFor(11, 5))));
+        assertThat(buffer.calculate(timestampSecFor(11, 5), 3), is(Statistics.EMPTY_STATISTICS));
+    }
+
+    @Test
+    public void calculateSink() throws Exception {
+        StatisticsBuffer<StatisticsSnapshot> buffer = new StatisticsBuffer<>(60, StatisticsSnapshot.COLLECTOR);
+        long[] result = new long[4];
+        StatisticsSink sink = (sum, count, min, max) -> {
+            result[0] = sum;
+            result[1] = count;
+            result[2] = min;
+            result[3] = max;
+        };
+
+        buffer.calculate(timestampSecFor(10, 57), sink);
+        assertThat(result, is(new long[] {0L, 0L, 0L, 0L}));
+
+        buffer.add(1000L, timestampSecFor(10, 30),  timestampSecFor(10, 57));
+        buffer.add(3000L, timestampSecFor(10, 57),  timestampSecFor(10, 57));
+        buffer.add(2000L, timestampSecFor(10, 58),  timestampSecFor(10, 58));
+
+        buffer.calculate(timestampSecFor(10, 58), sink);
+        assertThat(result, is(new long[] {6000L, 3L, 1000L, 3000L}));
+
+        buffer.calculate(timestampSecFor(10, 58), 2, sink);
+        assertThat(result, is(new long[] {5000L, 2L, 2000L, 3000L}));
+
+        buffer.calculate(timestampSecFor(11, 59), 10, sink);
+        assertThat(result, is(new long[] {0L, 0L, 0L, 0L}));
+    }
+
+    @Test
+    public void calculateWithConcurrentWriters() throws Exception {
+        StatisticsBuffer<StatisticsSnapshot> buffer = new StatisticsBuffer<>(60, StatisticsSnapshot.COLLECTOR);
+        int writingThreadsNumber = 4;
+        int transactionsPerThread = 20000;
+        long nowSec = timestampSecFor(10, 30);
+
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(writingThreadsNumber);
+
+        for(int i = 0; i < writingThreadsNumber; i++) {
+            long transactionSec = nowSec - i;
+            new Thread(
+                    () -> {
+                        try {
+                            startSignal.await();
+                            for(int j = 0; j < transactionsPerThread; j++) {
+                                buffer.add(1000L, transactionSec, nowSec);
+                            }
+                        } catch (InterruptedException e) {
+                            fail(e.getMessage());
+                        } finally {
+                            doneSignal.countDown();
+                        }
+                    }
+            ).start();
+        }
+
+        long[] result = new long[4];
+        StatisticsSink sink = (sum, count, min, max) -> {
+            result[0] = sum;
+            result[1] = count;
+            result[2] = min;
+            result[3] = max;
+        };
+
+        startSignal.countDown();
+
+        // Every read must be consistent even if it is interfered by writers
+        long lastCount = 0L;
+        while(doneSignal.getCount() > 0L) {
+            buffer.calculate(nowSec, sink);
+            assertThat(result[0], is(result[1] * 1000L));
+            assertThat(result[1] >= lastCount, is(true));
+            assertThat(result[2], is(result[1] == 0L ? 0L : 1000L));
+            assertThat(result[3], is(result[1] == 0L ? 0L : 1000L));
+            lastCount = result[1];
+
+            buffer.calculate(nowSec, 2, sink);
+            assertThat(result[0], is(result[1] * 1000L));
+            assertThat(result[2], is(result[1] == 0L ? 0L : 1000L));
+        }
+
+        buffer.calculate(nowSec, sink);
+        assertThat(result, is(new long[] {
+                writingThreadsNumber * transactionsPerThread * 1000L,
+                writingThreadsNumber * transactionsPerThread,
+                1000L,
+                1000L}));
+    }
+
+    @Test
+    public void flightRecorderEvents() throws Exception {
+        StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
+        buffer.setEventsEnabled(true);
+
+        Path file = Files.createTempFile("buffer", ".jfr");
+        try(Recording recording = new Recording()) {
+            recording.enable("de.n26.challenge.BufferAdd").withThreshold(Duration.ZERO);
+            recording.enable("de.n26.challenge.BufferRoll").withThreshold(Duration.ZERO);
+            recording.enable("de.n26.challenge.BufferCalculate").withThreshold(Duration.ZERO);
+            recording.start();
+
+            buffer.add(1000L, timestampSecFor(10, 57), timestampSecFor(10, 57));
+            buffer.add(new long[] {2000L, 3000L}, new long[] {timestampSecFor(10, 58), timestampSecFor(10, 58)},
+                    2, timestampSecFor(10, 58));
+            buffer.calculate(timestampSecFor(10, 58), 2);
+
+            recording.stop();
+            recording.dump(file);
+
+            Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file).stream()
+                    .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+            List<RecordedEvent> adds = events.get("de.n26.challenge.BufferAdd");
+            assertThat(adds.size(), is(2));
+            assertThat(adds.get(0).getInt("transactions"), is(1));
+            assertThat(adds.get(1).getInt("transactions"), is(2));
+            assertFalse(adds.get(0).hasField("startNanos"));
+
+            List<RecordedEvent> rolls = events.get("de.n26.challenge.BufferRoll");
+            assertThat(rolls.size(), is(2));
+            assertThat(rolls.get(0).getInt("staleSlots"), is(60));
+            assertThat(rolls.get(1).getInt("staleSlots"), is(1));
+            assertThat(rolls.get(1).getLong("second"), is(timestampSecFor(10, 58)));
+
+            List<RecordedEvent> calculations = events.get("de.n26.challenge.BufferCalculate");
+            assertThat(calculations.size(), is(1));
+            assertThat(calculations.get(0).getInt("lastSeconds"), is(2));
+            assertThat(calculations.get(0).getBoolean("locked"), is(false));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void calculate() throws Exception {
         StatisticsBuffer<Statistics> buffer = new StatisticsBuffer<>(60, new DefaultStatisticsCollector());
@@ -261,4 +741,9 @@ public class StatisticsBufferTest {
         LocalDateTime now = LocalDateTime.now(ZoneId.ofOffset("", ZoneOffset.UTC));
         return now.withMinute(min).withSecond(sec).toEpochSecond(ZoneOffset.UTC);
     }
+
+    // Within four standard errors of the estimate of 4096 registers
+    private static void assertNear(Long actual, long expected) {
+        assertTrue(actual + " is not near " + expected, Math.abs(actual - expected) <= expected * 0.065d);
+    }
 }
@@ -0,0 +1,78 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link StatisticsSnapshot}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class StatisticsSnapshotTest {
+
+    @Test
+    public void add() throws Exception {
+        StatisticsSnapshot snapshot = StatisticsSnapshot.EMPTY
+                .add(15L)
+                .add(10L)
+                .add(20L);
+
+        assertThat(snapshot.getSum(), is(45L));
+        assertThat(snapshot.getCount(), is(3L));
+        assertThat(snapshot.getMin(), is(10L));
+        assertThat(snapshot.getMax(), is(20L));
+    }
+
+    @Test
+    public void merge() throws Exception {
+        StatisticsSnapshot snapshot = StatisticsSnapshot.EMPTY.add(15L);
+
+        assertThat(snapshot.merge(0L, 0L, 0L, 0L), is(sameInstance(snapshot)));
+
+        snapshot = snapshot.merge(30L, 3L, 5L, 20L);
+
+        assertThat(snapshot.getSum(), is(45L));
+        assertThat(snapshot.getCount(), is(4L));
+        assertThat(snapshot.getMin(), is(5L));
+        assertThat(snapshot.getMax(), is(20L));
+    }
+
+    @Test
+    public void mergeSnapshot() throws Exception {
+        StatisticsSnapshot snapshot = StatisticsSnapshot.EMPTY.add(15L);
+
+        assertThat(snapshot.merge(StatisticsSnapshot.EMPTY), is(sameInstance(snapshot)));
+
+        snapshot = snapshot.merge(StatisticsSnapshot.EMPTY.add(5L).add(25L));
+
+        assertThat(snapshot.getSum(), is(45L));
+        assertThat(snapshot.getCount(), is(3L));
+        assertThat(snapshot.getMin(), is(5L));
+        assertThat(snapshot.getMax(), is(25L));
+    }
+
+    @Test
+    public void collect() throws Exception {
+        DefaultStatisticsCollector collector = new DefaultStatisticsCollector();
+
+        assertThat(StatisticsSnapshot.EMPTY.collect(collector), is(Statistics.EMPTY_STATISTICS));
+
+        Statistics statistics = StatisticsSnapshot.EMPTY
+                .merge(25L, 2L, 10L, 15L)
+                .add(20L)
+                .collect(collector);
+        Statistics statistics_expected = Statistics.build()
+                .avg(0.15)
+                .count(3)
+                .max(0.2)
+                .min(0.1)
+                .sum(0.45);
+
+        assertThat(statistics, is(statistics_expected));
+    }
+
+}
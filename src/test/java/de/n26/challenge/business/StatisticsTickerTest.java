@@ -0,0 +1,37 @@
+package de.n26.challenge.business;
+
+import de.n26.challenge.api.Statistics;
+import de.n26.challenge.util.CurrentTimeFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test {@link StatisticsTicker}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class StatisticsTickerTest {
+
+    @Mock
+    private StatisticsBuffer<Statistics> statisticsBuffer;
+
+    @Mock
+    private CurrentTimeFactory currentTimeFactory;
+
+    @Test
+    public void tick() throws Exception {
+        long nowSec = System.currentTimeMillis() / 1000;
+        when(currentTimeFactory.now()).thenReturn(nowSec);
+
+        new StatisticsTicker(statisticsBuffer, currentTimeFactory).tick();
+
+        verify(statisticsBuffer).tick(nowSec);
+    }
+
+}
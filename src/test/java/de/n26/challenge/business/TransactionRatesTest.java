@@ -0,0 +1,66 @@
+package de.n26.challenge.business;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link TransactionRates}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class TransactionRatesTest {
+
+    private static final long START_SEC = 1500000000L;
+
+    @Test
+    public void secondClosed() throws Exception {
+        TransactionRates transactionRates = new TransactionRates();
+
+        // Steady 10 transactions per second for several hours
+        for(long sec = START_SEC; sec < START_SEC + 10800; sec++) {
+            transactionRates.secondClosed(sec, 5000L, 10L, 100L, 1000L);
+        }
+
+        TransactionRates.Rates rates = transactionRates.getRates();
+        assertThat(rates.getSecond(), is(START_SEC + 10799));
+        assertThat(rates.getCount(), is(10L));
+        assertThat(rates.getAmount(), is(5000L));
+        for(int i = 0; i < TransactionRates.getHorizonsMinutes().length; i++) {
+            assertThat(rates.getCountAverage(i), closeTo(10.0d, 0.1d));
+            assertThat(rates.getAmountAverage(i), closeTo(5000.0d, 100.0d));
+        }
+
+        // Seconds closed again are ignored
+        transactionRates.secondClosed(START_SEC, 0L, 0L, 0L, 0L);
+        assertThat(transactionRates.getRates(), is(rates));
+    }
+
+    @Test
+    public void secondClosedAfterGap() throws Exception {
+        TransactionRates skipping = new TransactionRates();
+        TransactionRates continuous = new TransactionRates();
+
+        skipping.secondClosed(START_SEC, 5000L, 10L, 100L, 1000L);
+        skipping.secondClosed(START_SEC + 120, 5000L, 10L, 100L, 1000L);
+
+        continuous.secondClosed(START_SEC, 5000L, 10L, 100L, 1000L);
+        for(long sec = START_SEC + 1; sec < START_SEC + 120; sec++) {
+            continuous.secondClosed(sec, 0L, 0L, 0L, 0L);
+        }
+        continuous.secondClosed(START_SEC + 120, 5000L, 10L, 100L, 1000L);
+
+        // Missed seconds decay averages the same way as seconds without transactions
+        for(int i = 0; i < TransactionRates.getHorizonsMinutes().length; i++) {
+            assertThat(skipping.getRates().getCountAverage(i),
+                    closeTo(continuous.getRates().getCountAverage(i), 1e-9d));
+            assertThat(skipping.getRates().getAmountAverage(i),
+                    closeTo(continuous.getRates().getAmountAverage(i), 1e-6d));
+        }
+
+        // Shorter horizon reacts faster
+        assertTrue(skipping.getRates().getCountAverage(0) > skipping.getRates().getCountAverage(2));
+    }
+}
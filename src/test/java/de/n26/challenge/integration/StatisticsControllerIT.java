@@ -1,5 +1,6 @@
 package de.n26.challenge.integration;
 
+import de.n26.challenge.api.BinaryMediaTypes;
 import de.n26.challenge.api.Statistics;
 import de.n26.challenge.api.StatisticsController;
 import de.n26.challenge.api.Transaction;
@@ -13,14 +14,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.Collections;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -32,7 +36,8 @@ import static org.mockito.Mockito.when;
  * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
  */
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "de.n26.challenge.ticker.enabled=false")
 public class StatisticsControllerIT {
 
     @MockBean
@@ -121,6 +126,31 @@ public class StatisticsControllerIT {
         assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
     }
 
+    // Buffer is not rolled back for the other tests
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void tetsBinaryFormats() {
+        when(currentTimeFactory.now()).thenReturn(timestampSecFor(13, 57));
+
+        Transaction transaction = new Transaction();
+        transaction.setTimestamp(timestampMilliFor(13, 56));
+        transaction.setAmount(12.5);
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(BinaryMediaTypes.APPLICATION_SMILE);
+        ResponseEntity<?> response = restTemplate.exchange("/transactions", HttpMethod.POST,
+                new HttpEntity<>(transaction, requestHeaders), Void.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.CREATED));
+
+        HttpHeaders statisticsHeaders = new HttpHeaders();
+        statisticsHeaders.setAccept(Collections.singletonList(BinaryMediaTypes.APPLICATION_CBOR));
+        ResponseEntity<Statistics> statistics = restTemplate.exchange("/statistics", HttpMethod.GET,
+                new HttpEntity<>(statisticsHeaders), Statistics.class);
+
+        assertThat(statistics.getHeaders().getContentType(), is(BinaryMediaTypes.APPLICATION_CBOR));
+        assertThat(statistics.getBody(), is(Statistics.build().sum(12.5).avg(12.5).max(12.5).min(12.5).count(1)));
+    }
+
     private ResponseEntity<?> updateStatistics(long timestamp, double amount) {
         Transaction transaction = new Transaction();
         transaction.setTimestamp(timestamp);
@@ -0,0 +1,38 @@
+package de.n26.challenge.replay;
+
+import de.n26.challenge.util.CurrentTimeFactory;
+
+/**
+ * Manually advanced clock to replay traces in simulated time.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class SimulatedClock implements CurrentTimeFactory {
+
+    private long millis;
+
+    public SimulatedClock(long startMillis) {
+        this.millis = startMillis;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param millis new time in milliseconds, not earlier than the current one
+     */
+    public void set(long millis) {
+
+        assert millis >= this.millis;
+
+        this.millis = millis;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public long now() {
+        return millis / 1000;
+    }
+}
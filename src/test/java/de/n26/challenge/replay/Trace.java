@@ -0,0 +1,113 @@
+package de.n26.challenge.replay;
+
+import de.n26.challenge.util.AmountConverter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Transactions ordered by arrival time. Each transaction has arrival time (when it is received),
+ * its own timestamp (which might be skewed or late) and amount represented as a long value.
+ *
+ * Recorded traces are stored as CSV lines of arrival time and timestamp in milliseconds
+ * and amount, e.g. {@code 1500000000123,1500000000100,12.34}.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public final class Trace {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] arrivals = new long[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends transaction to the trace.
+     *
+     * @param arrivalMillis arrival time in milliseconds, not earlier than the previous one
+     * @param timestampMillis transaction timestamp in milliseconds
+     * @param amount amount represented as a long value
+     */
+    public void add(long arrivalMillis, long timestampMillis, long amount) {
+
+        assert size == 0 || arrivalMillis >= arrivals[size - 1];
+
+        if(size == arrivals.length) {
+            arrivals = Arrays.copyOf(arrivals, size * 2);
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            amounts = Arrays.copyOf(amounts, size * 2);
+        }
+
+        arrivals[size] = arrivalMillis;
+        timestamps[size] = timestampMillis;
+        amounts[size] = amount;
+        size++;
+    }
+
+    /**
+     * Reads recorded trace.
+     *
+     * @param path CSV file to read
+     * @return trace read
+     * @throws IOException if file can't be read
+     */
+    public static Trace read(Path path) throws IOException {
+        Trace trace = new Trace();
+
+        try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.isEmpty()) {
+                    continue;
+                }
+
+                String[] fields = line.split(",");
+                trace.add(
+                        Long.parseLong(fields[0]),
+                        Long.parseLong(fields[1]),
+                        AmountConverter.toLongValue(Double.parseDouble(fields[2])));
+            }
+        }
+
+        return trace;
+    }
+
+    /**
+     * Writes trace as CSV.
+     *
+     * @param path CSV file to write
+     * @throws IOException if file can't be written
+     */
+    public void write(Path path) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < size; i++) {
+                writer.write(arrivals[i] + "," + timestamps[i] + ","
+                        + AmountConverter.toBigDecimalValue(amounts[i]).toPlainString());
+                writer.newLine();
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getArrival(int i) {
+        return arrivals[i];
+    }
+
+    public long getTimestamp(int i) {
+        return timestamps[i];
+    }
+
+    public long getAmount(int i) {
+        return amounts[i];
+    }
+}
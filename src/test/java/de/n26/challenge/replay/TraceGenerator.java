@@ -0,0 +1,136 @@
+package de.n26.challenge.replay;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generator of synthetic traces resembling production load: steady rate with bursts,
+ * idle gaps, clock skew of the clients (including timestamps in the future)
+ * and late arrivals (including ones out of the statistics period).
+ * Traces are deterministic for the same seed and settings.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class TraceGenerator {
+
+    private static final int MAX_BURST_SECONDS = 10;
+    private static final long MAX_AMOUNT = 1000000L;
+
+    private final Random random;
+
+    private int rate = 100;
+    private double burstProbability = 0.01d;
+    private int burstFactor = 20;
+    private double gapProbability = 0.002d;
+    private int maxGapSeconds = 120;
+    private long maxSkewMillis = 500L;
+    private double lateProbability = 0.05d;
+    private long maxLateMillis = 90000L;
+
+    public TraceGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param rate average number of transactions per second out of bursts
+     * @return this generator
+     */
+    public TraceGenerator rate(int rate) {
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * @param probability probability of a burst to start at a second
+     * @param factor rate multiplier during a burst
+     * @return this generator
+     */
+    public TraceGenerator bursts(double probability, int factor) {
+        this.burstProbability = probability;
+        this.burstFactor = factor;
+        return this;
+    }
+
+    /**
+     * @param probability probability of an idle gap to start at a second
+     * @param maxSeconds longest idle gap
+     * @return this generator
+     */
+    public TraceGenerator gaps(double probability, int maxSeconds) {
+        this.gapProbability = probability;
+        this.maxGapSeconds = maxSeconds;
+        return this;
+    }
+
+    /**
+     * @param maxMillis largest client clock deviation in either direction
+     * @return this generator
+     */
+    public TraceGenerator skew(long maxMillis) {
+        this.maxSkewMillis = maxMillis;
+        return this;
+    }
+
+    /**
+     * @param probability probability of a transaction to arrive late
+     * @param maxMillis largest delay of a late transaction
+     * @return this generator
+     */
+    public TraceGenerator lateArrivals(double probability, long maxMillis) {
+        this.lateProbability = probability;
+        this.maxLateMillis = maxMillis;
+        return this;
+    }
+
+    /**
+     * Generates trace.
+     *
+     * @param startMillis arrival time of the trace start in milliseconds
+     * @param seconds trace duration in seconds
+     * @return generated trace
+     */
+    public Trace generate(long startMillis, int seconds) {
+        Trace trace = new Trace();
+        long[] offsets = new long[rate * burstFactor * 2 + 1];
+        int burstSeconds = 0;
+        int gapSeconds = 0;
+
+        for(int second = 0; second < seconds; second++) {
+            if(gapSeconds > 0) {
+                gapSeconds--;
+                continue;
+            }
+
+            if(random.nextDouble() < gapProbability) {
+                gapSeconds = 1 + random.nextInt(maxGapSeconds);
+                continue;
+            }
+
+            if(burstSeconds == 0 && random.nextDouble() < burstProbability) {
+                burstSeconds = 1 + random.nextInt(MAX_BURST_SECONDS);
+            }
+
+            int secondRate = burstSeconds > 0 ? rate * burstFactor : rate;
+            int count = random.nextInt(secondRate * 2 + 1);
+            if(burstSeconds > 0) {
+                burstSeconds--;
+            }
+
+            for(int i = 0; i < count; i++) {
+                offsets[i] = random.nextInt(1000);
+            }
+            Arrays.sort(offsets, 0, count);
+
+            for(int i = 0; i < count; i++) {
+                long arrival = startMillis + second * 1000L + offsets[i];
+                long timestamp = random.nextDouble() < lateProbability
+                        ? arrival - (long) (random.nextDouble() * maxLateMillis)
+                        : arrival + (long) ((random.nextDouble() * 2 - 1) * maxSkewMillis);
+
+                trace.add(arrival, timestamp, 1L + (long) (random.nextDouble() * MAX_AMOUNT));
+            }
+        }
+
+        return trace;
+    }
+}
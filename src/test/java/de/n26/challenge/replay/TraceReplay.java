@@ -0,0 +1,367 @@
+package de.n26.challenge.replay;
+
+import de.n26.challenge.business.StatisticsBuffer;
+import de.n26.challenge.business.StatisticsSink;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Deterministic replay of a {@link Trace} against a {@link StatisticsBuffer} engine under a {@link SimulatedClock}.
+ *
+ * Clock is moved to the arrival time of each transaction and the buffer is ticked at each simulated second
+ * like by {@link de.n26.challenge.business.StatisticsTicker}. At each second (idle ones included) statistics
+ * of the whole period and of a random sub-window are verified against a brute-force oracle which keeps
+ * every accepted transaction. Replay runs as fast as possible unless speed (relative to real time) is limited.
+ *
+ * Throughput, memory allocated per transaction and memory retained by the engine are reported.
+ * Verification slows replay down, so for capacity numbers replay the trace once more with verification off.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class TraceReplay {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final int period;
+    private double speed;
+    private boolean verify = true;
+
+    public TraceReplay(int period) {
+        this.period = period;
+    }
+
+    /**
+     * @param speed simulated time speed relative to real time (e.g. 1000), not limited if 0
+     * @return this replay
+     */
+    public TraceReplay speed(double speed) {
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * @param verify whether to verify statistics against the oracle
+     * @return this replay
+     */
+    public TraceReplay verify(boolean verify) {
+        this.verify = verify;
+        return this;
+    }
+
+    /**
+     * Replays trace against a new engine.
+     *
+     * @param engine engine name to report
+     * @param engineFactory factory to create the engine
+     * @param trace trace to replay
+     * @return replay report
+     */
+    public Report replay(String engine, Supplier<StatisticsBuffer<?>> engineFactory, Trace trace) {
+        // Everything allocated to create the engine is retained by it
+        long allocatedBefore = allocatedBytes();
+        StatisticsBuffer<?> buffer = engineFactory.get();
+        long retainedBytes = allocatedBytes() - allocatedBefore;
+
+        Report report = new Report(engine, trace.size(), retainedBytes);
+        if(trace.size() == 0) {
+            return report;
+        }
+
+        SimulatedClock clock = new SimulatedClock(trace.getArrival(0));
+        BruteForceOracle oracle = new BruteForceOracle(period);
+        Random random = new Random(0L);
+        Result expected = new Result();
+        Result actual = new Result();
+
+        long startSecond = clock.now();
+        long second = startSecond;
+        long accepted = 0L;
+        buffer.tick(second);
+
+        allocatedBefore = allocatedBytes();
+        long startNanos = System.nanoTime();
+
+        for(int i = 0; i < trace.size(); i++) {
+            long arrival = trace.getArrival(i);
+
+            while(arrival / 1000 > second) {
+                second++;
+                clock.set(second * 1000);
+                buffer.tick(clock.now());
+
+                if(verify) {
+                    check(buffer, oracle, clock.now(), 1 + random.nextInt(period), expected, actual, report);
+                }
+
+                if(speed > 0) {
+                    long targetNanos = (long) ((second - startSecond) * NANOS_PER_SECOND / speed);
+                    long aheadNanos = targetNanos - (System.nanoTime() - startNanos);
+                    if(aheadNanos > 0) {
+                        LockSupport.parkNanos(aheadNanos);
+                    }
+                }
+            }
+
+            clock.set(arrival);
+            long transactionTimeSec = Math.floorDiv(trace.getTimestamp(i), 1000L);
+
+            buffer.add(trace.getAmount(i), transactionTimeSec, clock.now());
+
+            if(transactionTimeSec <= clock.now() && clock.now() - transactionTimeSec < period) {
+                accepted++;
+            }
+
+            if(verify) {
+                oracle.add(trace.getAmount(i), transactionTimeSec, clock.now());
+            }
+        }
+
+        report.wallNanos = System.nanoTime() - startNanos;
+        report.allocatedBytes = allocatedBytes() - allocatedBefore;
+        report.seconds = second - startSecond + 1;
+        report.accepted = accepted;
+
+        if(verify) {
+            check(buffer, oracle, clock.now(), 1 + random.nextInt(period), expected, actual, report);
+        }
+
+        return report;
+    }
+
+    private void check(StatisticsBuffer<?> buffer, BruteForceOracle oracle, long nowSec, int lastSeconds,
+                       Result expected, Result actual, Report report) {
+        oracle.evict(nowSec);
+
+        oracle.calculate(nowSec, period, expected);
+        buffer.calculate(nowSec, actual);
+        compare(nowSec, period, expected, actual, report);
+
+        oracle.calculate(nowSec, lastSeconds, expected);
+        buffer.calculate(nowSec, lastSeconds, actual);
+        compare(nowSec, lastSeconds, expected, actual, report);
+    }
+
+    private static void compare(long nowSec, int lastSeconds, Result expected, Result actual, Report report) {
+        report.checks++;
+
+        if(!expected.equals(actual)) {
+            report.mismatches++;
+
+            if(report.firstMismatch == null) {
+                report.firstMismatch = "second " + nowSec + ", last " + lastSeconds
+                        + ": expected " + expected + ", actual " + actual;
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        return bean instanceof com.sun.management.ThreadMXBean
+                ? ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId())
+                : -1L;
+    }
+
+    /**
+     * Replay results of an engine.
+     */
+    public static final class Report {
+        private final String engine;
+        private final int transactions;
+        private final long retainedBytes;
+        private long accepted;
+        private long seconds;
+        private long wallNanos;
+        private long allocatedBytes;
+        private long checks;
+        private long mismatches;
+        private String firstMismatch;
+
+        private Report(String engine, int transactions, long retainedBytes) {
+            this.engine = engine;
+            this.transactions = transactions;
+            this.retainedBytes = retainedBytes;
+        }
+
+        public String getEngine() {
+            return engine;
+        }
+
+        public int getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * @return number of transactions within the period at arrival
+         */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getSeconds() {
+            return seconds;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getChecks() {
+            return checks;
+        }
+
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        public String getFirstMismatch() {
+            return firstMismatch;
+        }
+
+        public double getTransactionsPerSecond() {
+            return wallNanos == 0L ? 0d : transactions * (double) NANOS_PER_SECOND / wallNanos;
+        }
+
+        /**
+         * @return simulated time speed relative to real time
+         */
+        public double getSpeedUp() {
+            return wallNanos == 0L ? 0d : seconds * (double) NANOS_PER_SECOND / wallNanos;
+        }
+
+        /**
+         * @return bytes allocated by the replay thread per transaction, negative if not supported by JVM
+         */
+        public double getAllocatedBytesPerTransaction() {
+            return allocatedBytes < 0L || transactions == 0 ? -1d : (double) allocatedBytes / transactions;
+        }
+
+        /**
+         * @return heap retained by the engine, negative if not supported by JVM
+         */
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("Report{");
+            sb.append("engine=").append(engine);
+            sb.append(", transactions=").append(transactions);
+            sb.append(", accepted=").append(accepted);
+            sb.append(", seconds=").append(seconds);
+            sb.append(", transactionsPerSecond=").append(String.format("%.0f", getTransactionsPerSecond()));
+            sb.append(", speedUp=").append(String.format("%.0f", getSpeedUp()));
+            sb.append(", allocatedBytesPerTransaction=")
+                    .append(String.format("%.1f", getAllocatedBytesPerTransaction()));
+            sb.append(", retainedBytes=").append(retainedBytes);
+            sb.append(", checks=").append(checks);
+            sb.append(", mismatches=").append(mismatches);
+            sb.append(", firstMismatch=").append(firstMismatch);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+
+    private static final class Result implements StatisticsSink {
+        private long sum;
+        private long count;
+        private long min;
+        private long max;
+
+        @Override
+        public void accept(long sum, long count, long min, long max) {
+            this.sum = sum;
+            this.count = count;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(o == null || getClass() != o.getClass()) return false;
+
+            Result result = (Result) o;
+            return sum == result.sum && count == result.count && min == result.min && max == result.max;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sum) * 31 + Long.hashCode(count);
+        }
+
+        @Override
+        public String toString() {
+            return "[sum=" + sum + ", count=" + count + ", min=" + min + ", max=" + max + "]";
+        }
+    }
+
+    // Keeps every transaction within the period and scans all of them for each calculation
+    private static final class BruteForceOracle {
+        private final int period;
+        private long[] times = new long[1024];
+        private long[] amounts = new long[1024];
+        private int size;
+
+        private BruteForceOracle(int period) {
+            this.period = period;
+        }
+
+        private void add(long amount, long transactionTimeSec, long nowSec) {
+            if(transactionTimeSec > nowSec || nowSec - transactionTimeSec >= period) {
+                return;
+            }
+
+            if(size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+
+            times[size] = transactionTimeSec;
+            amounts[size] = amount;
+            size++;
+        }
+
+        private void evict(long nowSec) {
+            int kept = 0;
+
+            for(int i = 0; i < size; i++) {
+                if(nowSec - times[i] < period) {
+                    times[kept] = times[i];
+                    amounts[kept] = amounts[i];
+                    kept++;
+                }
+            }
+
+            size = kept;
+        }
+
+        private void calculate(long nowSec, int lastSeconds, Result result) {
+            long sum = 0L;
+            long count = 0L;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+
+            for(int i = 0; i < size; i++) {
+                if(nowSec - times[i] < lastSeconds) {
+                    sum += amounts[i];
+                    count++;
+                    min = Math.min(min, amounts[i]);
+                    max = Math.max(max, amounts[i]);
+                }
+            }
+
+            if(count == 0L) {
+                result.accept(0L, 0L, 0L, 0L);
+            } else {
+                result.accept(sum, count, min, max);
+            }
+        }
+    }
+}
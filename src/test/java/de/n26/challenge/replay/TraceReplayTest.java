@@ -0,0 +1,104 @@
+package de.n26.challenge.replay;
+
+import de.n26.challenge.business.StatisticData;
+import de.n26.challenge.business.StatisticsBuffer;
+import de.n26.challenge.business.StatisticsSnapshot;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Replay an hour of synthetic load against each {@link StatisticsBuffer} engine
+ * and verify statistics of each second against the oracle.
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class TraceReplayTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceReplayTest.class);
+
+    private static final int PERIOD = 60;
+    private static final int HOUR_SECONDS = 3600;
+    private static final long START_MILLIS = LocalDateTime.of(2017, 4, 1, 12, 0, 0, 500000000)
+            .toInstant(ZoneOffset.UTC)
+            .toEpochMilli();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayHour() throws Exception {
+        Trace trace = new TraceGenerator(42L).generate(START_MILLIS, HOUR_SECONDS);
+
+        replay(trace, "columnar/scalar", StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.SCALAR);
+        replay(trace, "columnar/branch-free", StatisticData.Layout.COLUMNAR, StatisticData.CollectMode.BRANCH_FREE);
+        replay(trace, "interleaved/scalar", StatisticData.Layout.INTERLEAVED, StatisticData.CollectMode.SCALAR);
+    }
+
+    @Test
+    public void replayRecordedTrace() throws Exception {
+        Trace generated = new TraceGenerator(7L)
+                .rate(20)
+                .gaps(0.01d, 180)
+                .lateArrivals(0.2d, 120000L)
+                .generate(START_MILLIS, 600);
+
+        Path file = folder.newFile("trace.csv").toPath();
+        generated.write(file);
+        Trace recorded = Trace.read(file);
+
+        TraceReplay.Report generatedReport = new TraceReplay(PERIOD).replay("generated", this::newBuffer, generated);
+        TraceReplay.Report recordedReport = new TraceReplay(PERIOD).replay("recorded", this::newBuffer, recorded);
+
+        assertThat(recorded.size(), is(generated.size()));
+        assertThat(recordedReport.getAccepted(), is(generatedReport.getAccepted()));
+        assertThat(recordedReport.getFirstMismatch(), is((String) null));
+    }
+
+    @Test
+    public void replayWithSpeedLimit() throws Exception {
+        Trace trace = new TraceGenerator(1L).rate(10).gaps(0d, 0).generate(START_MILLIS, 10);
+
+        TraceReplay.Report report = new TraceReplay(PERIOD)
+                .speed(1000d)
+                .replay("limited", this::newBuffer, trace);
+
+        // Simulated seconds are at least 1 ms long
+        assertThat(report.getWallNanos() >= (report.getSeconds() - 1) * 1000000L, is(true));
+        assertThat(report.getMismatches(), is(0L));
+    }
+
+    private void replay(Trace trace, String engine, StatisticData.Layout layout, StatisticData.CollectMode mode) {
+        TraceReplay.Report verified = new TraceReplay(PERIOD)
+                .replay(engine, () -> new StatisticsBuffer<>(PERIOD, layout, mode, 0, 0, StatisticsSnapshot.COLLECTOR),
+                        trace);
+
+        logger.info("Verified: {}", verified);
+
+        assertThat(verified.getFirstMismatch(), is((String) null));
+        assertThat(verified.getChecks() >= 2L * HOUR_SECONDS, is(true));
+
+        TraceReplay.Report measured = new TraceReplay(PERIOD)
+                .verify(false)
+                .replay(engine, () -> new StatisticsBuffer<>(PERIOD, layout, mode, 0, 0, StatisticsSnapshot.COLLECTOR),
+                        trace);
+
+        // Checks are not done while measuring, accepted transactions are counted anyway
+        logger.info("Measured: {}", measured);
+
+        assertThat(measured.getAccepted(), is(verified.getAccepted()));
+    }
+
+    private StatisticsBuffer<?> newBuffer() {
+        return new StatisticsBuffer<>(PERIOD, StatisticsSnapshot.COLLECTOR);
+    }
+}
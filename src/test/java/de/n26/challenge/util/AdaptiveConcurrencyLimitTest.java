@@ -0,0 +1,58 @@
+package de.n26.challenge.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link AdaptiveConcurrencyLimit}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    public void tryAcquire() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 4, 5);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertThat(limit.getInFlight(), is(2));
+
+        limit.release(MILLI, 0L);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void release() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 3, 5);
+
+        // Additive increase after window of fast requests, never over the maximum
+        for(int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.release(MILLI, 0L);
+        }
+        assertThat(limit.getLimit(), is(3));
+
+        // Multiplicative decrease on slow request, not more often than once per target latency
+        limit.tryAcquire();
+        limit.release(10 * MILLI, 100 * MILLI);
+        assertThat(limit.getLimit(), is(2));
+
+        limit.tryAcquire();
+        limit.release(10 * MILLI, 101 * MILLI);
+        assertThat(limit.getLimit(), is(2));
+
+        // Never below the minimum
+        limit.tryAcquire();
+        limit.release(10 * MILLI, 200 * MILLI);
+        limit.tryAcquire();
+        limit.release(10 * MILLI, 300 * MILLI);
+        assertThat(limit.getLimit(), is(1));
+    }
+
+}
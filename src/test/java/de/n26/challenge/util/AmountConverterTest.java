@@ -44,4 +44,9 @@ public class AmountConverterTest {
         assertThat(bd, is(new BigDecimal("1.99")));
     }
 
+    @Test
+    public void toDoubleValue() throws Exception {
+        assertThat(AmountConverter.toDoubleValue(250.5d), is(2.505d));
+    }
+
 }
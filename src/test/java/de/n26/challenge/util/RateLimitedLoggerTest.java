@@ -0,0 +1,47 @@
+package de.n26.challenge.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test {@link RateLimitedLogger}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class RateLimitedLoggerTest {
+
+    @Mock
+    private Logger logger;
+
+    @Test
+    public void error() throws Exception {
+        AtomicLong nanoTime = new AtomicLong();
+        RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, new TokenBucket(1, 1, nanoTime::get));
+        when(logger.isErrorEnabled()).thenReturn(true);
+
+        rateLimitedLogger.error("Error: {}", "first");
+        rateLimitedLogger.error("Error: {}", "second");
+        rateLimitedLogger.error("Error: {}", "third");
+        assertThat(rateLimitedLogger.getSuppressed(), is(2L));
+
+        nanoTime.addAndGet(1_000_000_000L);
+        rateLimitedLogger.error("Error: {}", "fourth");
+        assertThat(rateLimitedLogger.getSuppressed(), is(0L));
+
+        verify(logger).error("Error: {}", "first");
+        verify(logger, times(1)).error("Error: {} ({} similar messages suppressed)", "fourth", 2L);
+    }
+
+}
@@ -0,0 +1,65 @@
+package de.n26.challenge.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link TokenBucket}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class TokenBucketTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @Test
+    public void tryAcquire() throws Exception {
+        TokenBucket bucket = new TokenBucket(2, 10, nanoTime::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // 10 tokens per second - one token in 100 milliseconds
+        nanoTime.addAndGet(100_000_000L);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // Never refilled over the capacity
+        nanoTime.addAndGet(10_000_000_000L);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void penalize() throws Exception {
+        TokenBucket bucket = new TokenBucket(2, 10, nanoTime::get);
+
+        bucket.penalize(3);
+        assertFalse(bucket.tryAcquire());
+
+        // Debt of one token has to be paid first
+        nanoTime.addAndGet(100_000_000L);
+        assertFalse(bucket.tryAcquire());
+
+        nanoTime.addAndGet(100_000_000L);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void isFull() throws Exception {
+        TokenBucket bucket = new TokenBucket(2, 10, nanoTime::get);
+
+        assertTrue(bucket.isFull());
+        bucket.penalize(1);
+        assertFalse(bucket.isFull());
+
+        nanoTime.addAndGet(100_000_000L);
+        assertTrue(bucket.isFull());
+    }
+
+}
@@ -0,0 +1,45 @@
+package de.n26.challenge.util;
+
+import org.junit.Test;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link VarInts}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class VarIntsTest {
+
+    @Test
+    public void writeReadSigned() throws Exception {
+        long[] values = {0L, 1L, -1L, 63L, -64L, 64L, 1500077407L, Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * VarInts.MAX_BYTES);
+
+        for(long value : values) {
+            VarInts.writeSigned(buffer, value);
+        }
+        ((Buffer) buffer).flip();
+
+        for(long value : values) {
+            assertThat(VarInts.readSigned(buffer), is(value));
+        }
+        assertThat(buffer.remaining(), is(0));
+    }
+
+    @Test
+    public void writeSignedCompact() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(VarInts.MAX_BYTES);
+
+        VarInts.writeSigned(buffer, -64L);
+        assertThat(buffer.position(), is(1));
+
+        VarInts.writeSigned(buffer, 64L);
+        assertThat(buffer.position(), is(3));
+    }
+
+}
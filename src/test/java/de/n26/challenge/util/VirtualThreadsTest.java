@@ -0,0 +1,52 @@
+package de.n26.challenge.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link VirtualThreads}
+ *
+ * @author <a href=mailto:eugene.pakhomov@ubitricity.com>Eugene Pakhomov</a>
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    public void isSupported() throws Exception {
+        assertThat(VirtualThreads.isSupported(), is(hasVirtualThreads()));
+    }
+
+    @Test
+    public void newVirtualThreadPerTaskExecutor() throws Exception {
+        if(!hasVirtualThreads()) {
+            try {
+                VirtualThreads.newVirtualThreadPerTaskExecutor();
+                fail("Virtual threads must not be supported");
+            } catch (UnsupportedOperationException ex) {
+                return;
+            }
+        }
+
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<Object> isVirtual = executor.submit(
+                    () -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+            assertThat(isVirtual.get(), is((Object) Boolean.TRUE));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean hasVirtualThreads() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+}